@@ -0,0 +1,47 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * An operation that accepts the coordinates of a cell.
+ * <br><br>
+ * Used to visit the alive cells of a {@link Generation} without creating
+ * a {@code Coordinates} per cell.
+ *
+ * @author Emmanuel Chebbi
+ */
+@FunctionalInterface
+public interface CellConsumer {
+
+    /**
+     * Performs this operation on the cell located at <code>(x,y)</code>.
+     *
+     * @param x
+     * 			The col of the cell.
+     * @param y
+     * 			The row of the cell.
+     */
+    void accept(int x, int y);
+}
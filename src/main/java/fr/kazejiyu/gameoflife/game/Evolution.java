@@ -29,15 +29,23 @@ import static java.lang.Math.max;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 import fr.kazejiyu.gameoflife.game.conditions.Condition;
+import fr.kazejiyu.gameoflife.game.engines.Engine;
+import fr.kazejiyu.gameoflife.game.engines.GenerationFactory;
 import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
 import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.io.PipelinedObserver;
 import fr.kazejiyu.gameoflife.io.WorldObserver;
 import fr.kazejiyu.gameoflife.util.math.Coordinates;
+import org.reactivestreams.Publisher;
 import rx.Observable;
 import rx.Observer;
 import rx.subjects.PublishSubject;
@@ -86,11 +94,34 @@ public class Evolution {
      */
     private BiPredicate<Generation, Entry<Coordinates, Long>> rule = Rule.GAME_OF_LIFE;
 
+    /**
+     * Creates the first generation of the world.
+     * @see Engine
+     */
+    private GenerationFactory engine = Engine.IMMUTABLE;
+
+    /**
+     * The first generation of the world, if it has been given explicitly.
+     * Takes precedence over {@link #cells} and {@link #engine}.
+     */
+    private Generation firstGeneration = null;
+
+    /**
+     * The default stop condition: the evolution never stops prematurely.
+     */
+    static final Predicate<Generation> NEVER = g -> false;
+
     /**
      * Indicates if the evolution of the world has to be stopped prematurely.
      * @see Condition
      */
-    private Predicate<Generation> stop = g -> false;
+    private Predicate<Generation> stop = NEVER;
+
+    /**
+     * The number of generations between two generations given to the observers.
+     * @see #sampleEvery(int)
+     */
+    private int sampling = 1;
 
     /**
      * Observers that will be notified with each generation of the world's evolution.
@@ -164,6 +195,8 @@ public class Evolution {
      * 	<li>the coordinates of the cell,</li>
      * 	<li>the number of neighbouring cells that are alive.</li>
      * </ul>
+     * Engines other than {@link Engine#IMMUTABLE} only follow life-like rules: custom rules
+     * must then be converted with {@link LifeLikeRule#tabulate(BiPredicate)}.
      * 
      * @param rule
      * 			Defines whether a cell will be alive at next generation.
@@ -175,6 +208,105 @@ public class Evolution {
         return this;
     }
 
+    /**
+     * Sets the rule that will be followed by the world from its rulestring,
+     * such as <code>B3/S23</code> for the game of life or <code>B36/S23</code>
+     * for the high life.
+     * 
+     * @param rulestring
+     * 			The rulestring of the rule, in B/S or S/B notation.
+     * 
+     * @return the current instance. May be used in order to chain method calls
+     * 
+     * @throws IllegalArgumentException if <code>rulestring</code> is malformed
+     * 
+     * @see LifeLikeRule#parse(String)
+     */
+    public Evolution followRule(String rulestring) {
+        return followRule(LifeLikeRule.parse(rulestring));
+    }
+
+    /**
+     * Sets the engine used to compute the evolution of the world.
+     * <br><br>
+     * The engine defines how the cells are stored in memory and how next
+     * generations are computed. Defaults to {@link Engine#IMMUTABLE}.
+     * 
+     * @param engine
+     * 			Creates the first generation of the world.
+     * 
+     * @return the current instance. May be used in order to chain method calls
+     */
+    public Evolution useEngine(GenerationFactory engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * Computes the evolution of the world with a bit-packed engine which splits
+     * the world into bands computed by <code>parallelism</code> threads.
+     * <br><br>
+     * A parallelism of 1 computes next generations sequentially.
+     *
+     * @param parallelism
+     * 			The number of threads used to compute next generations.
+     *
+     * @return the current instance. May be used in order to chain method calls
+     *
+     * @throws IllegalArgumentException if <code>parallelism</code> is not strictly positive
+     *
+     * @see Engine#parallel(int)
+     */
+    public Evolution parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be strictly positive, got " + parallelism);
+
+        return useEngine(parallelism == 1 ? Engine.BIT_PACKED : Engine.parallel(parallelism));
+    }
+
+    /**
+     * Computes the evolution of the world with <code>shards</code> worker processes
+     * launched on the local machine, each one owning a horizontal band of the world.
+     * <br><br>
+     * The stop condition and the observers are evaluated by the current process.
+     * The generation returned by {@link #evolve(int)} and {@link #fastForward(long)}
+     * should be closed in order to stop the workers; the workers are stopped by the
+     * evolution itself when it fails, once {@link #evolveUntil(Condition)} returns,
+     * and once a {@link #publish() publisher} completes or all its subscribers have cancelled.
+     *
+     * @param shards
+     * 			The number of worker processes.
+     *
+     * @return the current instance. May be used in order to chain method calls
+     *
+     * @throws IllegalArgumentException if <code>shards</code> is not strictly positive
+     *
+     * @see Engine#sharded(int)
+     */
+    public Evolution shards(int shards) {
+        return useEngine(Engine.sharded(shards));
+    }
+
+    /**
+     * Starts the evolution from <code>generation</code> instead of creating
+     * the first generation from the cells given to {@link #populateWith(Collection)}.
+     * <br><br>
+     * Useful when the first generation is not built from a collection of cells,
+     * e.g. when it is loaded from a file by {@link fr.kazejiyu.gameoflife.game.engines.MappedGeneration#fromFile}
+     * or from a macrocell file by {@link fr.kazejiyu.gameoflife.game.engines.HashLifeGeneration#fromMacrocell}.
+     * The size, the rule and the engine of the evolution are then ignored. Beware that
+     * mutable generations are updated in place: the evolution cannot be run twice.
+     * 
+     * @param generation
+     * 			The first generation of the world.
+     * 
+     * @return the current instance. May be used in order to chain method calls
+     */
+    public Evolution startFrom(Generation generation) {
+        this.firstGeneration = Objects.requireNonNull(generation);
+        return this;
+    }
+
     /**
      * Initialize the world with <code>cells</code>
      * 
@@ -213,6 +345,30 @@ public class Evolution {
         return this;
     }
 
+    /**
+     * Notifies <code>observer</code> of each generation from a dedicated thread,
+     * so that the evolution does not wait for it to process the generations.
+     * <br><br>
+     * Up to <code>capacity</code> generations wait to be observed; when there are more,
+     * <code>policy</code> defines whether the evolution waits or generations are dropped.
+     * In order to monitor the observer, create the {@link PipelinedObserver} explicitly.
+     * 
+     * @param observer
+     * 			The observer notified of each generation.
+     * @param policy
+     * 			What to do with a new generation when <code>capacity</code> generations are waiting.
+     * @param capacity
+     * 			The maximum number of generations waiting to be observed.
+     * 
+     * @return the current instance. May be used in order to chain method calls
+     * 
+     * @throws IllegalArgumentException if <code>capacity</code> is not strictly positive
+     */
+    public Evolution forEach(Observer<Generation> observer, PipelinedObserver.Policy policy, int capacity) {
+        observers.add(new PipelinedObserver(observer, policy, capacity));
+        return this;
+    }
+
     /**
      * Defines a condition that, when satisfied, stops the evolution of the game.
      * <br><br>
@@ -228,46 +384,289 @@ public class Evolution {
         return this;
     }
 
+    /**
+     * Only gives one generation every <code>sampling</code> generations to the observers,
+     * as well as the last one.
+     * <br><br>
+     * The stop condition is still checked against every generation, so that conditions that
+     * compare consecutive generations (e.g. {@link fr.kazejiyu.gameoflife.game.conditions.WhenStable})
+     * behave as without sampling; the generation that satisfies it is the last one observed.
+     * When no stop condition has been defined, the generations in between are computed in bulk
+     * by the engine (see {@link Generation#advance(long)}), which is much faster than computing
+     * and observing each of them. Use {@link #fastForward(long)} in order to only observe the last generation.
+     * 
+     * @param sampling
+     * 			The number of generations between two observed generations.
+     * 
+     * @return the current instance. May be used in order to chain method calls
+     * 
+     * @throws IllegalArgumentException if <code>sampling</code> is not strictly positive
+     */
+    public Evolution sampleEvery(int sampling) {
+        if (sampling < 1)
+            throw new IllegalArgumentException("The sampling must be strictly positive, got " + sampling);
+
+        this.sampling = sampling;
+        return this;
+    }
+
+    /**
+     * @return the first generation of the world
+     */
+    private Generation firstGeneration() {
+        if (firstGeneration != null)
+            return firstGeneration;
+
+        return engine.create(cells, width, height, rule);
+    }
+
     /**
      * Creates a world and makes it evolve for <code>generations</code>.
+     * <br><br>
+     * When neither an observer nor a stop condition has been defined, intermediate
+     * generations cannot be seen: the engine is then asked to compute the last one
+     * in bulk (see {@link Generation#advance(long)}). The same goes for the generations
+     * skipped because of {@link #sampleEvery(int)}.
+     * <br><br>
+     * Generations that hold resources (see {@link Generation#holdsExternalResources()}) must be closed by the caller.
+     * If the evolution fails, the generation it has created is closed before the failure is thrown.
      *  
      * @param generations
      * 			The number of generations to generate.
      */
     public Generation evolve(int nbGenerations) {
-        // Acts as a pipe between below Observable & given Observers
-        PublishSubject<Generation> pipe = PublishSubject.create();
+        Generation first = firstGeneration();
 
-        // The pipe has to forward data to each observer
-        for (final Observer<Generation> observer : observers)
-            pipe.subscribe(observer);
-        
         // a little trick to retrieve the last generation 
-        final ImmutableGeneration[] lastGeneration = new ImmutableGeneration[1];
-        
-        Generation firstGeneration = new ImmutableGeneration(cells, width, height, rule);
-
-        Observable
-                .from(firstGeneration.nextGenerations()::iterator)
-                .take(nbGenerations)
-                // stop the evolution if the condition is fulfilled
-                .takeUntil(stop::test)
-                // retrieve the last generation
-                .doOnEach(world -> lastGeneration[0] = world.hasValue() ? (ImmutableGeneration) world.getValue() : lastGeneration[0])
-                // trigger the iteration & forward data to the pipe
-                .subscribe(pipe);
-        
+        final Generation[] lastGeneration = new Generation[1];
+
+        try {
+            if (observers.isEmpty() && stop == NEVER && nbGenerations > 0)
+                return first.advance(nbGenerations - 1L);
+
+            // Acts as a pipe between below Observable & given Observers
+            PublishSubject<Generation> pipe = PublishSubject.create();
+
+            // The pipe has to forward data to each observer
+            for (final Observer<Generation> observer : observers)
+                pipe.subscribe(observer);
+
+            Observable<Generation> generations = sampling == 1
+                    ? Observable.from(first.nextGenerations()::iterator)
+                                .take(nbGenerations)
+                                // stop the evolution if the condition is fulfilled
+                                .takeUntil(stop::test)
+                    // the sampled generations check the condition themselves
+                    : Observable.from(sampledGenerations(first, nbGenerations));
+
+            generations
+                    // retrieve the last generation
+                    .doOnEach(world -> lastGeneration[0] = world.hasValue() ? (Generation) world.getValue() : lastGeneration[0])
+                    // trigger the iteration & forward data to the pipe
+                    .subscribe(pipe);
+
+            awaitPipelinedObservers();
+
+        } catch (RuntimeException | Error e) {
+            release(first, e);
+            throw e;
+        }
+
+        // no generation is returned, hence none can be closed by the caller
+        if (lastGeneration[0] == null)
+            release(first, null);
+
         return lastGeneration[0];
     }
 
+    /**
+     * Returns the generations <code>0, sampling, 2 * sampling, ...</code> of the world,
+     * followed by the generation <code>nbGenerations - 1</code>.
+     * <br><br>
+     * Every generation is checked against the stop condition: the generations end with the
+     * first one that satisfies it. The generations in between are only computed in bulk
+     * when there is no stop condition.
+     */
+    private Iterable<Generation> sampledGenerations(Generation first, int nbGenerations) {
+        long last = nbGenerations - 1L;
+
+        return () -> new Iterator<Generation>() {
+
+            private Generation current = null;
+
+            private long index = 0;
+
+            /**
+             * Whether a generation has satisfied the stop condition.
+             */
+            private boolean stopped = false;
+
+            @Override
+            public boolean hasNext() {
+                return current == null ? last >= 0 : index < last && !stopped;
+            }
+
+            @Override
+            public Generation next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                if (current == null) {
+                    current = first;
+                    stopped = stop.test(current);
+
+                } else if (stop == NEVER) {
+                    long step = Math.min(sampling, last - index);
+                    current = current.advance(step);
+                    index += step;
+
+                } else {
+                    do {
+                        current = current.nextGeneration();
+                        stopped = stop.test(current);
+                    } while (++index % sampling != 0 && index < last && !stopped);
+                }
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Creates a world and returns the generation that comes <code>generations</code>
+     * generations after the first one.
+     * <br><br>
+     * Intermediate generations are neither given to the observers nor checked against
+     * the stop condition: the engine is free to compute them in bulk, or even to skip them
+     * (see {@link Engine#HASHLIFE}). Observers are only notified of the resulting generation.
+     * <br><br>
+     * As with {@link #evolve(int)}, the generation reached must be closed by the caller if it
+     * holds resources, while the generation created is closed if the evolution fails.
+     * 
+     * @param generations
+     * 			The number of generations to skip.
+     * 
+     * @return the generation reached
+     */
+    public Generation fastForward(long generations) {
+        Generation first = firstGeneration();
+
+        try {
+            PublishSubject<Generation> pipe = PublishSubject.create();
+
+            for (final Observer<Generation> observer : observers)
+                pipe.subscribe(observer);
+
+            Generation reached = first.advance(generations);
+
+            Observable.just(reached).subscribe(pipe);
+
+            awaitPipelinedObservers();
+            return reached;
+
+        } catch (RuntimeException | Error e) {
+            release(first, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes <code>generation</code> if it holds resources (e.g. worker processes or files)
+     * and has been created by this evolution, i.e. has not been given to {@link #startFrom(Generation)}.
+     *
+     * @param generation
+     * 			The generation to close. May be <code>null</code>.
+     * @param failure
+     * 			The failure that ended the evolution, if any. Failing to close the
+     * 			generation is then recorded as suppressed by <code>failure</code>.
+     *
+     * @throws IllegalStateException if the generation cannot be closed and <code>failure</code> is <code>null</code>
+     *
+     * @see Generation#holdsExternalResources()
+     */
+    private void release(Generation generation, Throwable failure) {
+        if (generation == null || generation == firstGeneration || !generation.holdsExternalResources())
+            return;
+
+        try {
+            ((AutoCloseable) generation).close();
+
+        } catch (Exception e) {
+            if (failure != null)
+                failure.addSuppressed(e);
+            else if (e instanceof RuntimeException)
+                throw (RuntimeException) e;
+            else
+                throw new IllegalStateException("Cannot close " + generation, e);
+        }
+    }
+
+    /**
+     * Waits for the pipelined observers to process the generations they have received.
+     */
+    private void awaitPipelinedObservers() {
+        try {
+            for (Observer<Generation> observer : observers)
+                if (observer instanceof PipelinedObserver)
+                    ((PipelinedObserver) observer).awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a publisher that computes the generations of the world as its subscribers request them.
+     * <br><br>
+     * Unlike {@link #evolve(int)}, no generation is computed in advance: the evolution goes
+     * at the pace of the slowest subscriber, and stops when every subscriber has cancelled.
+     * The publisher completes once the stop condition is satisfied. The observers are ignored,
+     * but the sampling is taken into account (see {@link #sampleEvery(int)}).
+     * Once the publisher completes or every subscriber has cancelled, the generation it has created
+     * is closed if it holds resources.
+     * <br><br>
+     * With Java 9+, <code>org.reactivestreams.FlowAdapters.toFlowPublisher</code> turns it
+     * into a <code>java.util.concurrent.Flow.Publisher</code>.
+     * 
+     * @return a publisher of the generations of the world
+     */
+    public Publisher<Generation> publish() {
+        return publish(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a publisher that computes up to <code>generations</code> generations of the world,
+     * as its subscribers request them.
+     * <br><br>
+     * The publisher completes without computing any generation when <code>generations</code>
+     * is not strictly positive.
+     * 
+     * @param generations
+     * 			The maximum number of generations to publish.
+     * 
+     * @return a publisher of the generations of the world
+     * 
+     * @see #publish()
+     */
+    public Publisher<Generation> publish(long generations) {
+        return new GenerationPublisher(this::firstGeneration, stop, generations, sampling, generation -> release(generation, null));
+    }
+
     /**
      * Creates a world and makes it evolve until the specified condition is reached.
+     * <br><br>
+     * Since the last generation is not returned, it is closed once the evolution
+     * ends if it holds resources (see {@link Generation#holdsExternalResources()}).
      * 
      * @param until
      * 			Specifies when the evolution has to stop
      */
     public void evolveUntil(Condition until) {
         stop = until.or(stop);
-        evolve(Integer.MAX_VALUE);
+        Generation last = null;
+
+        try {
+            last = evolve(Integer.MAX_VALUE);
+        } finally {
+            release(last, null);
+        }
     }
 }
@@ -0,0 +1,195 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import fr.kazejiyu.gameoflife.game.conditions.Condition;
+
+/**
+ * Runs many independent {@link Evolution}s concurrently.
+ * <br><br>
+ * Each run is described by a supplier that builds its {@link Evolution} and by
+ * the number of generations to compute. The supplier is called by the thread that
+ * executes the run, so that each run gets its own {@link Condition}s and observers
+ * as long as the supplier creates new ones:
+ * <pre>
+ * EvolutionBatch batch = new EvolutionBatch(Executors.newFixedThreadPool(8));
+ * for (long seed : seeds)
+ *     batch.add(() -&gt; new Evolution().size(64, 64)
+ *                                    .populateWith(randomSoup(seed))
+ *                                    .stop(new WhenRepeated()), 1000);
+ * batch.results().forEach(...);
+ * </pre>
+ * Any {@link Executor} can be used, e.g. a bounded pool or, with Java 21+,
+ * <code>Executors.newVirtualThreadPerTaskExecutor()</code>. The executor is not
+ * shut down by the batch.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class EvolutionBatch {
+
+    /**
+     * Executes the runs.
+     */
+    private final Executor executor;
+
+    /**
+     * The runs to execute.
+     */
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * Creates a new batch which runs are executed by the common {@link ForkJoinPool}.
+     */
+    public EvolutionBatch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new batch which runs are executed by <code>executor</code>.
+     *
+     * @param executor
+     * 			Executes the runs.
+     */
+    public EvolutionBatch(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Adds a run to the batch.
+     *
+     * @param evolution
+     * 			Builds the evolution to run. Should create new conditions and observers at each call.
+     * @param generations
+     * 			The number of generations to generate (see {@link Evolution#evolve(int)}).
+     *
+     * @return the current instance. May be used in order to chain method calls
+     */
+    public EvolutionBatch add(Supplier<Evolution> evolution, int generations) {
+        runs.add(new Run(Objects.requireNonNull(evolution), generations));
+        return this;
+    }
+
+    /**
+     * Adds several runs to the batch, each one generating the same number of generations.
+     *
+     * @param evolutions
+     * 			Build the evolutions to run. Should create new conditions and observers at each call.
+     * @param generations
+     * 			The number of generations to generate (see {@link Evolution#evolve(int)}).
+     *
+     * @return the current instance. May be used in order to chain method calls
+     */
+    public EvolutionBatch addAll(Collection<? extends Supplier<Evolution>> evolutions, int generations) {
+        for (Supplier<Evolution> evolution : evolutions)
+            add(evolution, generations);
+
+        return this;
+    }
+
+    /**
+     * @return the number of runs of the batch
+     */
+    public int size() {
+        return runs.size();
+    }
+
+    /**
+     * Starts all the runs of the batch.
+     * <br><br>
+     * The batch can be started several times; each time, the suppliers are called again.
+     *
+     * @return the last generation of each run, in the order the runs were added
+     */
+    public List<CompletableFuture<Generation>> start() {
+        List<CompletableFuture<Generation>> results = new ArrayList<>(runs.size());
+
+        for (Run run : runs)
+            results.add(CompletableFuture.supplyAsync(run::evolve, executor));
+
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Starts all the runs of the batch and returns their last generation as soon
+     * as they complete.
+     * <br><br>
+     * Consuming the stream blocks until the next run completes. When a run fails,
+     * the stream throws a {@link CompletionException} wrapping the failure.
+     *
+     * @return the last generation of each run, in the order the runs complete
+     */
+    public Stream<Generation> results() {
+        BlockingQueue<CompletableFuture<Generation>> completed = new LinkedBlockingQueue<>();
+
+        for (CompletableFuture<Generation> result : start())
+            result.whenComplete((generation, failure) -> completed.add(result));
+
+        return Stream.generate(() -> nextCompleted(completed))
+                     .limit(runs.size())
+                     .map(CompletableFuture::join);
+    }
+
+    private static CompletableFuture<Generation> nextCompleted(BlockingQueue<CompletableFuture<Generation>> completed) {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * An evolution to run.
+     */
+    private static final class Run {
+
+        private final Supplier<Evolution> evolution;
+
+        private final int generations;
+
+        Run(Supplier<Evolution> evolution, int generations) {
+            this.evolution = evolution;
+            this.generations = generations;
+        }
+
+        Generation evolve() {
+            return evolution.get().evolve(generations);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * A compact 128-bit digest of the alive cells of a {@link Generation}.
+ * <br><br>
+ * Each cell is given two pseudo-random 64-bit keys derived from its coordinates,
+ * and a fingerprint is the exclusive or of the keys of the alive cells (Zobrist hashing).
+ * Two generations with the same cells hence have the same fingerprint, whatever
+ * their engine; two different generations have the same one with a probability
+ * of about 2^-128, which is negligible when comparing millions of generations.
+ * <br><br>
+ * Instances of this class are immutable.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class Fingerprint {
+
+    /**
+     * The fingerprint of a generation which cells are all dead.
+     */
+    public static final Fingerprint EMPTY = new Fingerprint(0, 0);
+
+    /**
+     * The seeds used to derive the two keys of a cell.
+     */
+    private static final long HIGH_SEED = 0x9E37_79B9_7F4A_7C15L;
+    private static final long LOW_SEED = 0xC2B2_AE3D_27D4_EB4FL;
+
+    /**
+     * The 64 most significant bits of the fingerprint.
+     */
+    private final long high;
+
+    /**
+     * The 64 least significant bits of the fingerprint.
+     */
+    private final long low;
+
+    private Fingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Returns the fingerprint made of the given bits.
+     *
+     * @param high
+     * 			The 64 most significant bits of the fingerprint.
+     * @param low
+     * 			The 64 least significant bits of the fingerprint.
+     *
+     * @return the fingerprint made of the given bits
+     */
+    public static Fingerprint of(long high, long low) {
+        return new Fingerprint(high, low);
+    }
+
+    /**
+     * Computes the fingerprint of the cells alive within <code>generation</code>.
+     *
+     * @param generation
+     * 			The generation to fingerprint.
+     *
+     * @return the fingerprint of the cells alive within <code>generation</code>
+     */
+    public static Fingerprint of(Generation generation) {
+        long[] digest = new long[2];
+
+        generation.forEachAliveCell((x, y) -> {
+            digest[0] ^= highKey(x, y);
+            digest[1] ^= lowKey(x, y);
+        });
+        return new Fingerprint(digest[0], digest[1]);
+    }
+
+    /**
+     * Returns the key that the cell located at <code>(x,y)</code> contributes to
+     * the {@link #high()} bits of a fingerprint.
+     * <br><br>
+     * Engines that know which cells are born and die can maintain the bits of their
+     * fingerprint by toggling the keys of these cells, then call {@link #of(long, long)}.
+     *
+     * @param x
+     * 			The col of the cell.
+     * @param y
+     * 			The row of the cell.
+     *
+     * @return the key of the cell within the most significant bits of a fingerprint
+     */
+    public static long highKey(int x, int y) {
+        return mix(PackedCoordinates.pack(x, y) ^ HIGH_SEED);
+    }
+
+    /**
+     * Returns the key that the cell located at <code>(x,y)</code> contributes to
+     * the {@link #low()} bits of a fingerprint.
+     *
+     * @param x
+     * 			The col of the cell.
+     * @param y
+     * 			The row of the cell.
+     *
+     * @return the key of the cell within the least significant bits of a fingerprint
+     *
+     * @see #highKey(int, int)
+     */
+    public static long lowKey(int x, int y) {
+        return mix(PackedCoordinates.pack(x, y) ^ LOW_SEED);
+    }
+
+    /**
+     * Returns the fingerprint of a generation that only differs from this one by
+     * the state of the cell located at <code>(x,y)</code>.
+     *
+     * @param x
+     * 			The col of the cell that is born or dies.
+     * @param y
+     * 			The row of the cell that is born or dies.
+     *
+     * @return the fingerprint of the generation once the cell has been toggled
+     */
+    public Fingerprint toggle(int x, int y) {
+        return new Fingerprint(high ^ highKey(x, y), low ^ lowKey(x, y));
+    }
+
+    /**
+     * Returns the fingerprint of the union of two disjoint sets of cells,
+     * e.g. of two regions of a world.
+     *
+     * @param other
+     * 			The fingerprint of the other cells.
+     *
+     * @return the fingerprint of the cells of both fingerprints
+     */
+    public Fingerprint xor(Fingerprint other) {
+        return new Fingerprint(high ^ other.high, low ^ other.low);
+    }
+
+    /**
+     * @return the 64 most significant bits of the fingerprint
+     */
+    public long high() {
+        return high;
+    }
+
+    /**
+     * @return the 64 least significant bits of the fingerprint
+     */
+    public long low() {
+        return low;
+    }
+
+    /**
+     * The finalizer of SplitMix64: a bijection that spreads each input bit over the whole word.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof Fingerprint))
+            return false;
+
+        Fingerprint other = (Fingerprint) obj;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -2,6 +2,8 @@ package fr.kazejiyu.gameoflife.game;
 
 import java.util.stream.Stream;
 
+import fr.kazejiyu.gameoflife.game.census.Census;
+import fr.kazejiyu.gameoflife.game.census.KnownObjects;
 import fr.kazejiyu.gameoflife.util.math.Coordinates;
 
 /**
@@ -36,6 +38,20 @@ public interface Generation {
      */
     int nbOfCellsAlive();
 
+    /**
+     * Returns the number of cells that are alive in this generation.
+     * <br><br>
+     * Unlike {@link #nbOfCellsAlive()}, it does not overflow when more than
+     * {@link Integer#MAX_VALUE} cells are alive, which the engines backed by files
+     * or by several processes allow. The default implementation relies on
+     * {@link #nbOfCellsAlive()}.
+     *
+     * @return the number of cells that are alive in this generation
+     */
+    default long population() {
+        return nbOfCellsAlive();
+    }
+
     /**
      * Returns whether the cell located at <code>(x,y)</code> is alive.
      * 
@@ -60,12 +76,125 @@ public interface Generation {
      */
     boolean isAliveAt(Coordinates coord);
 
+    /**
+     * Performs <code>action</code> for each cell that is alive in this generation.
+     * <br><br>
+     * The default implementation tests each cell of the world; engines that know
+     * where their alive cells are should override it. The order in which the cells
+     * are visited is unspecified.
+     *
+     * @param action
+     * 			The action to perform on the coordinates of each alive cell.
+     */
+    default void forEachAliveCell(CellConsumer action) {
+        for (int y = 0; y < rows(); ++y)
+            for (int x = 0; x < cols(); ++x)
+                if (isAliveAt(x, y))
+                    action.accept(x, y);
+    }
+
+    /**
+     * Performs <code>action</code> for each cell that is alive in this generation,
+     * row after row from the top one, and from left to right within a row.
+     * <br><br>
+     * The default implementation gathers the alive cells then sorts them; engines
+     * that can visit their cells in this order should override it, so that writers
+     * can stream the generation without holding all of its cells.
+     *
+     * @param action
+     * 			The action to perform on the coordinates of each alive cell.
+     */
+    default void forEachAliveCellInRowOrder(CellConsumer action) {
+        RowOrder.forEach(this, action);
+    }
+
+    /**
+     * Returns the fingerprint of the cells alive in this generation.
+     * <br><br>
+     * Two generations with the same alive cells have the same fingerprint, whatever
+     * their engine; generations with different fingerprints are hence different.
+     * The default implementation visits each alive cell; engines cache it, or maintain
+     * it while stepping from the cells that are born and die, so that comparing
+     * generations does not require to walk their cells.
+     *
+     * @return the fingerprint of the cells alive in this generation
+     */
+    default Fingerprint fingerprint() {
+        return Fingerprint.of(this);
+    }
+
+    /**
+     * Returns the census of the objects of this generation, such as blocks, blinkers or gliders.
+     * <br><br>
+     * The alive cells are split into connected objects, which are named whatever their
+     * position and their orientation thanks to {@link KnownObjects#defaults()}.
+     *
+     * @return the census of the objects of this generation
+     *
+     * @see Census#of(Generation, KnownObjects)
+     */
+    default Census census() {
+        return Census.of(this);
+    }
+
     /**
      * Returns the next generation.
      * @return the next generation
      */
     Generation nextGeneration();
 
+    /**
+     * Returns the generation that comes <code>generations</code> generations after this one.
+     * <br><br>
+     * The default implementation calls {@link #nextGeneration()} repeatedly;
+     * engines that can jump ahead without computing each intermediate
+     * generation should override it.
+     * 
+     * @param generations
+     * 			The number of generations to skip. Must be positive.
+     * 
+     * @return the generation that comes <code>generations</code> generations after this one
+     */
+    default Generation advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        Generation generation = this;
+
+        for (long i = 0; i < generations; ++i)
+            generation = generation.nextGeneration();
+
+        return generation;
+    }
+
+    /**
+     * Returns a read-only view of this generation that is not affected by later
+     * calls to {@link #nextGeneration()}.
+     * <br><br>
+     * Immutable generations simply return themselves. Mutable ones, which update
+     * their state in place, return a copy: callers that need to keep a generation
+     * around (e.g. to compare it with the next ones) must hence call this method.
+     * 
+     * @return a read-only view of this generation
+     */
+    default Generation snapshot() {
+        return this;
+    }
+
+    /**
+     * Returns whether this generation holds resources outside of the heap, such as
+     * files or processes.
+     * <br><br>
+     * Such generations implement {@link AutoCloseable} and must be closed once useless.
+     * Their {@link #snapshot()}s hold resources too: callers that take snapshots must
+     * close the ones they drop, and should avoid taking them when they can.
+     * 
+     * @return whether this generation must be closed once useless
+     */
+    default boolean holdsExternalResources() {
+        return false;
+    }
+
     /**
      * Returns a stream that contains the next generations.
      * @return a stream that contains the next generations
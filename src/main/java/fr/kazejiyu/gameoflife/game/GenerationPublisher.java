@@ -0,0 +1,311 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the generations of an evolution on demand, following the
+ * <a href="http://www.reactive-streams.org/">Reactive Streams</a> specification.
+ * <br><br>
+ * A generation is only computed once every subscriber has requested it, by the thread
+ * that signals the last missing demand. Hence the evolution goes at the pace of its
+ * slowest subscriber, and does not start before a first subscriber has subscribed.
+ * Subscribers that subscribe while the evolution is in progress receive the generations
+ * computed from then on. Once the last subscriber has cancelled, the evolution ends:
+ * the last generation computed is released and later subscribers are completed at once.
+ * <br><br>
+ * When sampled, the generations skipped between two published ones are still checked against
+ * the stop condition, and the one that satisfies it is published as the last one. They are only
+ * computed in bulk when there is no stop condition.
+ * Subscribers receive {@link Generation#snapshot()}s, so that they may process them
+ * later on even if the engine is mutable. The publisher completes once the stop
+ * condition is satisfied or the maximum number of generations has been published,
+ * without computing any generation beyond; the last generation computed is then released.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see Evolution#publish()
+ */
+final class GenerationPublisher implements Publisher<Generation> {
+
+    /**
+     * Creates the first generation of the evolution.
+     */
+    private final Supplier<Generation> firstGeneration;
+
+    /**
+     * When satisfied, ends the evolution.
+     */
+    private final Predicate<Generation> stop;
+
+    /**
+     * Releases the resources held by the last generation once the evolution has ended.
+     */
+    private final Consumer<Generation> release;
+
+    /**
+     * The maximum number of generations to publish.
+     */
+    private final long limit;
+
+    /**
+     * The number of generations between two published generations.
+     */
+    private final int sampling;
+
+    /**
+     * The subscriptions that have not been cancelled nor completed yet.
+     */
+    private final List<GenerationSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Ensures that a single thread computes and publishes generations at a time,
+     * and counts the signals received meanwhile.
+     */
+    private final AtomicInteger work = new AtomicInteger();
+
+    /**
+     * The last generation computed, or <code>null</code> before the first one.
+     */
+    private Generation current;
+
+    /**
+     * The number of generations published so far.
+     */
+    private long published;
+
+    /**
+     * Whether the evolution has ended.
+     */
+    private boolean done;
+
+    /**
+     * The error that ended the evolution, if any.
+     */
+    private Throwable failure;
+
+    GenerationPublisher(Supplier<Generation> firstGeneration, Predicate<Generation> stop, long limit, int sampling, Consumer<Generation> release) {
+        this.firstGeneration = Objects.requireNonNull(firstGeneration);
+        this.stop = Objects.requireNonNull(stop);
+        this.release = Objects.requireNonNull(release);
+        this.limit = limit;
+        this.sampling = sampling;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Generation> subscriber) {
+        GenerationSubscription subscription = new GenerationSubscription(Objects.requireNonNull(subscriber));
+
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        drain();
+    }
+
+    /**
+     * Publishes generations as long as every subscriber has requested one.
+     * <br><br>
+     * Only one thread at a time executes the loop; signals received from other threads,
+     * or from the subscribers themselves, make the running thread loop once more.
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0)
+            return;
+
+        int missed = 1;
+
+        do {
+            while (publishNext()) {
+                // keep publishing while there is demand
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Publishes the next generation if every subscriber has requested it.
+     *
+     * @return whether a generation has been published
+     */
+    private boolean publishNext() {
+        boolean left = false;
+
+        for (GenerationSubscription subscription : subscriptions) {
+            if (subscription.cancelled) {
+                subscriptions.remove(subscription);
+                left = true;
+            }
+
+            if (subscription.invalidRequest != null) {
+                subscriptions.remove(subscription);
+                subscription.subscriber.onError(subscription.invalidRequest);
+                left = true;
+            }
+        }
+
+        // nobody is left to request the next generations once the evolution has started
+        if (left && subscriptions.isEmpty() && current != null && !done) {
+            done = true;
+            releaseCurrent();
+            return false;
+        }
+
+        if (!done && published >= limit) {
+            done = true;
+            releaseCurrent();
+        }
+
+        if (done) {
+            for (GenerationSubscription subscription : subscriptions) {
+                subscriptions.remove(subscription);
+
+                if (failure == null)
+                    subscription.subscriber.onComplete();
+                else
+                    subscription.subscriber.onError(failure);
+            }
+            return false;
+        }
+
+        if (subscriptions.isEmpty() || !subscriptions.stream().allMatch(subscription -> subscription.requested.get() > 0))
+            return false;
+
+        // whether one of the generations skipped has satisfied the stop condition
+        boolean stopped = false;
+
+        try {
+            if (current == null) {
+                current = firstGeneration.get();
+
+            } else if (stop == Evolution.NEVER) {
+                current = current.advance(sampling);
+
+            } else {
+                for (int i = 1; i < sampling && !stopped; ++i) {
+                    current = current.nextGeneration();
+                    stopped = stop.test(current);
+                }
+                if (!stopped)
+                    current = current.nextGeneration();
+            }
+            ++published;
+
+            Generation snapshot = current.snapshot();
+
+            for (GenerationSubscription subscription : subscriptions) {
+                subscription.consume();
+                subscription.subscriber.onNext(snapshot);
+            }
+
+            done = published >= limit || stopped || stop.test(current);
+        } catch (RuntimeException e) {
+            failure = e;
+            done = true;
+        }
+
+        if (done)
+            releaseCurrent();
+
+        return true;
+    }
+
+    /**
+     * Releases the last generation computed, which is not used anymore.
+     * Failing to do so fails the evolution, unless it has already failed.
+     */
+    private void releaseCurrent() {
+        try {
+            release.accept(current);
+        } catch (RuntimeException e) {
+            if (failure == null)
+                failure = e;
+        }
+    }
+
+    /**
+     * The link between the publisher and one of its subscribers.
+     */
+    private final class GenerationSubscription implements Subscription {
+
+        final Subscriber<? super Generation> subscriber;
+
+        /**
+         * The number of generations requested and not published yet.
+         */
+        final AtomicLong requested = new AtomicLong();
+
+        volatile boolean cancelled = false;
+
+        /**
+         * The error to signal because of an invalid request, if any.
+         */
+        volatile IllegalArgumentException invalidRequest;
+
+        GenerationSubscription(Subscriber<? super Generation> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled || invalidRequest != null)
+                return;
+
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of generations requested must be strictly positive, got " + n);
+                drain();
+                return;
+            }
+
+            // an unbounded demand saturates at Long.MAX_VALUE
+            requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Takes one generation off the demand, unless it is unbounded.
+         */
+        void consume() {
+            if (requested.get() != Long.MAX_VALUE)
+                requested.decrementAndGet();
+        }
+    }
+}
@@ -67,6 +67,12 @@ public final class ImmutableGeneration implements Generation {
      */
     private final BiPredicate<Generation, Entry<Coordinates, Long>> isCellAlive;
 
+    /**
+     * The fingerprint of the generation. It is derived from the fingerprint of the previous
+     * generation when the latter is known, and computed on first use otherwise.
+     */
+    private Fingerprint fingerprint;
+
     /**
      * A set containing the coordinates from (-1,-1) to (1,1) except (0,0).
      * By adding each coordinate of this set to a cell, we can get the coordinates
@@ -133,10 +139,19 @@ public final class ImmutableGeneration implements Generation {
      * 			The rule that determines whether a cell will be alive at next generation.
      */
     public ImmutableGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> isCellAlive) {
+        this(width, height, isCellAlive, new HashSet<>(aliveCells));
+    }
+
+    /**
+     * Creates a new generation which alive cells are <code>aliveCells</code>.
+     * <br><br>
+     * The set is not copied: it must not be modified once given.
+     */
+    private ImmutableGeneration(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> isCellAlive, Set<Coordinates> aliveCells) {
         this.width = width;
         this.height = height;
         this.isCellAlive = Objects.requireNonNull(isCellAlive);
-        this.aliveCells = Collections.unmodifiableSet(new HashSet<>(aliveCells));
+        this.aliveCells = Collections.unmodifiableSet(aliveCells);
     }
 
     @Override
@@ -159,6 +174,20 @@ public final class ImmutableGeneration implements Generation {
         return aliveCells.contains(coord);
     }
 
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        for (Coordinates cell : aliveCells)
+            action.accept(cell.x(), cell.y());
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
     /**
      * @return an unmodifiable set that contains coordinates from (-1,-1) to (1,1) except (0,0).
      * @see #NEIGHBOUR_DELTAS
@@ -201,7 +230,22 @@ public final class ImmutableGeneration implements Generation {
                 .map(Entry::getKey)
                 .collect(toSet());
 
-        return new ImmutableGeneration(next, width, height, isCellAlive);
+        ImmutableGeneration nextGeneration = new ImmutableGeneration(width, height, isCellAlive, next);
+
+        if (fingerprint != null) {
+            Fingerprint nextFingerprint = fingerprint;
+
+            for (Coordinates cell : next)
+                if (!aliveCells.contains(cell))
+                    nextFingerprint = nextFingerprint.toggle(cell.x(), cell.y());
+
+            for (Coordinates cell : aliveCells)
+                if (!next.contains(cell))
+                    nextFingerprint = nextFingerprint.toggle(cell.x(), cell.y());
+
+            nextGeneration.fingerprint = nextFingerprint;
+        }
+        return nextGeneration;
     }
 
     @Override
@@ -225,9 +269,8 @@ public final class ImmutableGeneration implements Generation {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((aliveCells == null) ? 0 : aliveCells.hashCode());
+        result = prime * result + fingerprint().hashCode();
         result = prime * result + height;
-        result = prime * result + ((isCellAlive == null) ? 0 : isCellAlive.hashCode());
         result = prime * result + width;
         return result;
     }
@@ -244,10 +287,10 @@ public final class ImmutableGeneration implements Generation {
         if (height != other.height || width != other.width)
             return false;
 
-        if (aliveCells == null) {
-            if (other.aliveCells != null)
-                return false;
-        } else if (!aliveCells.equals(other.aliveCells))
+        if (aliveCells.size() != other.aliveCells.size() || !fingerprint().equals(other.fingerprint()))
+            return false;
+
+        if (!aliveCells.equals(other.aliveCells))
             return false;
 
         if (isCellAlive == null) {
@@ -0,0 +1,75 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Visits the alive cells of a {@link Generation} row after row, for the engines
+ * that cannot iterate over their cells in this order.
+ * <br><br>
+ * The alive cells are gathered then sorted, so that the memory required is
+ * proportional to the population of the generation.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class RowOrder implements CellConsumer {
+
+    /**
+     * The alive cells, their row packed in the high bits so that sorting them sorts them row after row.
+     */
+    private long[] cells;
+
+    private int size = 0;
+
+    private RowOrder(int expectedSize) {
+        this.cells = new long[Math.max(16, expectedSize)];
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive in <code>generation</code>,
+     * from the top left cell to the bottom right one.
+     */
+    static void forEach(Generation generation, CellConsumer action) {
+        RowOrder cells = new RowOrder(generation.nbOfCellsAlive());
+        generation.forEachAliveCell(cells);
+        cells.visit(action);
+    }
+
+    @Override
+    public void accept(int x, int y) {
+        if (size == cells.length)
+            cells = Arrays.copyOf(cells, size * 2);
+
+        cells[size++] = (long) y << 32 | x & 0xFFFF_FFFFL;
+    }
+
+    private void visit(CellConsumer action) {
+        Arrays.sort(cells, 0, size);
+
+        for (int i = 0; i < size; ++i)
+            action.accept((int) cells[i], (int) (cells[i] >> 32));
+    }
+}
@@ -0,0 +1,106 @@
+package fr.kazejiyu.gameoflife.game.census;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * Computes the fingerprint of an object that does not depend on its position nor on its orientation.
+ * <br><br>
+ * The object is translated to the origin under each of the 8 symmetries of the square, and
+ * the smallest of the 8 fingerprints obtained is kept: objects that only differ by a rotation,
+ * a reflection or a translation hence share the same canonical fingerprint.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class CanonicalShape {
+
+    /**
+     * The number of symmetries of the square: 4 rotations, with and without a reflection.
+     */
+    private static final int SYMMETRIES = 8;
+
+    private CanonicalShape() {
+        // static utility
+    }
+
+    /**
+     * Returns the canonical fingerprint of the object made of the cells <code>[from, to)</code> of <code>cells</code>.
+     *
+     * @param cells
+     * 			The coordinates of the cells, packed by {@link PackedCoordinates}.
+     * @param from
+     * 			The index of the first cell of the object.
+     * @param to
+     * 			The index that follows the last cell of the object.
+     *
+     * @return the canonical fingerprint of the object
+     */
+    static Fingerprint of(long[] cells, int from, int to) {
+        long bestHigh = 0;
+        long bestLow = 0;
+
+        for (int symmetry = 0; symmetry < SYMMETRIES; ++symmetry) {
+            int minX = Integer.MAX_VALUE;
+            int minY = Integer.MAX_VALUE;
+
+            for (int i = from; i < to; ++i) {
+                minX = Math.min(minX, x(cells[i], symmetry));
+                minY = Math.min(minY, y(cells[i], symmetry));
+            }
+            long high = 0;
+            long low = 0;
+
+            for (int i = from; i < to; ++i) {
+                int x = x(cells[i], symmetry) - minX;
+                int y = y(cells[i], symmetry) - minY;
+                high ^= Fingerprint.highKey(x, y);
+                low ^= Fingerprint.lowKey(x, y);
+            }
+            if (symmetry == 0 || Long.compareUnsigned(high, bestHigh) < 0 || (high == bestHigh && Long.compareUnsigned(low, bestLow) < 0)) {
+                bestHigh = high;
+                bestLow = low;
+            }
+        }
+        return Fingerprint.of(bestHigh, bestLow);
+    }
+
+    /**
+     * @return the abscissa of <code>cell</code> once transformed by <code>symmetry</code>
+     */
+    private static int x(long cell, int symmetry) {
+        int x = (symmetry & 4) == 0 ? PackedCoordinates.x(cell) : PackedCoordinates.y(cell);
+        return (symmetry & 1) == 0 ? x : -x;
+    }
+
+    /**
+     * @return the ordinate of <code>cell</code> once transformed by <code>symmetry</code>
+     */
+    private static int y(long cell, int symmetry) {
+        int y = (symmetry & 4) == 0 ? PackedCoordinates.y(cell) : PackedCoordinates.x(cell);
+        return (symmetry & 2) == 0 ? y : -y;
+    }
+}
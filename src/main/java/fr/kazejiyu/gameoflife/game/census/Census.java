@@ -0,0 +1,335 @@
+package fr.kazejiyu.gameoflife.game.census;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * The census of the objects of a {@link Generation}: how many blocks, blinkers, gliders...
+ * remain once an evolution has stabilised.
+ * <br><br>
+ * The alive cells are gathered into groups thanks to a union-find over their packed coordinates.
+ * Each group is identified by its canonical fingerprint, which does not depend on its position
+ * nor on its orientation, and named thanks to a table of {@link KnownObjects}. The cells that are
+ * at most two cells away from each other are first gathered into clusters, so that objects which
+ * cells are not all connected, such as some phases of the toad, are recognized; the clusters that
+ * are not known are then split into objects made of the cells connected through any of their 8
+ * neighbours. Only the alive cells are visited: the time required is <code>O(n log n)</code> in the
+ * population of the generation.
+ * <br><br>
+ * Objects that touch each other, such as a glider colliding with a block, are counted as a single
+ * unknown object. Instances of this class are <b>immutables</b>.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see Generation#census()
+ */
+public final class Census {
+
+    /**
+     * The distance up to which cells are gathered into a cluster, so that the phases of
+     * oscillators and spaceships which cells are not connected are recognized.
+     */
+    private static final int CLUSTER_DISTANCE = 2;
+
+    /**
+     * The number of objects of each known kind, by decreasing count.
+     */
+    private final Map<String, Integer> known;
+
+    /**
+     * The number of unknown objects, by canonical fingerprint.
+     */
+    private final Map<Fingerprint, Integer> unknown;
+
+    private final int objects;
+
+    private Census(Map<String, Integer> known, Map<Fingerprint, Integer> unknown, int objects) {
+        this.known = Collections.unmodifiableMap(known);
+        this.unknown = Collections.unmodifiableMap(unknown);
+        this.objects = objects;
+    }
+
+    /**
+     * Takes the census of <code>generation</code>, naming its objects with {@link KnownObjects#defaults()}.
+     *
+     * @param generation
+     * 			The generation which objects are counted.
+     *
+     * @return the census of <code>generation</code>
+     */
+    public static Census of(Generation generation) {
+        return of(generation, KnownObjects.defaults());
+    }
+
+    /**
+     * Takes the census of <code>generation</code>, naming its objects with <code>table</code>.
+     *
+     * @param generation
+     * 			The generation which objects are counted.
+     * @param table
+     * 			The objects that can be named.
+     *
+     * @return the census of <code>generation</code>
+     */
+    public static Census of(Generation generation, KnownObjects table) {
+        Objects.requireNonNull(table);
+
+        long[] cells = aliveCells(generation);
+        long[] object = new long[cells.length];
+
+        Map<String, Integer> known = new HashMap<>();
+        Map<Fingerprint, Integer> unknown = new HashMap<>();
+        int objects = 0;
+
+        // first, name the clusters of cells that are close to each other
+        int[] clusters = connect(cells, CLUSTER_DISTANCE);
+        int[] order = groupByRoot(clusters);
+        boolean[] named = new boolean[cells.length];
+
+        for (int first = 0, last; first < order.length; first = last) {
+            last = gather(cells, clusters, order, first, object);
+            String name = table.nameOf(CanonicalShape.of(object, 0, last - first));
+
+            if (name != null) {
+                known.merge(name, 1, Integer::sum);
+                named[clusters[order[first]]] = true;
+                ++objects;
+            }
+        }
+
+        // then, split the other clusters into connected objects
+        int[] parts = connect(cells, 1);
+        order = groupByRoot(parts);
+
+        for (int first = 0, last; first < order.length; first = last) {
+            last = gather(cells, parts, order, first, object);
+
+            if (named[clusters[order[first]]])
+                continue;
+
+            Fingerprint canonical = CanonicalShape.of(object, 0, last - first);
+            String name = table.nameOf(canonical);
+
+            if (name != null)
+                known.merge(name, 1, Integer::sum);
+            else
+                unknown.merge(canonical, 1, Integer::sum);
+
+            ++objects;
+        }
+        return new Census(sortedByCount(known), sortedByCount(unknown), objects);
+    }
+
+    /**
+     * Copies the cells of the group that starts at <code>order[first]</code> into <code>group</code>.
+     *
+     * @return the index of <code>order</code> that follows the last cell of the group
+     */
+    private static int gather(long[] cells, int[] roots, int[] order, int first, long[] group) {
+        int root = roots[order[first]];
+        int last = first;
+
+        while (last < order.length && roots[order[last]] == root) {
+            group[last - first] = cells[order[last]];
+            ++last;
+        }
+        return last;
+    }
+
+    /**
+     * @return the packed coordinates of the alive cells of <code>generation</code>, sorted
+     */
+    private static long[] aliveCells(Generation generation) {
+        long[][] cells = {new long[Math.max(16, generation.nbOfCellsAlive())]};
+        int[] size = {0};
+
+        generation.forEachAliveCell((x, y) -> {
+            if (size[0] == cells[0].length)
+                cells[0] = Arrays.copyOf(cells[0], size[0] * 2);
+
+            cells[0][size[0]++] = PackedCoordinates.pack(x, y);
+        });
+        long[] sorted = Arrays.copyOf(cells[0], size[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Joins each cell with the cells located at most <code>distance</code> columns and rows away.
+     * <br><br>
+     * Since the cells are sorted column after column, the cells that follow a cell and are close
+     * enough belong either to its column or to one of the <code>distance</code> next ones. The latter
+     * are found by a cursor per column that only moves forward.
+     *
+     * @return the root of the group of each cell, which is the index of its first cell
+     */
+    private static int[] connect(long[] cells, int distance) {
+        int[] parents = new int[cells.length];
+        int[] cursors = new int[distance + 1];
+
+        for (int i = 0; i < parents.length; ++i)
+            parents[i] = i;
+
+        for (int i = 0; i < cells.length; ++i) {
+            int x = PackedCoordinates.x(cells[i]);
+            int y = PackedCoordinates.y(cells[i]);
+
+            for (int j = i + 1; j < cells.length && cells[j] <= PackedCoordinates.pack(x, y + distance); ++j)
+                union(parents, i, j);
+
+            for (int dx = 1; dx <= distance; ++dx) {
+                long first = PackedCoordinates.pack(x + dx, Math.max(y - distance, 0));
+                long last = PackedCoordinates.pack(x + dx, y + distance);
+
+                while (cursors[dx] < cells.length && cells[cursors[dx]] < first)
+                    ++cursors[dx];
+
+                for (int j = cursors[dx]; j < cells.length && cells[j] <= last; ++j)
+                    union(parents, i, j);
+            }
+        }
+        for (int i = 0; i < parents.length; ++i)
+            parents[i] = find(parents, i);
+
+        return parents;
+    }
+
+    private static int find(int[] parents, int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+
+        // the smallest index is kept as the root, so that the root of an object is its first cell
+        if (rootA < rootB)
+            parents[rootB] = rootA;
+        else if (rootB < rootA)
+            parents[rootA] = rootB;
+    }
+
+    /**
+     * @return the indexes of the cells, sorted so that the cells of a same group are contiguous
+     */
+    private static int[] groupByRoot(int[] roots) {
+        int[] starts = new int[roots.length + 1];
+
+        for (int root : roots)
+            ++starts[root + 1];
+
+        for (int i = 1; i < starts.length; ++i)
+            starts[i] += starts[i - 1];
+
+        int[] order = new int[roots.length];
+
+        for (int i = 0; i < roots.length; ++i)
+            order[starts[roots[i]]++] = i;
+
+        return order;
+    }
+
+    private static <K> Map<K, Integer> sortedByCount(Map<K, Integer> counts) {
+        Map<K, Integer> sorted = new LinkedHashMap<>();
+
+        counts.entrySet().stream()
+              .sorted(Entry.<K, Integer>comparingByValue().reversed())
+              .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
+
+        return sorted;
+    }
+
+    /**
+     * Returns the number of objects of the generation, known or not.
+     * @return the number of objects of the generation
+     */
+    public int nbOfObjects() {
+        return objects;
+    }
+
+    /**
+     * Returns the number of objects named <code>name</code>.
+     *
+     * @param name
+     * 			The name of the object, as registered in the table of known objects.
+     *
+     * @return the number of objects named <code>name</code>
+     */
+    public int count(String name) {
+        return known.getOrDefault(name, 0);
+    }
+
+    /**
+     * Returns the number of known objects of each kind.
+     * @return an unmodifiable map that gives the number of objects by name, by decreasing count
+     */
+    public Map<String, Integer> counts() {
+        return known;
+    }
+
+    /**
+     * Returns the number of objects that are not known.
+     * @return the number of objects that are not known
+     */
+    public int nbOfUnknownObjects() {
+        return objects - known.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Returns the number of unknown objects of each kind.
+     * @return an unmodifiable map that gives the number of unknown objects by canonical fingerprint, by decreasing count
+     */
+    public Map<Fingerprint, Integer> unknownObjects() {
+        return unknown;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+
+        known.forEach((name, count) -> joiner.add(count + " " + name));
+
+        if (!unknown.isEmpty())
+            joiner.add(nbOfUnknownObjects() + " unknown");
+
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package fr.kazejiyu.gameoflife.game.census;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * A table that names objects from their canonical fingerprint.
+ * <br><br>
+ * Each phase of an oscillator or of a spaceship is registered, so that the object is
+ * recognized whatever the generation it is observed at. The default table contains the
+ * most common still lifes, oscillators and spaceships of {@link Rule#GAME_OF_LIFE}; it is
+ * built once and shared. Objects of other rules, such as {@link Pattern#HIGH_LIFE_REPLICATOR},
+ * have to be registered with {@link #with(String, Pattern, int, BiPredicate)}.
+ * <br><br>
+ * Instances of this class are <b>immutables</b>: {@link #with(String, Pattern, int)}
+ * returns a new table.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see Census
+ */
+public final class KnownObjects {
+
+    /**
+     * The names of the objects, by canonical fingerprint.
+     */
+    private final Map<Fingerprint, String> names;
+
+    private KnownObjects(Map<Fingerprint, String> names) {
+        this.names = Collections.unmodifiableMap(names);
+    }
+
+    /**
+     * Returns a table that does not contain any object.
+     * @return a table that does not contain any object
+     */
+    public static KnownObjects empty() {
+        return new KnownObjects(new HashMap<>());
+    }
+
+    /**
+     * Returns the default table, which contains the most common objects.
+     * @return the default table
+     */
+    public static KnownObjects defaults() {
+        return Defaults.TABLE;
+    }
+
+    /**
+     * Returns a new table that contains the objects of this one, plus each phase of <code>pattern</code>
+     * under {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param name
+     * 			The name of the object.
+     * @param pattern
+     * 			The object, at any of its phases.
+     * @param period
+     * 			The number of phases of the object: 1 for a still life.
+     *
+     * @return a new table that also contains <code>pattern</code>
+     *
+     * @see #with(String, Pattern, int, BiPredicate)
+     */
+    public KnownObjects with(String name, Pattern pattern, int period) {
+        return with(name, pattern, period, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Returns a new table that contains the objects of this one, plus each phase of <code>pattern</code>.
+     * <br><br>
+     * The phases are computed by evolving <code>pattern</code> in a world large enough
+     * for spaceships not to reach its borders.
+     *
+     * @param name
+     * 			The name of the object.
+     * @param pattern
+     * 			The object, at any of its phases.
+     * @param period
+     * 			The number of phases of the object: 1 for a still life.
+     * @param rule
+     * 			The rule that makes the object evolve.
+     *
+     * @return a new table that also contains <code>pattern</code>
+     *
+     * @throws IllegalArgumentException if <code>period</code> is not strictly positive
+     */
+    public KnownObjects with(String name, Pattern pattern, int period, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        if (period <= 0)
+            throw new IllegalArgumentException("The period must be strictly positive, got " + period);
+
+        Map<Fingerprint, String> extended = new HashMap<>(names);
+        int margin = period + 1;
+        Generation phase = new ImmutableGeneration(pattern.transformToOrigin(margin, margin).cells, pattern.width + 2 * margin, pattern.height + 2 * margin, rule);
+
+        for (int i = 0; i < period; ++i) {
+            extended.putIfAbsent(canonicalFingerprint(phase), name);
+            phase = phase.nextGeneration();
+        }
+        return new KnownObjects(extended);
+    }
+
+    /**
+     * @return the canonical fingerprint of all the alive cells of <code>generation</code>
+     */
+    private static Fingerprint canonicalFingerprint(Generation generation) {
+        long[] cells = new long[generation.nbOfCellsAlive()];
+        int[] size = {0};
+        generation.forEachAliveCell((x, y) -> cells[size[0]++] = PackedCoordinates.pack(x, y));
+        return CanonicalShape.of(cells, 0, size[0]);
+    }
+
+    /**
+     * Returns the name of the object which canonical fingerprint is <code>canonical</code>.
+     *
+     * @param canonical
+     * 			The canonical fingerprint of the object.
+     *
+     * @return the name of the object, or <code>null</code> if it is unknown
+     */
+    public String nameOf(Fingerprint canonical) {
+        return names.get(canonical);
+    }
+
+    /**
+     * Returns the number of phases known.
+     * @return the number of phases known
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Builds the default table on first use.
+     */
+    private static final class Defaults {
+
+        static final KnownObjects TABLE = create();
+
+        private static KnownObjects create() {
+            KnownObjects table = empty();
+
+            for (String[] stillLife : Arrays.asList(
+                    new String[] {"block", "oo\noo"},
+                    new String[] {"beehive", ".oo.\no..o\n.oo."},
+                    new String[] {"loaf", ".oo.\no..o\n.o.o\n..o."},
+                    new String[] {"boat", "oo.\no.o\n.o."},
+                    new String[] {"ship", "oo.\no.o\n.oo"},
+                    new String[] {"tub", ".o.\no.o\n.o."},
+                    new String[] {"pond", ".oo.\no..o\no..o\n.oo."},
+                    new String[] {"long boat", "oo..\no.o.\n.o.o\n..o."},
+                    new String[] {"barge", ".o..\no.o.\n.o.o\n..o."},
+                    new String[] {"mango", ".oo..\no..o.\n.o..o\n..oo."},
+                    new String[] {"eater 1", "oo..\no.o.\n..o.\n..oo"},
+                    new String[] {"aircraft carrier", "oo..\no..o\n..oo"}))
+                table = table.with(stillLife[0], Pattern.fromString(stillLife[1], 'o'), 1);
+
+            return table.with("blinker", Pattern.BLINKER, 2)
+                        .with("toad", Pattern.TOAD, 2)
+                        .with("beacon", Pattern.fromString("oo..\noo..\n..oo\n..oo", 'o'), 2)
+                        .with("glider", Pattern.GLIDER, 4)
+                        .with("lightweight spaceship", Pattern.fromString(".o..o\no....\no...o\noooo.", 'o'), 4);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Separates the alive cells of a generation into objects and identifies them.
+ *
+ * @author Emmanuel Chebbi
+ */
+package fr.kazejiyu.gameoflife.game.census;
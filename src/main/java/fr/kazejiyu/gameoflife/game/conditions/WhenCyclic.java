@@ -0,0 +1,210 @@
+package fr.kazejiyu.gameoflife.game.conditions;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.kazejiyu.gameoflife.game.Evolution;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+
+/**
+ * Aimed to end a game's evolution once it has entered a cycle, i.e. once the current
+ * generation has already been encountered.
+ * <br><br>
+ * Unlike {@link WhenRepeated}, this condition does not keep the generations but only
+ * their {@link Fingerprint}, and only for a bounded number of them:
+ * <ul>
+ * 	<li>the last <code>window</code> fingerprints are kept, so that a cycle which period
+ * 		is at most <code>window</code> is detected as soon as it repeats,</li>
+ * 	<li>longer cycles are detected by Brent's algorithm, which only keeps one fingerprint
+ * 		and detects a cycle at most twice its length after it has been entered.</li>
+ * </ul>
+ * Once a cycle has been detected, {@link #period()} and {@link #prePeriod()} tell which
+ * kind of object the world has become (e.g. a still life has a period of 1, a blinker
+ * a period of 2).
+ * <br><br>
+ * Generations are counted from the first one given to the condition. Since an {@link Evolution}
+ * checks its stop condition against every generation, even when it is sampled (see
+ * {@link Evolution#sampleEvery(int)}), periods are always counted in generations.
+ * Each instance keeps its own state: a new instance must be used for each evolution.
+ * 
+ * This classe's name has been chosen in order to fit well with 
+ * {@link Evolution#stop(java.util.function.Predicate)}'s syntax.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class WhenCyclic implements Condition {
+
+    /**
+     * The number of fingerprints kept by default.
+     */
+    public static final int DEFAULT_WINDOW = 1024;
+
+    /**
+     * The maximum number of fingerprints kept in {@link #recent}.
+     */
+    private final int window;
+
+    /**
+     * The fingerprints of the last generations, mapped to their index.
+     */
+    private final Map<Fingerprint, Long> recent = new LinkedHashMap<>();
+
+    /**
+     * The index of the last generation tested.
+     */
+    private long index = -1;
+
+    /**
+     * The fingerprint of the generation Brent's algorithm compares the next ones with.
+     */
+    private Fingerprint tortoise;
+
+    /**
+     * The index of the generation which fingerprint is {@link #tortoise}.
+     */
+    private long tortoiseIndex;
+
+    /**
+     * The number of generations after which {@link #tortoise} is moved to the current generation.
+     */
+    private long power = 1;
+
+    /**
+     * The period of the cycle, or -1 while no cycle has been detected.
+     */
+    private long period = -1;
+
+    /**
+     * The index of the first generation of the cycle, or -1 while no cycle has been detected.
+     */
+    private long prePeriod = -1;
+
+    /**
+     * Creates a new condition that keeps the last {@value #DEFAULT_WINDOW} fingerprints.
+     */
+    public WhenCyclic() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a new condition that keeps the last <code>window</code> fingerprints.
+     *
+     * @param window
+     * 			The number of fingerprints to keep. If 0, only Brent's algorithm is used.
+     *
+     * @throws IllegalArgumentException if <code>window</code> is negative
+     */
+    public WhenCyclic(int window) {
+        if (window < 0)
+            throw new IllegalArgumentException("The window must be positive, got " + window);
+
+        this.window = window;
+    }
+
+    /**
+     * @return whether {@code world} has already been encountered by this condition
+     */
+    @Override
+    public boolean test(Generation world) {
+        ++index;
+
+        if (period >= 0)
+            return true;
+
+        Fingerprint fingerprint = world.fingerprint();
+
+        Long seen = recent.get(fingerprint);
+        if (seen != null)
+            return cycleFound(index - seen, seen);
+
+        if (fingerprint.equals(tortoise))
+            return cycleFound(index - tortoiseIndex, tortoiseIndex);
+
+        remember(fingerprint);
+
+        if (tortoise == null || index - tortoiseIndex == power) {
+            if (tortoise != null)
+                power <<= 1;
+
+            tortoise = fingerprint;
+            tortoiseIndex = index;
+        }
+        return false;
+    }
+
+    private boolean cycleFound(long period, long prePeriod) {
+        this.period = period;
+        this.prePeriod = prePeriod;
+        recent.clear();
+        return true;
+    }
+
+    private void remember(Fingerprint fingerprint) {
+        if (window == 0)
+            return;
+
+        if (recent.size() == window) {
+            Iterator<Fingerprint> eldest = recent.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        recent.put(fingerprint, index);
+    }
+
+    /**
+     * Returns whether a cycle has been detected.
+     * @return whether a cycle has been detected
+     */
+    public boolean isCyclic() {
+        return period >= 0;
+    }
+
+    /**
+     * Returns the number of generations after which the world repeats itself.
+     * 
+     * @return the period of the cycle, or -1 if no cycle has been detected yet
+     */
+    public long period() {
+        return period;
+    }
+
+    /**
+     * Returns the index of the first generation of the cycle, i.e. the number of
+     * generations before the world started to repeat itself.
+     * <br><br>
+     * The value is exact when the period is at most the window of this condition;
+     * otherwise the cycle has been detected by Brent's algorithm, which does not keep
+     * enough fingerprints to find where it started: the value is then an upper bound.
+     * 
+     * @return the pre-period of the cycle, or -1 if no cycle has been detected yet
+     */
+    public long prePeriod() {
+        return prePeriod;
+    }
+}
@@ -42,7 +42,7 @@ public class WhenEmpty implements Condition {
 	 */
     @Override
     public boolean test(Generation world) {
-        return world.nbOfCellsAlive() == 0;
+        return world.population() == 0;
     }
     
 }
@@ -28,11 +28,17 @@ import java.util.HashSet;
 import java.util.Set;
 
 import fr.kazejiyu.gameoflife.game.Evolution;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
 import fr.kazejiyu.gameoflife.game.Generation;
 
 
 /**
  * Aimed to end a game's evolution if the current generation has already been encountered.
+ * <br><br>
+ * Each instance keeps its own history: a new instance must be used for each evolution.
+ * Generations that hold resources (see {@link Generation#holdsExternalResources()}), such
+ * as the ones stored in files or in other processes, are never copied: only their
+ * {@link Fingerprint} is kept, as {@link WhenCyclic} does.
  * 
  * This classe's name has been chosen in order to fit well with 
  * {@link Evolution#stop(java.util.function.Predicate)}'s syntax.
@@ -41,13 +47,25 @@ import fr.kazejiyu.gameoflife.game.Generation;
  */
 public class WhenRepeated implements Condition {
 	
-    private static Set <Generation> evolution = new HashSet<>();
+    /**
+     * The generations encountered so far by this condition.
+     * Not shared between instances, so that each evolution has its own history.
+     */
+    private final Set <Generation> evolution = new HashSet<>();
+
+    /**
+     * The fingerprints of the generations encountered so far that hold resources.
+     */
+    private final Set <Fingerprint> fingerprints = new HashSet<>();
 
     /**
      * @return whether an equivalent {@code World} has already been processed
      */
     @Override
     public boolean test(Generation world) {
-        return ! evolution.add(world);
+        if (world.holdsExternalResources())
+            return ! fingerprints.add(world.fingerprint());
+
+        return ! evolution.add(world.snapshot());
     }
 }
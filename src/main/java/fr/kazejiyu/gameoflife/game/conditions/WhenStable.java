@@ -25,10 +25,15 @@ package fr.kazejiyu.gameoflife.game.conditions;
  */
 
 import fr.kazejiyu.gameoflife.game.Evolution;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
 import fr.kazejiyu.gameoflife.game.Generation;
 
 /**
  * Aimed to end a game's evolution if the current generation is the same than the previous one.
+ * <br><br>
+ * Generations are compared by population and {@link Fingerprint} first. Generations that
+ * hold resources (see {@link Generation#holdsExternalResources()}), such as the ones stored
+ * in files or in other processes, are only compared that way, so that they are never copied.
  * 
  * This classe's name has been chosen in order to fit well with 
  * {@link Evolution#stop(java.util.function.Predicate)}'s syntax.
@@ -39,14 +44,28 @@ public class WhenStable implements Condition {
 
 	private Generation last = null;
 
+	private long lastPopulation;
+
+	private Fingerprint lastFingerprint = null;
+
 	/**
 	 * @return whether {@code world} is equivalent to the one given
 	 * 		   the last time this method has been called
 	 */
     @Override
     public boolean test(Generation world) {
-        boolean equals = world.equals(last);
-        last = world;
+        long population = world.population();
+        Fingerprint fingerprint = world.fingerprint();
+        Generation current = world.holdsExternalResources() ? null : world.snapshot();
+
+        boolean equals = lastFingerprint != null
+                      && population == lastPopulation
+                      && fingerprint.equals(lastFingerprint)
+                      && (current == null || current.equals(last));
+
+        last = current;
+        lastPopulation = population;
+        lastFingerprint = fingerprint;
 
         return equals;
     }
@@ -0,0 +1,65 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A skeletal implementation of {@link Generation} for the engines that
+ * address their cells through primitive coordinates.
+ * <br><br>
+ * The textual representation of the generation is the same as the one of
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration}.
+ *
+ * @author Emmanuel Chebbi
+ */
+public abstract class AbstractGeneration implements Generation {
+
+    @Override
+    public abstract boolean isAliveAt(int x, int y);
+
+    @Override
+    public boolean isAliveAt(Coordinates coord) {
+        return isAliveAt(coord.x(), coord.y());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int y = 0; y < rows(); y++) {
+            for (int x = 0; x < cols(); x++) {
+                if (isAliveAt(x, y))
+                    sb.append("o");
+                else
+                    sb.append(".");
+            }
+            if (y != rows() - 1)
+                sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the next state of a horizontal band of a {@link BitGrid}.
+ * <br><br>
+ * Bands are recursively split in halves until they are small enough to be
+ * computed sequentially. Each band only reads the row located right above it
+ * and the row located right below it from its neighbours, and only writes its
+ * own rows: the bands can hence be computed independently.
+ * <br><br>
+ * The result of the task is the number of cells alive within the band. When a fingerprint
+ * is maintained, each band toggles the keys of its own cells within its own bits, which are
+ * then merged with the ones of the other bands.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class BandStep extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The minimum number of words computed by a band, so that the cost of
+     * forking a task stays negligible.
+     */
+    private static final int MIN_WORDS_PER_BAND = 1 << 12;
+
+    /**
+     * The number of bands created per thread, so that the load is balanced
+     * when some threads are slower than the others.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    private final long[] src;
+
+    private final long[] dst;
+
+    private final int words;
+
+    private final int height;
+
+    private final int fromRow;
+
+    private final int toRow;
+
+    private final int bandHeight;
+
+    private final long lastMask;
+
+    private final int birth;
+
+    private final int survival;
+
+    /**
+     * The bits of the fingerprint updated by the band, or <code>null</code> if there is none.
+     */
+    private final long[] fingerprint;
+
+    private BandStep(long[] src, long[] dst, int words, int height, int fromRow, int toRow, int bandHeight, long lastMask, int birth, int survival, long[] fingerprint) {
+        this.src = src;
+        this.dst = dst;
+        this.words = words;
+        this.height = height;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.bandHeight = bandHeight;
+        this.lastMask = lastMask;
+        this.birth = birth;
+        this.survival = survival;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Computes the next state of <code>src</code> within <code>dst</code>, using the threads of <code>pool</code>,
+     * and toggles within <code>fingerprint</code> the keys of the cells that flip unless it is <code>null</code>.
+     *
+     * @return the number of cells alive within <code>dst</code>
+     *
+     * @see BitGrid#stepRows(long[], long[], int, int, int, int, long, int, int, long[])
+     */
+    static long stepAll(ForkJoinPool pool, long[] src, long[] dst, int words, int height, long lastMask, int birth, int survival, long[] fingerprint) {
+        int bandHeight = bandHeight(words, height, pool.getParallelism());
+
+        if (bandHeight >= height)
+            return BitGrid.stepRows(src, dst, words, height, 0, height, lastMask, birth, survival, fingerprint);
+
+        return pool.invoke(new BandStep(src, dst, words, height, 0, height, bandHeight, lastMask, birth, survival, fingerprint));
+    }
+
+    /**
+     * @return the number of rows computed sequentially by each band
+     */
+    static int bandHeight(int words, int height, int parallelism) {
+        int minRows = (MIN_WORDS_PER_BAND + words - 1) / Math.max(words, 1);
+        int balancedRows = height / (parallelism * BANDS_PER_THREAD);
+        return Math.max(1, Math.max(minRows, balancedRows));
+    }
+
+    @Override
+    protected Long compute() {
+        if (toRow - fromRow <= bandHeight)
+            return BitGrid.stepRows(src, dst, words, height, fromRow, toRow, lastMask, birth, survival, fingerprint);
+
+        int middle = (fromRow + toRow) >>> 1;
+        BandStep upper = new BandStep(src, dst, words, height, fromRow, middle, bandHeight, lastMask, birth, survival, fingerprint);
+        BandStep lower = new BandStep(src, dst, words, height, middle, toRow, bandHeight, lastMask, birth, survival,
+                                      fingerprint == null ? null : new long[2]);
+
+        upper.fork();
+        long population = lower.compute() + upper.join();
+
+        if (fingerprint != null) {
+            fingerprint[0] ^= lower.fingerprint[0];
+            fingerprint[1] ^= lower.fingerprint[1];
+        }
+        return population;
+    }
+}
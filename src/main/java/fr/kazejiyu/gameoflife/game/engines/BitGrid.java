@@ -0,0 +1,328 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+
+/**
+ * Low-level operations on worlds that store one cell per bit.
+ * <br><br>
+ * A grid is a <code>long[]</code> in which each row of the world takes
+ * {@link #wordsPerRow(int)} consecutive words. The cell located at <code>(x,y)</code>
+ * is stored in the bit <code>x % 64</code> of the word <code>y * wordsPerRow + x / 64</code>.
+ * Cells located outside of the grid are considered dead.
+ * <br><br>
+ * Next generations are computed with bitwise adders, 64 cells at a time. While doing
+ * so, the keys of the cells that flip can be toggled within the bits of a {@link Fingerprint},
+ * so that engines maintain their fingerprint without walking their alive cells.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class BitGrid {
+
+    /**
+     * Birth mask of {@link fr.kazejiyu.gameoflife.game.rules.Rule#GAME_OF_LIFE}.
+     */
+    private static final int LIFE_BIRTH = 1 << 3;
+
+    /**
+     * Survival mask of {@link fr.kazejiyu.gameoflife.game.rules.Rule#GAME_OF_LIFE}.
+     */
+    private static final int LIFE_SURVIVAL = 1 << 2 | 1 << 3;
+
+    private BitGrid() {
+        // utility class
+    }
+
+    /**
+     * @return the number of words required to store a row of <code>width</code> cells
+     */
+    public static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * @return the mask of the bits of the last word of a row that actually are within the world
+     */
+    public static long lastWordMask(int width) {
+        int remaining = width & 63;
+        return remaining == 0 ? -1L : (1L << remaining) - 1;
+    }
+
+    /**
+     * @return whether the cell located at <code>(x,y)</code> is alive
+     */
+    public static boolean get(long[] grid, int words, int x, int y) {
+        return (grid[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Makes the cell located at <code>(x,y)</code> alive.
+     */
+    public static void set(long[] grid, int words, int x, int y) {
+        grid[y * words + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive within <code>grid</code>, row by row.
+     */
+    public static void forEachAlive(long[] grid, int words, CellConsumer action) {
+        for (int i = 0; i < grid.length; ++i) {
+            long word = grid[i];
+            int y = i / words;
+            int offset = (i - y * words) << 6;
+
+            while (word != 0) {
+                action.accept(offset + Long.numberOfTrailingZeros(word), y);
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the number of cells alive within <code>grid</code>
+     */
+    public static long population(long[] grid) {
+        long population = 0;
+
+        for (long word : grid)
+            population += Long.bitCount(word);
+
+        return population;
+    }
+
+    /**
+     * Computes the next state of the rows <code>[fromRow, toRow)</code> of <code>src</code>
+     * and stores it in <code>dst</code>.
+     *
+     * @param src
+     * 			The current generation.
+     * @param dst
+     * 			The grid in which the next generation is written.
+     * @param words
+     * 			The number of words per row.
+     * @param height
+     * 			The number of rows of the grids.
+     * @param fromRow
+     * 			The first row to compute (inclusive).
+     * @param toRow
+     * 			The last row to compute (exclusive).
+     * @param lastMask
+     * 			The mask applied to the last word of each row.
+     * @param birth
+     * 			The birth mask of the rule.
+     * @param survival
+     * 			The survival mask of the rule.
+     *
+     * @return the number of cells alive within the computed rows
+     */
+    public static long stepRows(long[] src, long[] dst, int words, int height, int fromRow, int toRow, long lastMask, int birth, int survival) {
+        return stepRows(src, dst, words, height, fromRow, toRow, lastMask, birth, survival, null);
+    }
+
+    /**
+     * Computes the next state of the rows <code>[fromRow, toRow)</code> of <code>src</code>,
+     * stores it in <code>dst</code> and toggles within <code>fingerprint</code> the keys of
+     * the cells that flip.
+     *
+     * @param src
+     * 			The current generation.
+     * @param dst
+     * 			The grid in which the next generation is written.
+     * @param words
+     * 			The number of words per row.
+     * @param height
+     * 			The number of rows of the grids.
+     * @param fromRow
+     * 			The first row to compute (inclusive).
+     * @param toRow
+     * 			The last row to compute (exclusive).
+     * @param lastMask
+     * 			The mask applied to the last word of each row.
+     * @param birth
+     * 			The birth mask of the rule.
+     * @param survival
+     * 			The survival mask of the rule.
+     * @param fingerprint
+     * 			The bits of a fingerprint, as returned by {@link #bitsOf(Fingerprint)}.
+     * 			If <code>null</code>, no fingerprint is updated.
+     *
+     * @return the number of cells alive within the computed rows
+     */
+    public static long stepRows(long[] src, long[] dst, int words, int height, int fromRow, int toRow, long lastMask, int birth, int survival, long[] fingerprint) {
+        if (words == 0)
+            return 0;
+
+        long population = 0;
+
+        for (int y = fromRow; y < toRow; ++y) {
+            int row = y * words;
+            int above = row - words;
+            int below = row + words;
+            boolean hasAbove = y > 0;
+            boolean hasBelow = y < height - 1;
+
+            long nw = 0, n = hasAbove ? src[above] : 0;
+            long w = 0, c = src[row];
+            long sw = 0, s = hasBelow ? src[below] : 0;
+
+            for (int i = 0; i < words; ++i) {
+                boolean hasEast = i < words - 1;
+                long ne = hasAbove && hasEast ? src[above + i + 1] : 0;
+                long e = hasEast ? src[row + i + 1] : 0;
+                long se = hasBelow && hasEast ? src[below + i + 1] : 0;
+
+                long next = step(nw, n, ne, w, c, e, sw, s, se, birth, survival);
+                if (!hasEast)
+                    next &= lastMask;
+
+                dst[row + i] = next;
+                population += Long.bitCount(next);
+
+                if (fingerprint != null)
+                    toggle(fingerprint, c ^ next, i << 6, y);
+
+                nw = n; n = ne;
+                w = c; c = e;
+                sw = s; s = se;
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Toggles within <code>fingerprint</code> the keys of the cells that differ
+     * between <code>before</code> and <code>after</code>.
+     *
+     * @param before
+     * 			A grid.
+     * @param after
+     * 			A grid of the same size.
+     * @param words
+     * 			The number of words per row.
+     * @param fingerprint
+     * 			The bits of a fingerprint, as returned by {@link #bitsOf(Fingerprint)}.
+     */
+    public static void toggleFlipped(long[] before, long[] after, int words, long[] fingerprint) {
+        for (int i = 0; i < before.length; ++i) {
+            int y = i / words;
+            toggle(fingerprint, before[i] ^ after[i], (i - y * words) << 6, y);
+        }
+    }
+
+    /**
+     * Toggles within <code>fingerprint</code> the keys of the cells set in <code>flipped</code>,
+     * a word of the row <code>y</code> which bit 0 holds the cell located at <code>(x,y)</code>.
+     */
+    static void toggle(long[] fingerprint, long flipped, int x, int y) {
+        for (; flipped != 0; flipped &= flipped - 1) {
+            int col = x + Long.numberOfTrailingZeros(flipped);
+            fingerprint[0] ^= Fingerprint.highKey(col, y);
+            fingerprint[1] ^= Fingerprint.lowKey(col, y);
+        }
+    }
+
+    /**
+     * @return the bits of <code>fingerprint</code>, to be updated while stepping,
+     * 		   or <code>null</code> if <code>fingerprint</code> is <code>null</code>
+     */
+    public static long[] bitsOf(Fingerprint fingerprint) {
+        return fingerprint == null ? null : new long[] { fingerprint.high(), fingerprint.low() };
+    }
+
+    /**
+     * @return the fingerprint made of <code>bits</code>,
+     * 		   or <code>null</code> if <code>bits</code> is <code>null</code>
+     */
+    public static Fingerprint fingerprintOf(long[] bits) {
+        return bits == null ? null : Fingerprint.of(bits[0], bits[1]);
+    }
+
+    /**
+     * Computes the next state of the 64 cells stored in <code>c</code>.
+     * <br><br>
+     * Only the last bit of the western words and the first bit of the eastern
+     * words are taken into account.
+     *
+     * @return the next state of the cells stored in <code>c</code>
+     */
+    public static long step(long nw, long n, long ne, long w, long c, long e, long sw, long s, long se, int birth, int survival) {
+        // neighbours located on the west (x-1) and on the east (x+1) of each cell
+        long nWest = (n << 1) | (nw >>> 63), nEast = (n >>> 1) | (ne << 63);
+        long cWest = (c << 1) | (w >>> 63),  cEast = (c >>> 1) | (e << 63);
+        long sWest = (s << 1) | (sw >>> 63), sEast = (s >>> 1) | (se << 63);
+
+        // count the neighbours of each row with full adders
+        long north0 = nWest ^ n ^ nEast;
+        long north1 = (nWest & n) | (nEast & (nWest ^ n));
+        long south0 = sWest ^ s ^ sEast;
+        long south1 = (sWest & s) | (sEast & (sWest ^ s));
+        long middle0 = cWest ^ cEast;
+        long middle1 = cWest & cEast;
+
+        // sum the rows: bit0 + 2*bit1 + 4*bit2 + 8*bit3
+        long bit0 = north0 ^ south0 ^ middle0;
+        long carry0 = (north0 & south0) | (middle0 & (north0 ^ south0));
+
+        long twos = north1 ^ south1 ^ middle1;
+        long fours = (north1 & south1) | (middle1 & (north1 ^ south1));
+
+        long bit1 = twos ^ carry0;
+        long carry1 = twos & carry0;
+
+        long bit2 = fours ^ carry1;
+        long bit3 = fours & carry1;
+
+        return applyRule(bit0, bit1, bit2, bit3, c, birth, survival);
+    }
+
+    /**
+     * @return the next state of the cells <code>c</code> given their number of neighbours
+     */
+    private static long applyRule(long bit0, long bit1, long bit2, long bit3, long c, int birth, int survival) {
+        if (birth == LIFE_BIRTH && survival == LIFE_SURVIVAL)
+            return bit1 & ~bit2 & ~bit3 & (bit0 | c);
+
+        long next = 0;
+        int relevant = birth | survival;
+
+        for (int neighbours = 1; neighbours <= 8; ++neighbours) {
+            if ((relevant >>> neighbours & 1) == 0)
+                continue;
+
+            long matches = ((neighbours & 1) != 0 ? bit0 : ~bit0)
+                         & ((neighbours & 2) != 0 ? bit1 : ~bit1)
+                         & ((neighbours & 4) != 0 ? bit2 : ~bit2)
+                         & ((neighbours & 8) != 0 ? bit3 : ~bit3);
+
+            long born = (birth >>> neighbours & 1) != 0 ? ~c : 0;
+            long survives = (survival >>> neighbours & 1) != 0 ? c : 0;
+
+            next |= matches & (born | survives);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,92 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Builds a {@link BitPackedGeneration} by setting the bits of its cells directly.
+ * <br><br>
+ * Each row is stored in its own words: distinct rows may hence be filled concurrently.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class BitPackedBuilder implements GenerationBuilder {
+
+    private final long[] cells;
+
+    private final int width;
+
+    private final int height;
+
+    private final int words;
+
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The pool given to the generation, or <code>null</code>.
+     */
+    private final ForkJoinPool pool;
+
+    private boolean built = false;
+
+    BitPackedBuilder(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, ForkJoinPool pool) {
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.cells = new long[words * height];
+        this.rule = Objects.requireNonNull(rule);
+        this.pool = pool;
+    }
+
+    @Override
+    public void accept(int x, int y) {
+        if (built)
+            throw new IllegalStateException("The generation has already been built");
+
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return;
+
+        cells[y * words + (x >>> 6)] |= 1L << x;
+    }
+
+    @Override
+    public boolean acceptsConcurrentRows() {
+        return true;
+    }
+
+    @Override
+    public Generation build() {
+        built = true;
+        return new BitPackedGeneration(cells, width, height, rule, LifeLikeRule.of(rule), pool, BitGrid.population(cells));
+    }
+}
@@ -0,0 +1,336 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * An immutable implementation of {@link Generation} that stores one bit per cell.
+ * <br><br>
+ * Each row of the world is packed into <code>long</code>s and next generations
+ * are computed 64 cells at a time with bitwise operations. Hence, the memory
+ * footprint and the time required to compute the next generation only depend on
+ * the size of the world, not on its population.
+ * <br><br>
+ * When created with a {@link ForkJoinPool}, the world is split into horizontal
+ * bands which next states are computed concurrently by the threads of the pool.
+ * The result is the same than when computed sequentially.
+ * <br><br>
+ * {@link #advance(long)} computes several generations per pass over the memory,
+ * which is much faster than calling {@link #nextGeneration()} repeatedly on worlds
+ * larger than the cache of the processor.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see BitGrid
+ */
+public final class BitPackedGeneration extends AbstractGeneration {
+
+    /**
+     * The cells of the generation, one bit per cell.
+     */
+    private final long[] cells;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of words used to store a row.
+     */
+    private final int words;
+
+    /**
+     * The number of cells alive.
+     */
+    private final int population;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * The pool used to compute next generations, or <code>null</code>
+     * if they are computed by the calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The fingerprint of the generation. It is derived from the fingerprint of the previous
+     * generation while stepping when the latter is known, and computed on first use otherwise.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public BitPackedGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public BitPackedGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public BitPackedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this(aliveCells, width, height, rule, null);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>, which next generations are computed
+     * by the threads of <code>pool</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param pool
+     * 			The pool used to compute next generations.
+     * 			If <code>null</code>, next generations are computed by the calling thread.
+     */
+    public BitPackedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, ForkJoinPool pool) {
+        this(pack(aliveCells, width, height), width, height, Objects.requireNonNull(rule), LifeLikeRule.of(rule), pool);
+    }
+
+    private BitPackedGeneration(long[] cells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, LifeLikeRule masks, ForkJoinPool pool) {
+        this(cells, width, height, rule, masks, pool, BitGrid.population(cells));
+    }
+
+    BitPackedGeneration(long[] cells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, LifeLikeRule masks, ForkJoinPool pool, long population) {
+        this.cells = cells;
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.rule = rule;
+        this.masks = masks;
+        this.pool = pool;
+        this.population = (int) population;
+    }
+
+    /**
+     * Creates a generation which fingerprint is already known, e.g. the snapshot of a mutable generation.
+     * If <code>fingerprint</code> is <code>null</code>, it is computed on first use.
+     */
+    BitPackedGeneration(long[] cells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, LifeLikeRule masks, ForkJoinPool pool, long population, Fingerprint fingerprint) {
+        this(cells, width, height, rule, masks, pool, population);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return a grid in which the bits corresponding to <code>aliveCells</code> are set
+     */
+    private static long[] pack(Collection<Coordinates> aliveCells, int width, int height) {
+        int words = BitGrid.wordsPerRow(width);
+        long[] cells = new long[words * height];
+
+        for (Coordinates cell : aliveCells)
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height)
+                BitGrid.set(cells, words, cell.x(), cell.y());
+
+        return cells;
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return BitGrid.get(cells, words, x, y);
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        BitGrid.forEachAlive(cells, words, action);
+    }
+
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        BitGrid.forEachAlive(cells, words, action);
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
+    @Override
+    public BitPackedGeneration nextGeneration() {
+        long[] next = new long[cells.length];
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        long lastMask = BitGrid.lastWordMask(width);
+        long nextPopulation = pool == null
+                            ? BitGrid.stepRows(cells, next, words, height, 0, height, lastMask, masks.birthMask(), masks.survivalMask(), nextFingerprint)
+                            : BandStep.stepAll(pool, cells, next, words, height, lastMask, masks.birthMask(), masks.survivalMask(), nextFingerprint);
+
+        return new BitPackedGeneration(next, width, height, rule, masks, pool, nextPopulation, BitGrid.fingerprintOf(nextFingerprint));
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one.
+     * <br><br>
+     * Intermediate generations are not created: the world is split into tiles that fit
+     * in the cache, and each tile is computed several generations ahead before moving
+     * on to the next one. Hence the world is only read from the memory once every
+     * {@value TemporalBlocking#DEPTH} generations.
+     *
+     * @return the generation that comes <code>generations</code> generations after this one
+     *
+     * @see TemporalBlocking
+     */
+    @Override
+    public BitPackedGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        if (generations == 0)
+            return this;
+
+        if (generations == 1)
+            return nextGeneration();
+
+        long[] reached = TemporalBlocking.advance(cells, new long[cells.length], new long[cells.length],
+                                                  words, height, BitGrid.lastWordMask(width),
+                                                  masks.birthMask(), masks.survivalMask(), generations, pool);
+
+        long[] reachedFingerprint = BitGrid.bitsOf(fingerprint);
+        if (reachedFingerprint != null)
+            BitGrid.toggleFlipped(cells, reached, words, reachedFingerprint);
+
+        return new BitPackedGeneration(reached, width, height, rule, masks, pool, BitGrid.population(reached), BitGrid.fingerprintOf(reachedFingerprint));
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof BitPackedGeneration))
+            return false;
+
+        BitPackedGeneration other = (BitPackedGeneration) obj;
+        return width == other.width && height == other.height
+            && population == other.population
+            && rule.equals(other.rule)
+            && fingerprint().equals(other.fingerprint())
+            && Arrays.equals(cells, other.cells);
+    }
+}
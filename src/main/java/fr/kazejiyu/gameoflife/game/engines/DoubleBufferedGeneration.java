@@ -0,0 +1,289 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A mutable implementation of {@link Generation} that stores one bit per cell
+ * within two preallocated buffers.
+ * <br><br>
+ * {@link #nextGeneration()} computes the next state of the front buffer into
+ * the back buffer, then swaps them and returns the current instance. Hence,
+ * once created, this generation never allocates memory.
+ * <br><br>
+ * Since the instance changes at each generation, the ones that need to keep
+ * a generation must call {@link #snapshot()}, which returns an immutable copy
+ * of its current state. For the same reason, this generation must not be used
+ * as the key of a map nor be stored in a set.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see BitGrid
+ */
+public final class DoubleBufferedGeneration extends AbstractGeneration {
+
+    /**
+     * The cells of the current generation, one bit per cell.
+     */
+    private long[] front;
+
+    /**
+     * The buffer in which the next generation is computed.
+     */
+    private long[] back;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of words used to store a row.
+     */
+    private final int words;
+
+    /**
+     * The mask applied to the last word of each row.
+     */
+    private final long lastMask;
+
+    /**
+     * The number of cells alive.
+     */
+    private long population;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * The fingerprint of the current generation. Once computed, it is updated while stepping
+     * from the cells that flip.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public DoubleBufferedGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public DoubleBufferedGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public DoubleBufferedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.lastMask = BitGrid.lastWordMask(width);
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+        this.front = new long[words * height];
+        this.back = new long[words * height];
+
+        for (Coordinates cell : aliveCells)
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height)
+                BitGrid.set(front, words, cell.x(), cell.y());
+
+        this.population = BitGrid.population(front);
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return (int) population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return BitGrid.get(front, words, x, y);
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        BitGrid.forEachAlive(front, words, action);
+    }
+
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        BitGrid.forEachAlive(front, words, action);
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
+    /**
+     * Computes the next generation in place.
+     *
+     * @return the current instance, updated to the next generation
+     */
+    @Override
+    public DoubleBufferedGeneration nextGeneration() {
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        population = BitGrid.stepRows(front, back, words, height, 0, height, lastMask, masks.birthMask(), masks.survivalMask(), nextFingerprint);
+        fingerprint = BitGrid.fingerprintOf(nextFingerprint);
+
+        long[] swap = front;
+        front = back;
+        back = swap;
+
+        return this;
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one in place.
+     *
+     * @return the current instance, updated to the reached generation
+     */
+    @Override
+    public DoubleBufferedGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        for (long i = 0; i < generations; ++i)
+            nextGeneration();
+
+        return this;
+    }
+
+    /**
+     * Returns an immutable copy of the current state of the world.
+     * <br><br>
+     * The copy evolves exactly as this generation does.
+     *
+     * @return an immutable copy of the current state of the world
+     */
+    @Override
+    public BitPackedGeneration snapshot() {
+        return new BitPackedGeneration(front.clone(), width, height, rule, masks, null, population, fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof DoubleBufferedGeneration))
+            return false;
+
+        DoubleBufferedGeneration other = (DoubleBufferedGeneration) obj;
+        return width == other.width && height == other.height
+            && population == other.population
+            && rule.equals(other.rule)
+            && fingerprint().equals(other.fingerprint())
+            && Arrays.equals(front, other.front);
+    }
+}
@@ -0,0 +1,322 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * The engines that can be used to compute the evolution of a world.
+ * <br><br>
+ * Except for {@link #IMMUTABLE}, engines only follow life-like rules: creating a generation
+ * with another rule throws an {@link IllegalArgumentException} (see
+ * {@link fr.kazejiyu.gameoflife.game.rules.LifeLikeRule#of(BiPredicate)}).
+ *
+ * @author Emmanuel Chebbi
+ */
+public enum Engine implements GenerationFactory {
+
+    /**
+     * Stores the cells alive within a set and computes next generations from
+     * their neighbourhood.
+     * <br><br>
+     * Well suited for small or sparse worlds.
+     *
+     * @see ImmutableGeneration
+     */
+    IMMUTABLE() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new ImmutableGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores one bit per cell and computes 64 cells at a time.
+     * <br><br>
+     * Well suited for large and dense worlds.
+     *
+     * @see BitPackedGeneration
+     */
+    BIT_PACKED() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new BitPackedGeneration(aliveCells, width, height, rule);
+        }
+
+        @Override
+        public GenerationBuilder builder(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new BitPackedBuilder(width, height, rule, null);
+        }
+    },
+
+    /**
+     * Stores one bit per cell and computes several words at once with the Vector API,
+     * taking advantage of the SIMD instructions of the processor (e.g. AVX2 or AVX-512).
+     * <br><br>
+     * Requires the engine to be compiled with a JDK 16+ and the <code>jdk.incubator.vector</code>
+     * module to be added at runtime; falls back to {@link #BIT_PACKED} otherwise.
+     * Well suited for large and dense worlds that fit in the cache of the processor.
+     *
+     * @see #isVectorApiAvailable()
+     */
+    VECTOR() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return VectorSupport.create(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores one bit per cell and computes horizontal bands of the world concurrently,
+     * using the common {@link ForkJoinPool}.
+     * <br><br>
+     * Well suited for huge and dense worlds.
+     *
+     * @see BitPackedGeneration
+     * @see #parallel(int)
+     */
+    PARALLEL() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new BitPackedGeneration(aliveCells, width, height, rule, ForkJoinPool.commonPool());
+        }
+
+        @Override
+        public GenerationBuilder builder(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new BitPackedBuilder(width, height, rule, ForkJoinPool.commonPool());
+        }
+    },
+
+    /**
+     * Stores one bit per cell within two buffers that are swapped at each generation.
+     * The generation is mutable and never allocates memory once created.
+     * <br><br>
+     * Well suited for long runs on large and dense worlds.
+     *
+     * @see DoubleBufferedGeneration
+     */
+    DOUBLE_BUFFERED() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new DoubleBufferedGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores one bit per cell and computes the next state of 2x2 blocks of cells
+     * with a table precomputed for the rule.
+     * <br><br>
+     * Well suited for medium-sized worlds of medium density.
+     *
+     * @see LookupTableGeneration
+     */
+    LOOKUP_TABLE() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new LookupTableGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores one bit per cell within memory-mapped files, created in the default
+     * temporary-file directory, and computes next generations row after row.
+     * The generation is mutable and should be closed once useless.
+     * <br><br>
+     * Well suited for worlds larger than the heap.
+     *
+     * @see MappedGeneration
+     * @see #mapped(Path)
+     */
+    MAPPED() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new MappedGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores the state and the number of alive neighbours of each cell in a byte,
+     * and only evaluates the cells located around the ones that flipped during the
+     * previous generation. The generation is mutable.
+     * <br><br>
+     * Well suited for worlds that are mostly stable.
+     *
+     * @see IncrementalGeneration
+     */
+    INCREMENTAL() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new IncrementalGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Stores the coordinates of the cells alive, packed into primitive collections.
+     * <br><br>
+     * Well suited for huge and sparse worlds.
+     *
+     * @see SparseGeneration
+     */
+    SPARSE() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new SparseGeneration(aliveCells, width, height, rule);
+        }
+    },
+
+    /**
+     * Splits the world into tiles of 64x64 cells and only computes the tiles
+     * that changed during the previous generation, or that border such a tile.
+     * <br><br>
+     * Well suited for large worlds mostly made of still lifes and empty space.
+     *
+     * @see TiledGeneration
+     */
+    TILED() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new TiledGeneration(aliveCells, width, height, rule, true);
+        }
+    },
+
+    /**
+     * Same as {@link #TILED}, but the world is unbounded: tiles are allocated
+     * as the patterns grow beyond the observed area.
+     *
+     * @see TiledGeneration
+     */
+    TILED_UNBOUNDED() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new TiledGeneration(aliveCells, width, height, rule, false);
+        }
+    },
+
+    /**
+     * Stores the world as a memoized quadtree, using the HashLife algorithm.
+     * <br><br>
+     * Well suited for highly regular patterns that have to evolve for a very large
+     * number of generations. The world is unbounded.
+     *
+     * @see HashLifeGeneration
+     * @see #hashLife(int)
+     */
+    HASHLIFE() {
+        @Override
+        public Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+            return new HashLifeGeneration(aliveCells, width, height, rule);
+        }
+    };
+
+    /**
+     * Returns whether {@link #VECTOR} actually uses the Vector API.
+     * 
+     * @return whether {@link #VECTOR} actually uses the Vector API
+     */
+    public static boolean isVectorApiAvailable() {
+        return VectorSupport.isAvailable();
+    }
+
+    /**
+     * Returns a factory that creates generations stored in memory-mapped files
+     * located within <code>directory</code>.
+     *
+     * @param directory
+     * 			The directory in which the files are created.
+     *
+     * @return a factory that creates {@link MappedGeneration}s
+     *
+     * @see #MAPPED
+     */
+    public static GenerationFactory mapped(Path directory) {
+        return (aliveCells, width, height, rule) -> new MappedGeneration(aliveCells, width, height, rule, directory);
+    }
+
+    /**
+     * Returns a factory that creates generations based on the HashLife algorithm
+     * which cache is bounded to <code>maxNodes</code> nodes.
+     *
+     * @param maxNodes
+     * 			The number of nodes above which the cache is garbage collected.
+     *
+     * @return a factory that creates {@link HashLifeGeneration}s
+     *
+     * @see #HASHLIFE
+     */
+    public static GenerationFactory hashLife(int maxNodes) {
+        return (aliveCells, width, height, rule) -> new HashLifeGeneration(aliveCells, width, height, rule, maxNodes);
+    }
+
+    /**
+     * Returns a factory that creates generations which cells are split between
+     * <code>shards</code> worker processes launched on the local machine.
+     * <br><br>
+     * Each generation created by the factory launches its own workers, and must
+     * be closed once useless in order to stop them.
+     *
+     * @param shards
+     * 			The number of worker processes. Must be strictly positive.
+     *
+     * @return a factory that creates {@link ShardedGeneration}s
+     *
+     * @throws IllegalArgumentException if <code>shards</code> is not strictly positive
+     *
+     * @see ShardCoordinator
+     */
+    public static GenerationFactory sharded(int shards) {
+        if (shards < 1)
+            throw new IllegalArgumentException("The number of shards must be strictly positive, got " + shards);
+
+        return (aliveCells, width, height, rule) -> new ShardedGeneration(aliveCells, width, height, rule, shards);
+    }
+
+    /**
+     * Returns a factory that creates bit-packed generations which next generations
+     * are computed by <code>parallelism</code> threads.
+     * <br><br>
+     * All the generations created by the factory share the same pool of threads.
+     *
+     * @param parallelism
+     * 			The number of threads used to compute next generations. Must be strictly positive.
+     *
+     * @return a factory that creates {@link BitPackedGeneration}s computed concurrently
+     *
+     * @throws IllegalArgumentException if <code>parallelism</code> is not strictly positive
+     *
+     * @see #PARALLEL
+     */
+    public static GenerationFactory parallel(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        return (aliveCells, width, height, rule) -> new BitPackedGeneration(aliveCells, width, height, rule, pool);
+    }
+}
@@ -0,0 +1,74 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Generation;
+
+/**
+ * Creates a {@link Generation} from its alive cells, given one at a time.
+ * <br><br>
+ * Unlike {@link GenerationFactory#create}, a builder does not require the cells to be
+ * gathered into a collection first: engines may store each cell straight into their own
+ * representation, so that huge worlds can be loaded from a stream.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see GenerationFactory#builder(int, int, java.util.function.BiPredicate)
+ */
+public interface GenerationBuilder extends CellConsumer {
+
+    /**
+     * Makes the cell located at <code>(x,y)</code> alive.
+     * Cells located outside of the world are ignored.
+     *
+     * @param x
+     * 			The col of the cell.
+     * @param y
+     * 			The row of the cell.
+     */
+    @Override
+    void accept(int x, int y);
+
+    /**
+     * Returns whether several threads may call {@link #accept(int, int)} concurrently,
+     * provided that each row is only filled by one of them.
+     * <br><br>
+     * Builders are not thread-safe by default.
+     *
+     * @return whether distinct rows may be filled concurrently
+     */
+    default boolean acceptsConcurrentRows() {
+        return false;
+    }
+
+    /**
+     * Returns the generation made of the cells accepted so far.
+     * The builder must not be used anymore afterwards.
+     *
+     * @return the generation made of the cells accepted so far
+     */
+    Generation build();
+}
@@ -0,0 +1,100 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Evolution;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Creates the first {@link Generation} of a world.
+ * <br><br>
+ * This interface makes possible to choose how a world is represented in memory
+ * and how its next generations are computed.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see Engine
+ * @see Evolution#useEngine(GenerationFactory)
+ */
+@FunctionalInterface
+public interface GenerationFactory {
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     *
+     * @return the first generation of the world
+     */
+    Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule);
+
+    /**
+     * Returns a builder that creates a new generation from the cells it is given.
+     * <br><br>
+     * The default implementation gathers the cells into a collection, then calls
+     * {@link #create(Collection, int, int, BiPredicate)}; engines should override it
+     * to store the cells straight into their own representation.
+     *
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     *
+     * @return a builder of the first generation of the world
+     */
+    default GenerationBuilder builder(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        Collection<Coordinates> cells = new ArrayList<>();
+
+        return new GenerationBuilder() {
+
+            @Override
+            public void accept(int x, int y) {
+                if (0 <= x && x < width && 0 <= y && y < height)
+                    cells.add(Coordinates.of(x, y));
+            }
+
+            @Override
+            public Generation build() {
+                return create(cells, width, height, rule);
+            }
+        };
+    }
+}
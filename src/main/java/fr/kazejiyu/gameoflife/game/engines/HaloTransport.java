@@ -0,0 +1,62 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Exchanges the boundary rows of a shard with the shards located above and below it.
+ * <br><br>
+ * The cells of a shard are stored as a {@link BitGrid} which first and last rows are
+ * halos: they hold a copy of the last row of the shard above and of the first row of
+ * the shard below, which is all a shard needs to compute its next generation.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see SocketHaloTransport
+ * @see ShardWorker
+ */
+public interface HaloTransport extends Closeable {
+
+    /**
+     * Sends the first and the last rows of a shard to its neighbours, then fills
+     * its halos with their boundary rows. Halos located beyond the edges of the
+     * world are cleared.
+     * <br><br>
+     * Blocks until both halos have been received.
+     *
+     * @param grid
+     * 			The cells of the shard: <code>rows + 2</code> rows of <code>words</code> words,
+     * 			the first and the last ones being the halos.
+     * @param words
+     * 			The number of words per row.
+     * @param rows
+     * 			The number of rows owned by the shard, halos excluded.
+     *
+     * @throws IOException if the rows cannot be exchanged
+     */
+    void exchange(long[] grid, int words, int rows) throws IOException;
+}
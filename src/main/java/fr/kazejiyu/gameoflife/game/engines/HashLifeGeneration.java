@@ -0,0 +1,1007 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * An implementation of {@link Generation} based on Gosper's HashLife algorithm.
+ * <br><br>
+ * The world is stored as a quadtree whose identical subtrees are shared, and the
+ * evolution of each subtree is memoized. Hence, highly regular patterns can be
+ * advanced by billions of generations at once thanks to {@link #advance(long)}.
+ * <br><br>
+ * Unlike the other engines, HashLife simulates an <b>unbounded</b> world: cells
+ * keep on living outside of the <code>cols() * rows()</code> area, which only
+ * defines the part of the world that is observed through {@link #isAliveAt(int, int)},
+ * {@link #nbOfCellsAlive()} and {@link #toString()}.
+ * <br><br>
+ * The generations computed from a same initial generation share a cache of nodes.
+ * The size of this cache is bounded, even while a single jump is computed: once it
+ * contains more than a given number of nodes, the memoized results are dropped and only
+ * the nodes of the current generation are kept. The nodes of the other generations are
+ * then brought back into the cache when these generations are advanced. The generations
+ * must hence not be evolved concurrently.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class HashLifeGeneration extends AbstractGeneration {
+
+    /**
+     * The default maximum number of nodes kept in the cache.
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 21;
+
+    /**
+     * The nodes and the results shared by the successive generations.
+     */
+    private final Universe universe;
+
+    /**
+     * The quadtree that contains the cells of the generation.
+     */
+    private final Node root;
+
+    /**
+     * The column of the upper left cell of {@link #root}.
+     */
+    private final long originX;
+
+    /**
+     * The row of the upper left cell of {@link #root}.
+     */
+    private final long originY;
+
+    /**
+     * The width of the observed area.
+     */
+    private final int width;
+
+    /**
+     * The height of the observed area.
+     */
+    private final int height;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The number of cells alive within the observed area, computed lazily.
+     */
+    private long population = -1;
+
+    /**
+     * The fingerprint of the cells alive within the observed area, computed lazily.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public HashLifeGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the observed area.
+     * @param height
+     * 			The height of the observed area.
+     */
+    public HashLifeGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the observed area.
+     * @param height
+     * 			The height of the observed area.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public HashLifeGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this(aliveCells, width, height, rule, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the observed area.
+     * @param height
+     * 			The height of the observed area.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param maxNodes
+     * 			The number of nodes above which the cache is garbage collected.
+     */
+    public HashLifeGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, int maxNodes) {
+        this.universe = new Universe(LifeLikeRule.of(Objects.requireNonNull(rule)), maxNodes);
+        this.width = width;
+        this.height = height;
+        this.rule = rule;
+
+        long minX = 0, minY = 0, maxX = Math.max(width, height), maxY = maxX;
+
+        for (Coordinates cell : aliveCells) {
+            minX = Math.min(minX, cell.x());
+            minY = Math.min(minY, cell.y());
+            maxX = Math.max(maxX, cell.x() + 1L);
+            maxY = Math.max(maxY, cell.y() + 1L);
+        }
+
+        int level = 3;
+        while ((1L << level) < Math.max(maxX - minX, maxY - minY))
+            ++level;
+
+        Node tree = universe.empty(level);
+        for (Coordinates cell : aliveCells)
+            tree = universe.setAlive(tree, cell.x() - minX, cell.y() - minY);
+
+        this.root = tree;
+        this.originX = minX;
+        this.originY = minY;
+    }
+
+    private HashLifeGeneration(HashLifeGeneration previous, Node root, long originX, long originY) {
+        this(previous.universe, root, originX, originY, previous.width, previous.height, previous.rule);
+    }
+
+    /**
+     * Creates a generation which quadtree has already been built within <code>universe</code>.
+     */
+    HashLifeGeneration(Universe universe, Node root, long originX, long originY, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this.universe = universe;
+        this.width = width;
+        this.height = height;
+        this.rule = rule;
+        this.root = root;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /**
+     * Reads the generation stored in a macrocell file, as written by Golly.
+     * <br><br>
+     * The quadtree of the file is rebuilt node by node: the cells are never enumerated, so
+     * that the time and the memory required only depend on the number of distinct nodes.
+     * The cell <code>(0,0)</code> of the file becomes the center of the observed area.
+     *
+     * @param file
+     * 			The macrocell file to read.
+     * @param width
+     * 			The width of the observed area.
+     * @param height
+     * 			The height of the observed area.
+     *
+     * @return the generation stored in <code>file</code>
+     *
+     * @throws IOException if the file cannot be read or is not a valid macrocell file
+     *
+     * @see #fromMacrocell(ReadableByteChannel, int, int, int)
+     * @see #writeMacrocell(Path)
+     */
+    public static HashLifeGeneration fromMacrocell(Path file, int width, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return fromMacrocell(channel, width, height, DEFAULT_MAX_NODES);
+        }
+    }
+
+    /**
+     * Reads a generation stored in the macrocell format from <code>source</code>.
+     * <br><br>
+     * The generation follows the rule given by the <code>#R</code> line of the file,
+     * or {@link Rule#GAME_OF_LIFE} if there is none.
+     *
+     * @param source
+     * 			The channel to read. It is not closed.
+     * @param width
+     * 			The width of the observed area.
+     * @param height
+     * 			The height of the observed area.
+     * @param maxNodes
+     * 			The number of nodes above which the cache is garbage collected.
+     *
+     * @return the generation read from <code>source</code>
+     *
+     * @throws IOException if the channel cannot be read or does not contain a valid macrocell pattern
+     */
+    public static HashLifeGeneration fromMacrocell(ReadableByteChannel source, int width, int height, int maxNodes) throws IOException {
+        return Macrocell.read(source, width, height, maxNodes);
+    }
+
+    /**
+     * Writes this generation into <code>file</code>, in the macrocell format.
+     *
+     * @param file
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     *
+     * @throws IOException if the file cannot be written
+     *
+     * @see #writeMacrocell(WritableByteChannel)
+     */
+    public void writeMacrocell(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeMacrocell(channel);
+        }
+    }
+
+    /**
+     * Writes this generation into <code>target</code>, in the macrocell format.
+     * <br><br>
+     * Each distinct node of the quadtree is written once, so that the size of the file
+     * and the time required depend on the structure of the pattern rather than on its
+     * population. The whole world is written, including the cells located outside of the
+     * observed area; the center of the observed area becomes the cell <code>(0,0)</code>
+     * of the file.
+     *
+     * @param target
+     * 			The channel to write. It is not closed.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void writeMacrocell(WritableByteChannel target) throws IOException {
+        Macrocell.write(universe, root, originX - width / 2, originY - height / 2, LifeLikeRule.of(rule), target);
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells alive within the observed area.
+     * @return the number of cells alive within the observed area
+     * @throws ArithmeticException if more than {@link Integer#MAX_VALUE} cells are alive within the observed area
+     * @see #population()
+     */
+    @Override
+    public int nbOfCellsAlive() {
+        return Math.toIntExact(population());
+    }
+
+    /**
+     * Returns the number of cells alive within the observed area.
+     * @return the number of cells alive within the observed area
+     * @see #totalPopulation()
+     */
+    @Override
+    public long population() {
+        if (population < 0)
+            population = count(root, originX, originY);
+
+        return population;
+    }
+
+    /**
+     * Returns the number of cells alive in the whole world, including the ones
+     * located outside of the observed area.
+     * @return the number of cells alive in the whole world
+     */
+    public long totalPopulation() {
+        return root.population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return isAliveOnPlane(x, y);
+    }
+
+    /**
+     * @return whether the cell located at <code>(x,y)</code> is alive, even if it lies outside of the observed area
+     */
+    private boolean isAliveOnPlane(long x, long y) {
+        long relX = x - originX;
+        long relY = y - originY;
+        long size = 1L << root.level;
+
+        if (relX < 0 || relX >= size || relY < 0 || relY >= size)
+            return false;
+
+        Node node = root;
+        while (node.level > 0) {
+            long half = 1L << (node.level - 1);
+            boolean east = relX >= half;
+            boolean south = relY >= half;
+
+            node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+            relX -= east ? half : 0;
+            relY -= south ? half : 0;
+        }
+        return node.population != 0;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive within the observed area,
+     * skipping the empty nodes of the quadtree.
+     */
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        forEachAliveCell(root, originX, originY, action);
+    }
+
+    /**
+     * Performs <code>action</code> for each cell of <code>node</code>, located at <code>(x,y)</code>,
+     * that is alive within the observed area.
+     */
+    private void forEachAliveCell(Node node, long x, long y, CellConsumer action) {
+        long size = 1L << node.level;
+
+        if (node.population == 0 || x >= width || y >= height || x + size <= 0 || y + size <= 0)
+            return;
+
+        if (node.level == 0) {
+            action.accept((int) x, (int) y);
+            return;
+        }
+
+        long half = size >> 1;
+        forEachAliveCell(node.nw, x, y, action);
+        forEachAliveCell(node.ne, x + half, y, action);
+        forEachAliveCell(node.sw, x, y + half, action);
+        forEachAliveCell(node.se, x + half, y + half, action);
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive within the observed area, row by row.
+     * <br><br>
+     * The quadtree is walked one horizontal strip at a time: the non-empty nodes of a strip
+     * are split into the strip made of their northern children, then into the one made of
+     * their southern children, each of them sorted from left to right. Since only the nodes
+     * that overlap the observed area are kept, a strip never holds more nodes than there are
+     * columns within the observed area.
+     */
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        Node[] strip = new Node[1];
+        long[] lefts = new long[1];
+        forEachAliveCellInRowOrder(strip, lefts, keep(strip, lefts, 0, root, originX), originY, action);
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive within the strip made of the <code>count</code>
+     * first <code>nodes</code>, whose top is located at <code>y</code> and whose left sides are located
+     * at <code>lefts</code>.
+     */
+    private void forEachAliveCellInRowOrder(Node[] nodes, long[] lefts, int count, long y, CellConsumer action) {
+        if (count == 0 || y >= height || y + (1L << nodes[0].level) <= 0)
+            return;
+
+        if (nodes[0].level == 0) {
+            for (int i = 0; i < count; ++i)
+                action.accept((int) lefts[i], (int) y);
+            return;
+        }
+
+        long half = 1L << (nodes[0].level - 1);
+        Node[] children = new Node[2 * count];
+        long[] childLefts = new long[2 * count];
+
+        int north = 0;
+        for (int i = 0; i < count; ++i) {
+            north = keep(children, childLefts, north, nodes[i].nw, lefts[i]);
+            north = keep(children, childLefts, north, nodes[i].ne, lefts[i] + half);
+        }
+        forEachAliveCellInRowOrder(children, childLefts, north, y, action);
+
+        int south = 0;
+        for (int i = 0; i < count; ++i) {
+            south = keep(children, childLefts, south, nodes[i].sw, lefts[i]);
+            south = keep(children, childLefts, south, nodes[i].se, lefts[i] + half);
+        }
+        forEachAliveCellInRowOrder(children, childLefts, south, y + half, action);
+    }
+
+    /**
+     * Appends <code>node</code>, located at <code>left</code>, to the <code>count</code> first <code>nodes</code>
+     * if it is not empty and overlaps the columns of the observed area.
+     *
+     * @return the number of nodes kept
+     */
+    private int keep(Node[] nodes, long[] lefts, int count, Node node, long left) {
+        if (node.population == 0 || left >= width || left + (1L << node.level) <= 0)
+            return count;
+
+        nodes[count] = node;
+        lefts[count] = left;
+        return count + 1;
+    }
+
+    /**
+     * Returns the fingerprint of the cells alive within the observed area.
+     * <br><br>
+     * Since the keys of the cells depend on their location, the fingerprint cannot be
+     * shared by the nodes of the quadtree: it is computed on first use, by visiting
+     * the non-empty nodes only.
+     *
+     * @return the fingerprint of the cells alive within the observed area
+     */
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
+    /**
+     * @return the number of cells of <code>node</code>, located at <code>(x,y)</code>, that lie within the observed area
+     */
+    private long count(Node node, long x, long y) {
+        long size = 1L << node.level;
+
+        if (node.population == 0 || x >= width || y >= height || x + size <= 0 || y + size <= 0)
+            return 0;
+
+        if (x >= 0 && y >= 0 && x + size <= width && y + size <= height)
+            return node.population;
+
+        long half = size >> 1;
+        return count(node.nw, x, y) + count(node.ne, x + half, y)
+             + count(node.sw, x, y + half) + count(node.se, x + half, y + half);
+    }
+
+    @Override
+    public HashLifeGeneration nextGeneration() {
+        return advance(1);
+    }
+
+    /**
+     * Returns the generation that comes <code>generations</code> generations after this one.
+     * <br><br>
+     * The jump is decomposed in powers of two, each of them being computed
+     * at once thanks to the memoized quadtree. Hence, no intermediate generation
+     * is ever built.
+     */
+    @Override
+    public HashLifeGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        Node node = universe.canonical(root);
+        long x = originX;
+        long y = originY;
+
+        for (int step = 0; step < Long.SIZE - 1; ++step) {
+            if ((generations >>> step & 1) == 0)
+                continue;
+
+            node = universe.collectGarbageIfNeeded(node);
+
+            // Make sure that the cells cannot escape the result during the jump
+            while (node.level < step + 3 || !universe.isCentered(node)) {
+                long quarter = 1L << (node.level - 1);
+                node = universe.expand(node);
+                x -= quarter;
+                y -= quarter;
+            }
+
+            long quarter = 1L << (node.level - 2);
+            node = universe.successor(node, step);
+            x += quarter;
+            y += quarter;
+        }
+
+        return node == root || generations == 0 ? this : new HashLifeGeneration(this, node, x, y);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof HashLifeGeneration))
+            return false;
+
+        HashLifeGeneration other = (HashLifeGeneration) obj;
+        if (width != other.width || height != other.height || !rule.equals(other.rule))
+            return false;
+
+        if (root.population != other.root.population)
+            return false;
+
+        if (root.level == other.root.level && originX == other.originX && originY == other.originY)
+            return Node.sameCells(root, other.root);
+
+        return containsCellsOf(root, originX, originY, other);
+    }
+
+    /**
+     * @return whether every alive cell of <code>node</code>, located at <code>(x,y)</code>, is alive within <code>other</code>
+     */
+    private static boolean containsCellsOf(Node node, long x, long y, HashLifeGeneration other) {
+        if (node.population == 0)
+            return true;
+
+        if (node.level == 0)
+            return other.isAliveOnPlane(x, y);
+
+        long half = 1L << (node.level - 1);
+        return containsCellsOf(node.nw, x, y, other)
+            && containsCellsOf(node.ne, x + half, y, other)
+            && containsCellsOf(node.sw, x, y + half, other)
+            && containsCellsOf(node.se, x + half, y + half, other);
+    }
+
+    /**
+     * A square of <code>2^level * 2^level</code> cells.
+     * <br><br>
+     * Nodes are immutable, except for the memoized result of their evolution.
+     */
+    static final class Node {
+
+        static final Node DEAD = new Node(0, 0, 0);
+
+        static final Node ALIVE = new Node(0, 1, 1);
+
+        final int level;
+
+        final Node nw, ne, sw, se;
+
+        final long population;
+
+        final int hash;
+
+        /**
+         * The next node of the same bucket within the hash table of the universe.
+         * Once the node has left the cache, the canonical node that replaces it, if any.
+         */
+        Node next;
+
+        /**
+         * The center of the node after <code>2^resultStep</code> generations.
+         */
+        Node result;
+
+        int resultStep = -1;
+
+        /**
+         * The epoch of the universe during which the node has been put in its cache.
+         */
+        int epoch;
+
+        private Node(int level, long population, int hash) {
+            this.level = level;
+            this.nw = this.ne = this.sw = this.se = null;
+            this.population = population;
+            this.hash = hash;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se) {
+            this.level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash(nw, ne, sw, se);
+        }
+
+        static int hash(Node nw, Node ne, Node sw, Node se) {
+            int h = nw.hash;
+            h = h * 1_000_003 + ne.hash;
+            h = h * 1_000_003 + sw.hash;
+            h = h * 1_000_003 + se.hash;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * @return whether <code>a</code> and <code>b</code> contain the same cells
+         */
+        static boolean sameCells(Node a, Node b) {
+            if (a == b)
+                return true;
+
+            if (a.level != b.level || a.hash != b.hash || a.population != b.population)
+                return false;
+
+            if (a.level == 0)
+                return true;
+
+            return sameCells(a.nw, b.nw) && sameCells(a.ne, b.ne) && sameCells(a.sw, b.sw) && sameCells(a.se, b.se);
+        }
+    }
+
+    /**
+     * Canonicalizes the nodes and computes their evolution.
+     * <br><br>
+     * Each time the cache is dropped, a new epoch begins. Only the nodes put in the
+     * cache during the current epoch are canonical and memoize their evolution: the
+     * other ones are still valid, but must go through {@link #canonical(Node)} to
+     * share their subtrees with the current ones.
+     */
+    static final class Universe {
+
+        private final LifeLikeRule masks;
+
+        private final int maxNodes;
+
+        /**
+         * The canonical nodes, stored as a chained hash table.
+         */
+        private Node[] buckets = new Node[1 << 10];
+
+        private int size = 0;
+
+        /**
+         * The canonical empty node of each level.
+         */
+        private Node[] empties = new Node[64];
+
+        /**
+         * The number of times the cache has been dropped.
+         */
+        private int epoch = 0;
+
+        Universe(LifeLikeRule masks, int maxNodes) {
+            if (maxNodes <= 0)
+                throw new IllegalArgumentException("the cache must be able to hold at least one node: " + maxNodes);
+
+            this.masks = masks;
+            this.maxNodes = maxNodes;
+            this.empties[0] = Node.DEAD;
+        }
+
+        /**
+         * @return the canonical node made of the four given quadrants
+         */
+        Node join(Node nw, Node ne, Node sw, Node se) {
+            Node existing = find(nw, ne, sw, se);
+            if (existing != null)
+                return existing;
+
+            // the limit is checked here so that it holds in the middle of a jump
+            if (size >= maxNodes)
+                dropCache();
+
+            Node node = new Node(nw, ne, sw, se);
+            insert(node);
+            return node;
+        }
+
+        /**
+         * @return the node of the cache made of the four given quadrants, or <code>null</code> if there is none
+         */
+        private Node find(Node nw, Node ne, Node sw, Node se) {
+            int index = Node.hash(nw, ne, sw, se) & (buckets.length - 1);
+
+            for (Node node = buckets[index]; node != null; node = node.next)
+                if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se)
+                    return node;
+
+            return null;
+        }
+
+        private void insert(Node node) {
+            if (size >= buckets.length * 3 / 4)
+                resize();
+
+            node.epoch = epoch;
+
+            int index = node.hash & (buckets.length - 1);
+            node.next = buckets[index];
+            buckets[index] = node;
+            ++size;
+        }
+
+        private void resize() {
+            Node[] old = buckets;
+            buckets = new Node[old.length * 2];
+
+            for (Node head : old) {
+                Node node = head;
+                while (node != null) {
+                    Node next = node.next;
+                    int index = node.hash & (buckets.length - 1);
+                    node.next = buckets[index];
+                    buckets[index] = node;
+                    node = next;
+                }
+            }
+        }
+
+        /**
+         * Drops every memoized result and keeps only the nodes reachable from <code>root</code>
+         * when the cache has grown beyond its limit.
+         *
+         * @return the canonical node equivalent to <code>root</code>
+         */
+        Node collectGarbageIfNeeded(Node root) {
+            if (size > maxNodes)
+                dropCache();
+
+            return canonical(root);
+        }
+
+        /**
+         * Drops every node and every memoized result of the cache, then starts a new epoch.
+         * <br><br>
+         * The links between the nodes and their results are cut, so that the nodes still
+         * held by the generations or by the jump being computed do not retain the others.
+         */
+        private void dropCache() {
+            for (Node head : buckets) {
+                Node node = head;
+                while (node != null) {
+                    Node next = node.next;
+                    node.next = null;
+                    node.result = null;
+                    node.resultStep = -1;
+                    node = next;
+                }
+            }
+            buckets = new Node[buckets.length];
+            size = 0;
+            ++epoch;
+
+            for (int level = 1; level < empties.length && empties[level] != null; ++level)
+                empties[level] = canonical(empties[level]);
+        }
+
+        /**
+         * Returns the node of the current epoch that contains the same cells than <code>node</code>.
+         * <br><br>
+         * Nodes of previous epochs are put back in the cache, unless an equivalent node
+         * already is, in which case the latter is returned.
+         *
+         * @return the canonical node equivalent to <code>node</code>
+         */
+        Node canonical(Node node) {
+            if (node.level == 0 || node.epoch == epoch)
+                return node;
+
+            if (node.next != null && node.next.epoch == epoch)
+                return node.next;
+
+            Node nw = canonical(node.nw);
+            Node ne = canonical(node.ne);
+            Node sw = canonical(node.sw);
+            Node se = canonical(node.se);
+            Node existing = find(nw, ne, sw, se);
+
+            if (existing == null && nw == node.nw && ne == node.ne && sw == node.sw && se == node.se) {
+                node.result = null;
+                node.resultStep = -1;
+                insert(node);
+                return node;
+            }
+
+            // remember the replacement, so that the subtree is not visited again
+            Node replacement = existing != null ? existing : join(nw, ne, sw, se);
+            node.next = replacement;
+            return replacement;
+        }
+
+        /**
+         * @return the canonical node of given level that contains no alive cell
+         */
+        Node empty(int level) {
+            if (empties[level] == null) {
+                Node quadrant = empty(level - 1);
+                empties[level] = join(quadrant, quadrant, quadrant, quadrant);
+            }
+            return empties[level];
+        }
+
+        /**
+         * @return a copy of <code>node</code> in which the cell located at <code>(x,y)</code> is alive
+         */
+        Node setAlive(Node node, long x, long y) {
+            if (node.level == 0)
+                return Node.ALIVE;
+
+            long half = 1L << (node.level - 1);
+
+            if (y < half) {
+                if (x < half)
+                    return join(setAlive(node.nw, x, y), node.ne, node.sw, node.se);
+                return join(node.nw, setAlive(node.ne, x - half, y), node.sw, node.se);
+            }
+            if (x < half)
+                return join(node.nw, node.ne, setAlive(node.sw, x, y - half), node.se);
+            return join(node.nw, node.ne, node.sw, setAlive(node.se, x - half, y - half));
+        }
+
+        /**
+         * @return a node twice as large as <code>node</code>, having <code>node</code> at its center
+         */
+        Node expand(Node node) {
+            Node border = empty(node.level - 1);
+            return join(
+                join(border, border, border, node.nw),
+                join(border, border, node.ne, border),
+                join(border, node.sw, border, border),
+                join(node.se, border, border, border)
+            );
+        }
+
+        /**
+         * @return whether all the alive cells of <code>node</code> lie within its central quarter
+         */
+        boolean isCentered(Node node) {
+            return node.population == node.nw.se.se.population + node.ne.sw.sw.population
+                                    + node.sw.ne.ne.population + node.se.nw.nw.population;
+        }
+
+        /**
+         * @return the central half of <code>node</code>
+         */
+        private Node center(Node node) {
+            return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+        }
+
+        /**
+         * Computes the central half of <code>node</code> after <code>2^step</code> generations.
+         * <br><br>
+         * <code>step</code> must not be greater than <code>node.level - 2</code>.
+         */
+        Node successor(Node node, int step) {
+            if (node.population == 0)
+                return empty(node.level - 1);
+
+            // the node may come from before the cache has been dropped, e.g. in the middle of a jump
+            node = canonical(node);
+
+            if (node.result != null && node.resultStep == step)
+                return node.result;
+
+            Node result = node.level == 2 ? slowSuccessor(node) : fastSuccessor(node, step);
+
+            // nodes of previous epochs are not in the cache anymore: they would retain their result
+            if (node.epoch == epoch) {
+                node.result = result;
+                node.resultStep = step;
+            }
+            return result;
+        }
+
+        private Node fastSuccessor(Node node, int step) {
+            Node n00 = node.nw;
+            Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+            Node n02 = node.ne;
+            Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+            Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+            Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+            Node n20 = node.sw;
+            Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+            Node n22 = node.se;
+
+            boolean fullSpeed = step == node.level - 2;
+            int nextStep = fullSpeed ? step - 1 : step;
+
+            Node r00 = fullSpeed ? successor(n00, nextStep) : center(n00);
+            Node r01 = fullSpeed ? successor(n01, nextStep) : center(n01);
+            Node r02 = fullSpeed ? successor(n02, nextStep) : center(n02);
+            Node r10 = fullSpeed ? successor(n10, nextStep) : center(n10);
+            Node r11 = fullSpeed ? successor(n11, nextStep) : center(n11);
+            Node r12 = fullSpeed ? successor(n12, nextStep) : center(n12);
+            Node r20 = fullSpeed ? successor(n20, nextStep) : center(n20);
+            Node r21 = fullSpeed ? successor(n21, nextStep) : center(n21);
+            Node r22 = fullSpeed ? successor(n22, nextStep) : center(n22);
+
+            return join(
+                successor(join(r00, r01, r10, r11), nextStep),
+                successor(join(r01, r02, r11, r12), nextStep),
+                successor(join(r10, r11, r20, r21), nextStep),
+                successor(join(r11, r12, r21, r22), nextStep)
+            );
+        }
+
+        /**
+         * @return the central 2x2 cells of the 4x4 <code>node</code> after one generation
+         */
+        private Node slowSuccessor(Node node) {
+            int cells = 0;
+
+            for (int y = 0; y < 4; ++y)
+                for (int x = 0; x < 4; ++x)
+                    if (cellAt(node, x, y))
+                        cells |= 1 << (y * 4 + x);
+
+            return join(
+                nextState(cells, 1, 1), nextState(cells, 2, 1),
+                nextState(cells, 1, 2), nextState(cells, 2, 2)
+            );
+        }
+
+        private static boolean cellAt(Node node, int x, int y) {
+            Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+            Node cell = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne) : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+            return cell.population != 0;
+        }
+
+        private Node nextState(int cells, int x, int y) {
+            int neighbours = 0;
+
+            for (int dy = -1; dy <= 1; ++dy)
+                for (int dx = -1; dx <= 1; ++dx)
+                    if ((dx != 0 || dy != 0) && (cells >>> ((y + dy) * 4 + x + dx) & 1) != 0)
+                        ++neighbours;
+
+            boolean alive = (cells >>> (y * 4 + x) & 1) != 0;
+            int mask = alive ? masks.survivalMask() : masks.birthMask();
+
+            return (mask >>> neighbours & 1) != 0 ? Node.ALIVE : Node.DEAD;
+        }
+    }
+}
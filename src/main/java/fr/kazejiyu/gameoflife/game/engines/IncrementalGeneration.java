@@ -0,0 +1,453 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A mutable implementation of {@link Generation} that keeps the number of
+ * alive neighbours of each cell up to date.
+ * <br><br>
+ * Each cell is stored in a byte that packs its state and its number of alive
+ * neighbours. The world is surrounded by a border of cells that never live, so
+ * that the neighbours of a cell can be reached without bound checks. The generation also keeps the list of the cells that flipped during
+ * the previous generation: since only these cells and their neighbours may flip
+ * at next generation, they are the only ones evaluated, and the counts are only
+ * updated around the cells that actually flip. Hence, the time required to compute
+ * the next generation is proportional to the number of changes, not to the population.
+ * <br><br>
+ * {@link #nextGeneration()} updates the instance in place and {@link #snapshot()}
+ * returns an immutable copy of its current state.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class IncrementalGeneration extends AbstractGeneration {
+
+    /**
+     * The bit set when a cell is alive.
+     */
+    private static final int ALIVE = 1;
+
+    /**
+     * The value added to a cell when one of its neighbours is born.
+     */
+    private static final int NEIGHBOUR = 1 << 1;
+
+    /**
+     * The bits that store the number of alive neighbours of a cell.
+     */
+    private static final int NEIGHBOURS = 0xF << 1;
+
+    /**
+     * The bit set when a cell has already been queued for evaluation.
+     */
+    private static final int QUEUED = 1 << 5;
+
+    /**
+     * The bit set on the cells of the border, which are never evaluated.
+     */
+    private static final int BORDER = 1 << 6;
+
+    /**
+     * The cells of the world and of its border, row after row.
+     */
+    private final byte[] cells;
+
+    /**
+     * The number of cells between two consecutive rows, border included.
+     */
+    private final int stride;
+
+    /**
+     * The offsets of the 8 neighbours of a cell within {@link #cells}.
+     */
+    private final int[] neighbours;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of cells alive.
+     */
+    private int population;
+
+    /**
+     * The bits of the fingerprint of the generation, updated each time a cell flips.
+     *
+     * @see Fingerprint#highKey(int, int)
+     */
+    private long fingerprintHigh;
+    private long fingerprintLow;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * Whether a cell will be alive at next generation, indexed by its state and its number of neighbours.
+     */
+    private final boolean[] nextState;
+
+    /**
+     * The indexes of the cells that flipped during the previous generation.
+     */
+    private int[] changed;
+
+    private int nbOfChanged;
+
+    /**
+     * The indexes of the cells that may flip. Reused from one generation to another.
+     */
+    private int[] candidates;
+
+    /**
+     * The indexes of the cells that flip. Reused from one generation to another.
+     */
+    private int[] flipped;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public IncrementalGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public IncrementalGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public IncrementalGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this.width = width;
+        this.height = height;
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+        this.nextState = tabulate(masks);
+        this.stride = width + 2;
+        this.cells = new byte[stride * (height + 2)];
+        this.neighbours = new int[] {-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+        this.changed = new int[16];
+        this.candidates = new int[16];
+        this.flipped = new int[16];
+
+        for (int x = 0; x < stride; ++x) {
+            cells[x] = BORDER;
+            cells[cells.length - 1 - x] = BORDER;
+        }
+        for (int y = 1; y <= height; ++y) {
+            cells[y * stride] = BORDER;
+            cells[y * stride + stride - 1] = BORDER;
+        }
+
+        // initial cells are considered as just born, so that they are all evaluated
+        for (Coordinates cell : aliveCells) {
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height) {
+                int index = indexOf(cell.x(), cell.y());
+
+                if ((cells[index] & ALIVE) == 0) {
+                    flip(index);
+                    changed = append(changed, nbOfChanged++, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether a cell will be alive at next generation, indexed by its state and its number of neighbours
+     */
+    private static boolean[] tabulate(LifeLikeRule rule) {
+        boolean[] table = new boolean[(ALIVE | NEIGHBOURS) + 1];
+
+        for (int neighbours = 0; neighbours <= 8; ++neighbours) {
+            table[neighbours * NEIGHBOUR] = rule.isAliveNext(false, neighbours);
+            table[neighbours * NEIGHBOUR | ALIVE] = rule.isAliveNext(true, neighbours);
+        }
+        return table;
+    }
+
+    /**
+     * @return <code>array</code>, or a larger copy of it, in which <code>value</code> is stored at <code>index</code>
+     */
+    private static int[] append(int[] array, int index, int value) {
+        int[] result = index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+        result[index] = value;
+        return result;
+    }
+
+    /**
+     * @return the index of the cell located at <code>(x,y)</code> within {@link #cells}
+     */
+    private int indexOf(int x, int y) {
+        return (y + 1) * stride + x + 1;
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return population;
+    }
+
+    /**
+     * Returns the number of cells that flipped during the previous generation.
+     * @return the number of cells that flipped during the previous generation
+     */
+    public int nbOfChanges() {
+        return nbOfChanged;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return (cells[indexOf(x, y)] & ALIVE) != 0;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive, scanning the world row by row.
+     */
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        forEachAliveCell(action);
+    }
+
+    /**
+     * Returns the fingerprint of the generation, which is maintained while stepping.
+     * @return the fingerprint of the generation
+     */
+    @Override
+    public Fingerprint fingerprint() {
+        return Fingerprint.of(fingerprintHigh, fingerprintLow);
+    }
+
+    /**
+     * Computes the next generation in place.
+     *
+     * @return the current instance, updated to the next generation
+     */
+    @Override
+    public IncrementalGeneration nextGeneration() {
+        // only the cells that flipped and their neighbours may flip
+        int nbOfCandidates = 0;
+
+        for (int i = 0; i < nbOfChanged; ++i) {
+            int index = changed[i];
+
+            if ((cells[index] & QUEUED) == 0) {
+                cells[index] |= QUEUED;
+                candidates = append(candidates, nbOfCandidates++, index);
+            }
+
+            for (int offset : neighbours) {
+                int neighbour = index + offset;
+
+                if ((cells[neighbour] & (QUEUED | BORDER)) == 0) {
+                    cells[neighbour] |= QUEUED;
+                    candidates = append(candidates, nbOfCandidates++, neighbour);
+                }
+            }
+        }
+
+        // evaluate every candidate before updating any count
+        int nbOfFlipped = 0;
+
+        for (int i = 0; i < nbOfCandidates; ++i) {
+            int index = candidates[i];
+            int cell = cells[index] &= ~QUEUED;
+
+            if (nextState[cell] != ((cell & ALIVE) != 0))
+                flipped = append(flipped, nbOfFlipped++, index);
+        }
+
+        for (int i = 0; i < nbOfFlipped; ++i)
+            flip(flipped[i]);
+
+        int[] swap = changed;
+        changed = flipped;
+        flipped = swap;
+        nbOfChanged = nbOfFlipped;
+
+        return this;
+    }
+
+    /**
+     * Flips the state of the cell located at <code>index</code>
+     * and updates the number of neighbours of the cells around it.
+     */
+    private void flip(int index) {
+        cells[index] ^= ALIVE;
+
+        boolean born = (cells[index] & ALIVE) != 0;
+        int delta = born ? NEIGHBOUR : -NEIGHBOUR;
+        population += born ? 1 : -1;
+
+        int y = index / stride - 1;
+        int x = index - (y + 1) * stride - 1;
+        fingerprintHigh ^= Fingerprint.highKey(x, y);
+        fingerprintLow ^= Fingerprint.lowKey(x, y);
+
+        // the counts of the border are updated too, but never read
+        for (int offset : neighbours)
+            cells[index + offset] += delta;
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one in place.
+     *
+     * @return the current instance, updated to the reached generation
+     */
+    @Override
+    public IncrementalGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        // once nothing changes, the world is stable
+        for (long i = 0; i < generations && nbOfChanged > 0; ++i)
+            nextGeneration();
+
+        return this;
+    }
+
+    /**
+     * Returns an immutable copy of the current state of the world.
+     * <br><br>
+     * The copy evolves exactly as this generation does.
+     *
+     * @return an immutable copy of the current state of the world
+     */
+    @Override
+    public BitPackedGeneration snapshot() {
+        int words = BitGrid.wordsPerRow(width);
+        long[] bits = new long[words * height];
+
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                if ((cells[indexOf(x, y)] & ALIVE) != 0)
+                    BitGrid.set(bits, words, x, y);
+
+        return new BitPackedGeneration(bits, width, height, rule, masks, null, population, fingerprint());
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    /**
+     * Since the number of neighbours of a cell only depends on the state of the cells around it,
+     * two generations are equal if they store the same bytes.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof IncrementalGeneration))
+            return false;
+
+        IncrementalGeneration other = (IncrementalGeneration) obj;
+        return width == other.width && height == other.height
+            && population == other.population
+            && rule.equals(other.rule)
+            && fingerprintHigh == other.fingerprintHigh && fingerprintLow == other.fingerprintLow
+            && Arrays.equals(cells, other.cells);
+    }
+}
@@ -0,0 +1,105 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+
+/**
+ * The next state of the 2x2 cells located at the center of each of the
+ * 65,536 possible 4x4 neighbourhoods, for a given rule.
+ * <br><br>
+ * A 4x4 neighbourhood is encoded on 16 bits: the bit <code>4 * y + x</code> is
+ * set when the cell located at <code>(x,y)</code> is alive. Its entry is encoded
+ * on 4 bits: bit 0 for the cell <code>(1,1)</code>, bit 1 for <code>(2,1)</code>,
+ * bit 2 for <code>(1,2)</code> and bit 3 for <code>(2,2)</code>.
+ * <br><br>
+ * Tables are computed once per rule and shared by all the generations that
+ * follow an equal rule.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see LookupTableGeneration
+ */
+final class LookupTable {
+
+    /**
+     * The tables computed so far, by rule.
+     */
+    private static final ConcurrentMap<LifeLikeRule, byte[]> TABLES = new ConcurrentHashMap<>();
+
+    private LookupTable() {
+        // utility class
+    }
+
+    /**
+     * Returns the table of <code>rule</code>, computing it if needed.
+     * <br><br>
+     * The returned array is shared and must not be modified.
+     *
+     * @param rule
+     * 			The rule followed by the cells.
+     *
+     * @return the next state of the center of each 4x4 neighbourhood
+     */
+    static byte[] of(LifeLikeRule rule) {
+        return TABLES.computeIfAbsent(rule, LookupTable::compute);
+    }
+
+    private static byte[] compute(LifeLikeRule rule) {
+        byte[] table = new byte[1 << 16];
+
+        for (int neighbourhood = 0; neighbourhood < table.length; ++neighbourhood) {
+            int next = 0;
+
+            for (int cell = 0; cell < 4; ++cell) {
+                int x = 1 + (cell & 1);
+                int y = 1 + (cell >>> 1);
+
+                if (rule.isAliveNext(isAlive(neighbourhood, x, y), neighbours(neighbourhood, x, y)))
+                    next |= 1 << cell;
+            }
+            table[neighbourhood] = (byte) next;
+        }
+        return table;
+    }
+
+    private static boolean isAlive(int neighbourhood, int x, int y) {
+        return (neighbourhood >>> (4 * y + x) & 1) != 0;
+    }
+
+    private static int neighbours(int neighbourhood, int x, int y) {
+        int neighbours = 0;
+
+        for (int dy = -1; dy <= 1; ++dy)
+            for (int dx = -1; dx <= 1; ++dx)
+                if ((dx != 0 || dy != 0) && isAlive(neighbourhood, x + dx, y + dy))
+                    ++neighbours;
+
+        return neighbours;
+    }
+}
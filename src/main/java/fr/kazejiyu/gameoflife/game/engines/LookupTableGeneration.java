@@ -0,0 +1,377 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * An immutable implementation of {@link Generation} that computes the next
+ * state of the world 2x2 cells at a time, with a precomputed table.
+ * <br><br>
+ * The next state of a 2x2 block only depends on the 4x4 cells around it. The next
+ * state of the center of each of the 65,536 possible 4x4 neighbourhoods is computed
+ * once per rule (see {@link LookupTable}), so that computing a block takes a single
+ * lookup instead of counting the neighbours of its four cells.
+ * <br><br>
+ * Cells are stored one bit per cell, the same way as in {@link BitPackedGeneration}.
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see LookupTable
+ */
+public final class LookupTableGeneration extends AbstractGeneration {
+
+    /**
+     * The cells of the generation, one bit per cell.
+     */
+    private final long[] cells;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of words used to store a row.
+     */
+    private final int words;
+
+    /**
+     * The number of cells alive.
+     */
+    private final int population;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The next state of the center of each 4x4 neighbourhood, shared with the other generations.
+     */
+    private final byte[] table;
+
+    /**
+     * The fingerprint of the generation. It is derived from the fingerprint of the previous
+     * generation while stepping when the latter is known, and computed on first use otherwise.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public LookupTableGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public LookupTableGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public LookupTableGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.rule = Objects.requireNonNull(rule);
+        this.table = LookupTable.of(LifeLikeRule.of(rule));
+        this.cells = new long[words * height];
+
+        for (Coordinates cell : aliveCells)
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height)
+                BitGrid.set(cells, words, cell.x(), cell.y());
+
+        this.population = (int) BitGrid.population(cells);
+    }
+
+    private LookupTableGeneration(long[] cells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, byte[] table, int population, Fingerprint fingerprint) {
+        this.cells = cells;
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.rule = rule;
+        this.table = table;
+        this.population = population;
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return BitGrid.get(cells, words, x, y);
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        BitGrid.forEachAlive(cells, words, action);
+    }
+
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        BitGrid.forEachAlive(cells, words, action);
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
+    @Override
+    public LookupTableGeneration nextGeneration() {
+        long[] next = new long[cells.length];
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        int nextPopulation = step(cells, next, nextFingerprint);
+
+        return new LookupTableGeneration(next, width, height, rule, table, nextPopulation, BitGrid.fingerprintOf(nextFingerprint));
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one.
+     * <br><br>
+     * Intermediate generations are not created: the cells are computed alternately
+     * into two grids that are reused from one generation to the next.
+     *
+     * @return the generation that comes <code>generations</code> generations after this one
+     */
+    @Override
+    public LookupTableGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        if (generations == 0)
+            return this;
+
+        long[] current = new long[cells.length];
+        long[] next = new long[cells.length];
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        int nextPopulation = step(cells, current, nextFingerprint);
+
+        for (long i = 1; i < generations; ++i) {
+            nextPopulation = step(current, next, nextFingerprint);
+
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return new LookupTableGeneration(current, width, height, rule, table, nextPopulation, BitGrid.fingerprintOf(nextFingerprint));
+    }
+
+    /**
+     * Computes the next state of <code>src</code>, stores it in <code>dst</code> and toggles
+     * within <code>fingerprint</code> the keys of the cells that flip, unless it is <code>null</code>.
+     *
+     * @return the number of cells alive within <code>dst</code>
+     */
+    private int step(long[] src, long[] dst, long[] fingerprint) {
+        long lastMask = BitGrid.lastWordMask(width);
+        int nextPopulation = 0;
+
+        // each block covers the rows top and top + 1
+        for (int top = 0; top < height; top += 2) {
+            boolean hasBottom = top + 1 < height;
+
+            for (int i = 0; i < words; ++i) {
+                // the 64 columns of the word, plus one on each side, of the 4 rows around the blocks
+                long above = window(src, top - 1, i, 0);
+                long upper = window(src, top, i, 0);
+                long lower = window(src, top + 1, i, 0);
+                long below = window(src, top + 2, i, 0);
+                long aboveEdge = window(src, top - 1, i, 64);
+                long upperEdge = window(src, top, i, 64);
+                long lowerEdge = window(src, top + 1, i, 64);
+                long belowEdge = window(src, top + 2, i, 64);
+
+                if ((above | upper | lower | below | aboveEdge | upperEdge | lowerEdge | belowEdge) == 0) {
+                    dst[top * words + i] = 0;
+                    if (hasBottom)
+                        dst[(top + 1) * words + i] = 0;
+                    continue;
+                }
+
+                long first = 0;
+                long second = 0;
+
+                for (int block = 0; block < 32; ++block) {
+                    int shift = 2 * block;
+                    int neighbourhood = block < 31
+                                      ? (int) (above >>> shift & 0xF) | (int) (upper >>> shift & 0xF) << 4
+                                      | (int) (lower >>> shift & 0xF) << 8 | (int) (below >>> shift & 0xF) << 12
+                                      : (int) (above >>> 62 | aboveEdge << 2) & 0xF | (int) ((upper >>> 62 | upperEdge << 2) & 0xF) << 4
+                                      | (int) ((lower >>> 62 | lowerEdge << 2) & 0xF) << 8 | (int) ((below >>> 62 | belowEdge << 2) & 0xF) << 12;
+
+                    int state = table[neighbourhood];
+                    first |= (long) (state & 3) << shift;
+                    second |= (long) (state >>> 2 & 3) << shift;
+                }
+
+                if (i == words - 1) {
+                    first &= lastMask;
+                    second &= lastMask;
+                }
+
+                dst[top * words + i] = first;
+                nextPopulation += Long.bitCount(first);
+
+                if (hasBottom) {
+                    dst[(top + 1) * words + i] = second;
+                    nextPopulation += Long.bitCount(second);
+                }
+
+                if (fingerprint != null) {
+                    BitGrid.toggle(fingerprint, src[top * words + i] ^ first, i << 6, top);
+                    if (hasBottom)
+                        BitGrid.toggle(fingerprint, src[(top + 1) * words + i] ^ second, i << 6, top + 1);
+                }
+            }
+        }
+        return nextPopulation;
+    }
+
+    /**
+     * Returns 64 cells of the row <code>y</code> of <code>grid</code>, shifted so that the bit 0 holds the
+     * cell located right before the word <code>i</code>.
+     *
+     * @param grid
+     * 			The cells of a generation.
+     * @param y
+     * 			The row of the cells. Rows outside of the world are empty.
+     * @param i
+     * 			The index of the word within the row.
+     * @param offset
+     * 			0 to get the cells <code>[64i - 1, 64i + 63)</code>,
+     * 			64 to get the cells <code>[64i + 63, 64i + 127)</code>.
+     *
+     * @return the cells of the row <code>y</code> starting at the column <code>64i + offset - 1</code>
+     */
+    private long window(long[] grid, int y, int i, int offset) {
+        if (y < 0 || y >= height)
+            return 0;
+
+        int row = y * words;
+        int word = i + (offset >>> 6);
+        long current = word < words ? grid[row + word] : 0;
+        long previous = word > 0 && word - 1 < words ? grid[row + word - 1] : 0;
+
+        return current << 1 | previous >>> 63;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof LookupTableGeneration))
+            return false;
+
+        LookupTableGeneration other = (LookupTableGeneration) obj;
+        return width == other.width && height == other.height
+            && population == other.population
+            && rule.equals(other.rule)
+            && fingerprint().equals(other.fingerprint())
+            && Arrays.equals(cells, other.cells);
+    }
+}
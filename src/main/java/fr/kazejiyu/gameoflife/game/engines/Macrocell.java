@@ -0,0 +1,458 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.engines.HashLifeGeneration.Node;
+import fr.kazejiyu.gameoflife.game.engines.HashLifeGeneration.Universe;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Reads and writes the quadtree of a {@link HashLifeGeneration} in the macrocell format of Golly.
+ * <br><br>
+ * Such a file starts with a <code>[M2]</code> line, optionally followed by a <code>#R</code>
+ * line giving the rule, then lists the distinct nodes of the quadtree, one per line, numbered
+ * from 1. The 8x8 leaves are written as rows of <code>.</code> and <code>*</code> ended by
+ * <code>$</code>; the other nodes as their level followed by the numbers of their four quadrants,
+ * 0 standing for an empty one. The last node is the root, which center is the cell <code>(0,0)</code>.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class Macrocell {
+
+    private static final String HEADER = "[M2]";
+
+    /**
+     * The level of the leaves, which contain 8x8 cells.
+     */
+    private static final int LEAF_LEVEL = 3;
+
+    private static final int LEAF_SIZE = 1 << LEAF_LEVEL;
+
+    /**
+     * The highest level of node supported, so that the coordinates of the cells fit in a long.
+     */
+    private static final int MAX_LEVEL = 62;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Macrocell() {
+        // static utility
+    }
+
+    /**
+     * Reads the macrocell pattern of <code>source</code>, which center becomes the center of the observed area.
+     */
+    static HashLifeGeneration read(ReadableByteChannel source, int width, int height, int maxNodes) throws IOException {
+        Lines lines = new Lines(source);
+        String line = lines.next();
+
+        if (line == null || !line.startsWith(HEADER))
+            throw new IOException("Invalid macrocell file: the " + HEADER + " header is missing");
+
+        BiPredicate<Generation, Entry<Coordinates, Long>> rule = Rule.GAME_OF_LIFE;
+        Universe universe = null;
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(null);
+
+        while ((line = lines.next()) != null) {
+            if (line.startsWith("#R"))
+                rule = parseRule(line.substring(2));
+
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+
+            if (universe == null)
+                universe = new Universe(LifeLikeRule.of(rule), maxNodes);
+
+            Node node = Character.isDigit(line.charAt(0)) ? parseNode(universe, nodes, line) : parseLeaf(universe, line);
+            nodes.add(node);
+        }
+        if (universe == null)
+            throw new IOException("Invalid macrocell file: the file contains no node");
+
+        Node root = nodes.get(nodes.size() - 1);
+        long half = 1L << (root.level - 1);
+
+        return new HashLifeGeneration(universe, root, width / 2 - half, height / 2 - half, width, height, rule);
+    }
+
+    private static LifeLikeRule parseRule(String rulestring) throws IOException {
+        try {
+            return LifeLikeRule.parse(rulestring.split(":", 2)[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid macrocell file: unsupported rule '" + rulestring.trim() + "'", e);
+        }
+    }
+
+    /**
+     * Parses a node made of four quadrants, which have been read before.
+     */
+    private static Node parseNode(Universe universe, List<Node> nodes, String line) throws IOException {
+        String[] fields = line.trim().split("\\s+");
+
+        if (fields.length != 5)
+            throw new IOException("Invalid macrocell node '" + line + "': expected a level and four quadrants");
+
+        try {
+            int level = Integer.parseInt(fields[0]);
+
+            if (level <= LEAF_LEVEL || level > MAX_LEVEL)
+                throw new IOException("Invalid macrocell node '" + line + "': unsupported level " + level);
+
+            Node[] quadrants = new Node[4];
+
+            for (int i = 0; i < quadrants.length; ++i) {
+                int index = Integer.parseInt(fields[i + 1]);
+
+                if (index < 0 || index >= nodes.size())
+                    throw new IOException("Invalid macrocell node '" + line + "': unknown node " + index);
+
+                quadrants[i] = index == 0 ? universe.empty(level - 1) : nodes.get(index);
+
+                if (quadrants[i].level != level - 1)
+                    throw new IOException("Invalid macrocell node '" + line + "': node " + index + " is not of level " + (level - 1));
+            }
+            return universe.join(quadrants[0], quadrants[1], quadrants[2], quadrants[3]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid macrocell node '" + line + "': expected numbers", e);
+        }
+    }
+
+    /**
+     * Parses an 8x8 leaf, which rows are made of <code>.</code> and <code>*</code> and ended by <code>$</code>.
+     */
+    private static Node parseLeaf(Universe universe, String line) throws IOException {
+        long cells = 0;
+        int x = 0;
+        int y = 0;
+
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+
+            if (c == '$') {
+                x = 0;
+                ++y;
+            }
+            else if (c == '.')
+                ++x;
+
+            else if (c == '*') {
+                if (x >= LEAF_SIZE || y >= LEAF_SIZE)
+                    throw new IOException("Invalid macrocell leaf '" + line + "': the leaf is larger than 8x8 cells");
+
+                cells |= 1L << (y * LEAF_SIZE + x++);
+            }
+            else
+                throw new IOException("Invalid macrocell leaf '" + line + "': unexpected character '" + c + "'");
+        }
+        return leaf(universe, cells, 0, 0, LEAF_LEVEL);
+    }
+
+    /**
+     * @return the node of given level which upper left cell is located at <code>(x,y)</code> within the leaf <code>cells</code>
+     */
+    private static Node leaf(Universe universe, long cells, int x, int y, int level) {
+        if (level == 0)
+            return (cells >>> (y * LEAF_SIZE + x) & 1) != 0 ? Node.ALIVE : Node.DEAD;
+
+        int half = 1 << (level - 1);
+        return universe.join(
+            leaf(universe, cells, x, y, level - 1), leaf(universe, cells, x + half, y, level - 1),
+            leaf(universe, cells, x, y + half, level - 1), leaf(universe, cells, x + half, y + half, level - 1)
+        );
+    }
+
+    /**
+     * Writes <code>root</code>, which upper left cell is located at <code>(x,y)</code>, into <code>target</code>.
+     */
+    static void write(Universe universe, Node root, long x, long y, LifeLikeRule rule, WritableByteChannel target) throws IOException {
+        Writer writer = new Writer(target);
+        writer.put(HEADER + " (game-of-life)\n#R " + rule + "\n");
+
+        Node centered = centered(universe, root, x, y);
+
+        if (centered.population == 0)
+            writer.put("$\n");
+        else
+            writer.write(centered);
+
+        writer.flush();
+    }
+
+    /**
+     * Returns a node centered on <code>(0,0)</code> that contains <code>root</code>, which upper left
+     * cell is located at <code>(x,y)</code>.
+     * <br><br>
+     * Unless <code>root</code> is already aligned, moving it changes all its nodes: the result is built
+     * from the windows of the 2x2 blocks of nodes of each level, which are memoized so that the
+     * number of nodes created remains proportional to the number of distinct nodes of <code>root</code>.
+     */
+    private static Node centered(Universe universe, Node root, long x, long y) {
+        long size = 1L << root.level;
+
+        if (root.level >= LEAF_LEVEL && x == -size / 2 && y == -size / 2)
+            return root;
+
+        int level = Math.max(root.level + 1, LEAF_LEVEL);
+
+        while (level < MAX_LEVEL && (Math.min(x, y) < -(1L << (level - 1)) || Math.max(x, y) + size > 1L << (level - 1)))
+            ++level;
+
+        // the position of root relative to the upper left cell of the result
+        long half = 1L << (level - 1);
+        long relX = x + half;
+        long relY = y + half;
+
+        // enlarge the result so that root is aligned on the nodes of its level
+        long shiftX = -relX & (size - 1);
+        long shiftY = -relY & (size - 1);
+        Node block = place(universe, root, relX + shiftX, relY + shiftY, level + 1);
+
+        return window(universe, block.nw, block.ne, block.sw, block.se, shiftX, shiftY, new IdentityHashMap<>());
+    }
+
+    /**
+     * @return a node of given level that contains <code>node</code> at <code>(x,y)</code>,
+     * 		   which must be a multiple of the size of <code>node</code>
+     */
+    private static Node place(Universe universe, Node node, long x, long y, int level) {
+        if (level == node.level)
+            return node;
+
+        long half = 1L << (level - 1);
+        Node empty = universe.empty(level - 1);
+        Node quadrant = place(universe, node, x & (half - 1), y & (half - 1), level - 1);
+
+        if (y < half)
+            return x < half ? universe.join(quadrant, empty, empty, empty) : universe.join(empty, quadrant, empty, empty);
+
+        return x < half ? universe.join(empty, empty, quadrant, empty) : universe.join(empty, empty, empty, quadrant);
+    }
+
+    /**
+     * Returns the node which upper left cell is located at <code>(x,y)</code> within the 2x2 block
+     * made of the given nodes, which have its level.
+     * <br><br>
+     * Since the offset of the window only depends on the level, the results are memoized by block.
+     */
+    private static Node window(Universe universe, Node nw, Node ne, Node sw, Node se, long x, long y, Map<Node, Node> windows) {
+        if (x == 0 && y == 0)
+            return nw;
+
+        if (nw.population + ne.population + sw.population + se.population == 0)
+            return universe.empty(nw.level);
+
+        Node block = universe.join(nw, ne, sw, se);
+        Node result = windows.get(block);
+
+        if (result != null)
+            return result;
+
+        Node[][] grid = {
+            {nw.nw, nw.ne, ne.nw, ne.ne},
+            {nw.sw, nw.se, ne.sw, ne.se},
+            {sw.nw, sw.ne, se.nw, se.ne},
+            {sw.sw, sw.se, se.sw, se.se}
+        };
+        long half = 1L << (nw.level - 1);
+        int col = (int) (x / half);
+        int row = (int) (y / half);
+        long subX = x % half;
+        long subY = y % half;
+
+        result = universe.join(
+            window(universe, grid[row][col], grid[row][col + 1], grid[row + 1][col], grid[row + 1][col + 1], subX, subY, windows),
+            window(universe, grid[row][col + 1], grid[row][col + 2], grid[row + 1][col + 1], grid[row + 1][col + 2], subX, subY, windows),
+            window(universe, grid[row + 1][col], grid[row + 1][col + 1], grid[row + 2][col], grid[row + 2][col + 1], subX, subY, windows),
+            window(universe, grid[row + 1][col + 1], grid[row + 1][col + 2], grid[row + 2][col + 1], grid[row + 2][col + 2], subX, subY, windows)
+        );
+        windows.put(block, result);
+        return result;
+    }
+
+    /**
+     * Reads the lines of a channel through a fixed size buffer.
+     */
+    private static final class Lines {
+
+        private final ReadableByteChannel source;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private final StringBuilder line = new StringBuilder();
+
+        Lines(ReadableByteChannel source) {
+            this.source = source;
+            this.buffer.flip();
+        }
+
+        /**
+         * @return the next line, without its trailing whitespaces, or <code>null</code> once the end of the channel is reached
+         */
+        String next() throws IOException {
+            line.setLength(0);
+            boolean read = false;
+
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    int count = source.read(buffer);
+                    buffer.flip();
+
+                    if (count == -1)
+                        return read ? trimmed() : null;
+                }
+                char c = (char) (buffer.get() & 0xFF);
+                read = true;
+
+                if (c == '\n')
+                    return trimmed();
+
+                line.append(c);
+            }
+        }
+
+        private String trimmed() {
+            int length = line.length();
+
+            while (length > 0 && Character.isWhitespace(line.charAt(length - 1)))
+                --length;
+
+            return line.substring(0, length);
+        }
+    }
+
+    /**
+     * Writes each distinct node once, after its quadrants, through a fixed size buffer.
+     */
+    private static final class Writer {
+
+        private final WritableByteChannel target;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * The number of each node written.
+         */
+        private final Map<Node, Integer> numbers = new IdentityHashMap<>();
+
+        private final StringBuilder line = new StringBuilder();
+
+        Writer(WritableByteChannel target) {
+            this.target = target;
+        }
+
+        /**
+         * @return the number of <code>node</code>, written if needed, or 0 if it is empty
+         */
+        int write(Node node) throws IOException {
+            if (node.population == 0)
+                return 0;
+
+            Integer number = numbers.get(node);
+
+            if (number != null)
+                return number;
+
+            if (node.level == LEAF_LEVEL)
+                writeLeaf(node);
+            else {
+                int nw = write(node.nw);
+                int ne = write(node.ne);
+                int sw = write(node.sw);
+                int se = write(node.se);
+                put(node.level + " " + nw + " " + ne + " " + sw + " " + se + "\n");
+            }
+            number = numbers.size() + 1;
+            numbers.put(node, number);
+            return number;
+        }
+
+        private void writeLeaf(Node node) throws IOException {
+            line.setLength(0);
+            int end = 0;
+
+            for (int y = 0; y < LEAF_SIZE; ++y) {
+                int rowEnd = line.length();
+
+                for (int x = 0; x < LEAF_SIZE; ++x) {
+                    boolean alive = isAlive(node, x, y);
+                    line.append(alive ? '*' : '.');
+
+                    if (alive)
+                        rowEnd = line.length();
+                }
+                line.setLength(rowEnd);
+                line.append('$');
+
+                if (rowEnd > 0 && line.charAt(rowEnd - 1) == '*')
+                    end = line.length();
+            }
+            line.setLength(end);
+            put(line.append('\n').toString());
+        }
+
+        private static boolean isAlive(Node node, int x, int y) {
+            for (int level = node.level; level > 0; --level) {
+                int half = 1 << (level - 1);
+                boolean east = (x & half) != 0;
+                boolean south = (y & half) != 0;
+                node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+            }
+            return node.population != 0;
+        }
+
+        void put(String text) throws IOException {
+            if (buffer.remaining() < text.length())
+                flush();
+
+            buffer.put(text.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+
+            while (buffer.hasRemaining())
+                target.write(buffer);
+
+            buffer.clear();
+        }
+    }
+}
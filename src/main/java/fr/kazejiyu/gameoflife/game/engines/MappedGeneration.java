@@ -0,0 +1,628 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A mutable implementation of {@link Generation} that stores one bit per cell
+ * within memory-mapped files.
+ * <br><br>
+ * The cells are stored off-heap, in two files that are mapped in memory and swapped
+ * at each generation, as {@link DoubleBufferedGeneration} does with its arrays.
+ * Next generations are computed row after row: only the three rows surrounding the
+ * one being computed are copied on the heap. Hence, the heap footprint of this
+ * generation only depends on the width of the world, and worlds larger than the heap
+ * (e.g. 100,000 x 100,000 cells) can be simulated as long as they fit on the disk.
+ * <br><br>
+ * {@link #nextGeneration()} updates the instance in place; {@link #snapshot()} copies
+ * the world into new files. The files are deleted when the generation is closed, hence
+ * snapshots must be closed once useless too. The {@link #fingerprint()} is maintained
+ * while stepping, so that the generation can be compared to previous ones without
+ * being copied.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see BitGrid
+ */
+public final class MappedGeneration extends AbstractGeneration implements AutoCloseable {
+
+    /**
+     * The cells of the current generation.
+     */
+    private MappedGrid front;
+
+    /**
+     * The grid in which the next generation is computed.
+     */
+    private MappedGrid back;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of words used to store a row.
+     */
+    private final int words;
+
+    /**
+     * The directory in which the files are created.
+     */
+    private final Path directory;
+
+    /**
+     * The number of cells alive.
+     */
+    private long population;
+
+    /**
+     * The bits of the fingerprint of the generation, updated each time a cell flips.
+     *
+     * @see Fingerprint#highKey(int, int)
+     */
+    private long fingerprintHigh;
+    private long fingerprintLow;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * Holds the rows located above, on and below the row being computed.
+     */
+    private final long[] window;
+
+    /**
+     * Holds the next state of the row being computed, at the same offset than in {@link #window}.
+     */
+    private final long[] next;
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>. The files are created in the default
+     * temporary-file directory.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     *
+     * @throws UncheckedIOException if the files cannot be created
+     */
+    public MappedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this(aliveCells, width, height, rule, defaultDirectory());
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param directory
+     * 			The directory in which the files are created.
+     *
+     * @throws UncheckedIOException if the files cannot be created
+     */
+    public MappedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, Path directory) {
+        this(width, height, rule, directory);
+
+        for (Coordinates cell : aliveCells)
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height && front.set(cell.x(), cell.y()))
+                born(cell.x(), cell.y());
+    }
+
+    /**
+     * Creates an empty generation.
+     */
+    private MappedGeneration(int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, Path directory) {
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.directory = Objects.requireNonNull(directory);
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+        this.window = new long[3 * words];
+        this.next = new long[3 * words];
+
+        try {
+            this.front = new MappedGrid(directory, words, height);
+            this.back = new MappedGrid(directory, words, height);
+
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Cannot create the files of the generation", e);
+        }
+    }
+
+    /**
+     * @return the default temporary-file directory
+     */
+    private static Path defaultDirectory() {
+        return Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Loads a generation from a file, without ever holding the whole world in memory.
+     * <br><br>
+     * The file uses the same format than {@link fr.kazejiyu.gameoflife.game.patterns.Pattern#fromString(String, char)}:
+     * each line of the file is a row of the world, and each character equal to <code>alive</code>
+     * is a cell that lives. The width of the world is the length of the longest line.
+     * <br><br>
+     * The file is read twice: once to compute the size of the world, once to fill it.
+     *
+     * @param source
+     * 			The file to load.
+     * @param encoding
+     * 			The encoding of the file.
+     * @param alive
+     * 			The character that represents a cell that lives.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param directory
+     * 			The directory in which the files of the generation are created.
+     *
+     * @return the generation described by <code>source</code>
+     *
+     * @throws IOException if the file cannot be read or the generation cannot be created
+     */
+    public static MappedGeneration fromFile(Path source, Charset encoding, char alive, BiPredicate<Generation, Entry<Coordinates, Long>> rule, Path directory) throws IOException {
+        int width = 0;
+        int height = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(source, encoding)) {
+            int lines = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                ++lines;
+                width = Math.max(width, line.length());
+
+                // like String.split, trailing empty lines are ignored
+                if (! line.isEmpty())
+                    height = lines;
+            }
+            height = Math.max(height, 1);
+        }
+
+        MappedGeneration generation = new MappedGeneration(width, height, rule, directory);
+
+        try (BufferedReader reader = Files.newBufferedReader(source, encoding)) {
+            long[] row = generation.next;
+
+            for (int y = 0; y < height; ++y) {
+                String line = reader.readLine();
+                Arrays.fill(row, 0, generation.words, 0);
+
+                for (int x = 0; line != null && x < line.length(); ++x) {
+                    if (line.charAt(x) == alive) {
+                        row[x >>> 6] |= 1L << x;
+                        generation.born(x, y);
+                    }
+                }
+                generation.front.writeRow(y, row, 0);
+            }
+        } catch (IOException | RuntimeException e) {
+            generation.close();
+            throw e;
+        }
+        return generation;
+    }
+
+    /**
+     * Counts the cell located at <code>(x,y)</code>, which has just been made alive.
+     */
+    private void born(int x, int y) {
+        ++population;
+        toggle(x, y);
+    }
+
+    /**
+     * Updates the fingerprint of the generation once the cell located at <code>(x,y)</code> has flipped.
+     */
+    private void toggle(int x, int y) {
+        fingerprintHigh ^= Fingerprint.highKey(x, y);
+        fingerprintLow ^= Fingerprint.lowKey(x, y);
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells alive.
+     * <br><br>
+     * Since the world may hold more than {@link Integer#MAX_VALUE} cells alive,
+     * {@link #population()} should be preferred.
+     *
+     * @return the number of cells alive
+     *
+     * @throws ArithmeticException if more than {@link Integer#MAX_VALUE} cells are alive
+     */
+    @Override
+    public int nbOfCellsAlive() {
+        return Math.toIntExact(population);
+    }
+
+    /**
+     * Returns the number of cells alive, which may exceed {@link Integer#MAX_VALUE} in huge worlds.
+     * @return the number of cells alive
+     */
+    @Override
+    public long population() {
+        return population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return (front.word(y, x >>> 6) >>> x & 1) != 0;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive, reading the files row by row.
+     */
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        long[] row = new long[words];
+
+        for (int y = 0; y < height; ++y) {
+            front.readRow(y, row, 0);
+
+            for (int i = 0; i < words; ++i) {
+                for (long word = row[i]; word != 0; word &= word - 1)
+                    action.accept((i << 6) + Long.numberOfTrailingZeros(word), y);
+            }
+        }
+    }
+
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        forEachAliveCell(action);
+    }
+
+    /**
+     * Returns the fingerprint of the generation, which is maintained while stepping.
+     * Conditions compare it to avoid copying the whole world at each generation.
+     *
+     * @return the fingerprint of the generation
+     */
+    @Override
+    public Fingerprint fingerprint() {
+        return Fingerprint.of(fingerprintHigh, fingerprintLow);
+    }
+
+    /**
+     * Computes the next generation in place, row after row.
+     *
+     * @return the current instance, updated to the next generation
+     */
+    @Override
+    public MappedGeneration nextGeneration() {
+        long lastMask = BitGrid.lastWordMask(width);
+        long alive = 0;
+
+        // the window holds the rows y-1, y and y+1; rows outside of the world are empty
+        Arrays.fill(window, 0);
+        readRowOrClear(0, words);
+        readRowOrClear(1, 2 * words);
+
+        for (int y = 0; y < height; ++y) {
+            alive += BitGrid.stepRows(window, next, words, 3, 1, 2, lastMask, masks.birthMask(), masks.survivalMask());
+            back.writeRow(y, next, words);
+
+            for (int i = 0; i < words; ++i) {
+                for (long flipped = window[words + i] ^ next[words + i]; flipped != 0; flipped &= flipped - 1)
+                    toggle((i << 6) + Long.numberOfTrailingZeros(flipped), y);
+            }
+
+            System.arraycopy(window, words, window, 0, 2 * words);
+            readRowOrClear(y + 2, 2 * words);
+        }
+
+        MappedGrid swap = front;
+        front = back;
+        back = swap;
+        population = alive;
+
+        return this;
+    }
+
+    /**
+     * Copies the row <code>y</code> of the current generation into {@link #window}, or clears
+     * the corresponding words if the row lies outside of the world.
+     */
+    private void readRowOrClear(int y, int offset) {
+        if (y < height)
+            front.readRow(y, window, offset);
+        else
+            Arrays.fill(window, offset, offset + words, 0);
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one in place.
+     *
+     * @return the current instance, updated to the reached generation
+     */
+    @Override
+    public MappedGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        for (long i = 0; i < generations; ++i)
+            nextGeneration();
+
+        return this;
+    }
+
+    /**
+     * Returns a copy of the current state of the world, stored in new files.
+     * <br><br>
+     * The copy must be closed once useless: callers that only need to compare generations
+     * should rather rely on {@link #population()} and {@link #fingerprint()}.
+     *
+     * @return a copy of the current state of the world
+     *
+     * @throws UncheckedIOException if the files of the copy cannot be created
+     */
+    @Override
+    public MappedGeneration snapshot() {
+        MappedGeneration copy = new MappedGeneration(width, height, rule, directory);
+        long[] row = new long[words];
+
+        for (int y = 0; y < height; ++y) {
+            front.readRow(y, row, 0);
+            copy.front.writeRow(y, row, 0);
+        }
+        copy.population = population;
+        copy.fingerprintHigh = fingerprintHigh;
+        copy.fingerprintLow = fingerprintLow;
+
+        return copy;
+    }
+
+    /**
+     * @return <code>true</code>, since the world is stored in files
+     */
+    @Override
+    public boolean holdsExternalResources() {
+        return true;
+    }
+
+    /**
+     * Deletes the files in which the world is stored.
+     * <br><br>
+     * The generation must not be used anymore once closed.
+     */
+    @Override
+    public void close() {
+        IOException failure = null;
+
+        for (MappedGrid grid : new MappedGrid[] {front, back}) {
+            try {
+                if (grid != null)
+                    grid.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null)
+            throw new UncheckedIOException("Cannot delete the files of the generation", failure);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof MappedGeneration))
+            return false;
+
+        MappedGeneration other = (MappedGeneration) obj;
+        if (width != other.width || height != other.height || population != other.population || !rule.equals(other.rule)
+                || fingerprintHigh != other.fingerprintHigh || fingerprintLow != other.fingerprintLow)
+            return false;
+
+        for (int y = 0; y < height; ++y)
+            for (int i = 0; i < words; ++i)
+                if (front.word(y, i) != other.front.word(y, i))
+                    return false;
+
+        return true;
+    }
+
+    /**
+     * A bit grid stored in a memory-mapped file.
+     * <br><br>
+     * Since a buffer cannot map more than 2GB, the file is mapped by segments
+     * made of whole rows.
+     */
+    private static final class MappedGrid implements Closeable {
+
+        /**
+         * The maximum number of bytes mapped by a segment.
+         */
+        private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+        private final FileChannel channel;
+
+        private final ByteBuffer[] segments;
+
+        private final int words;
+
+        private final int rowsPerSegment;
+
+        MappedGrid(Path directory, int words, int height) throws IOException {
+            Path file = Files.createTempFile(directory, "generation-", ".bits");
+
+            try {
+                // the file is deleted as soon as the channel is closed, even if the JVM is not shut down
+                this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            this.words = words;
+
+            long rowSize = 8L * Math.max(words, 1);
+            this.rowsPerSegment = (int) Math.max(1, Math.min(height, MAX_SEGMENT_SIZE / rowSize));
+            this.segments = new ByteBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+
+            try {
+                for (int s = 0; s < segments.length; ++s) {
+                    int rows = Math.min(rowsPerSegment, height - s * rowsPerSegment);
+                    segments[s] = channel.map(MapMode.READ_WRITE, s * rowsPerSegment * rowSize, rows * rowSize)
+                                         .order(ByteOrder.LITTLE_ENDIAN);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the index, in bytes, of the word <code>i</code> of the row <code>y</code> within its segment
+         */
+        private int offset(int y, int i) {
+            return ((y % rowsPerSegment) * words + i) << 3;
+        }
+
+        long word(int y, int i) {
+            return segments[y / rowsPerSegment].getLong(offset(y, i));
+        }
+
+        /**
+         * Makes the cell located at <code>(x,y)</code> alive.
+         *
+         * @return whether the cell was dead
+         */
+        boolean set(int x, int y) {
+            ByteBuffer segment = segments[y / rowsPerSegment];
+            int offset = offset(y, x >>> 6);
+            long word = segment.getLong(offset);
+            long bit = 1L << x;
+
+            segment.putLong(offset, word | bit);
+            return (word & bit) == 0;
+        }
+
+        void readRow(int y, long[] dst, int from) {
+            ByteBuffer segment = segments[y / rowsPerSegment];
+            int offset = offset(y, 0);
+
+            for (int i = 0; i < words; ++i)
+                dst[from + i] = segment.getLong(offset + (i << 3));
+        }
+
+        void writeRow(int y, long[] src, int from) {
+            ByteBuffer segment = segments[y / rowsPerSegment];
+            int offset = offset(y, 0);
+
+            for (int i = 0; i < words; ++i)
+                segment.putLong(offset + (i << 3), src[from + i]);
+        }
+
+        /**
+         * Closes the file, which deletes it. The mapping itself is released
+         * once the buffers are garbage collected.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
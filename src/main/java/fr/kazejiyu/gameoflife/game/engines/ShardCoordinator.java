@@ -0,0 +1,313 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+
+/**
+ * Splits a world into horizontal bands, called shards, and drives the
+ * {@link ShardWorker}s that compute their evolution.
+ * <br><br>
+ * The coordinator never holds the cells of the world once they have been distributed:
+ * it only tells the workers how many generations to compute and sums up the
+ * population of their shards. The cells are only gathered on demand.
+ * <br><br>
+ * A coordinator is bound to a single world and must be closed once useless,
+ * which stops its workers.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see ShardedGeneration
+ */
+public final class ShardCoordinator implements Closeable {
+
+    /**
+     * The connections to the workers, and the shard they own.
+     */
+    private final List<Shard> shards;
+
+    /**
+     * The processes of the workers, if they have been launched locally.
+     */
+    private final List<Process> processes;
+
+    /**
+     * The number of words used to store a row.
+     */
+    private int words = -1;
+
+    private ShardCoordinator(List<Shard> shards, List<Process> processes) {
+        this.shards = shards;
+        this.processes = processes;
+    }
+
+    /**
+     * Launches <code>workers</code> worker processes on the local machine and
+     * waits for them to connect.
+     * <br><br>
+     * The workers are run by the same Java runtime and with the same class path
+     * as the current process.
+     *
+     * @param workers
+     * 			The number of workers to launch. Must be strictly positive.
+     *
+     * @return a coordinator connected to the launched workers
+     *
+     * @throws IOException if the workers cannot be launched or do not connect in time
+     * @throws IllegalArgumentException if <code>workers</code> is not strictly positive
+     */
+    public static ShardCoordinator launch(int workers) throws IOException {
+        if (workers < 1)
+            throw new IllegalArgumentException("The number of workers must be strictly positive, got " + workers);
+
+        List<Process> processes = new ArrayList<>();
+
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+            for (int i = 0; i < workers; ++i)
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                 ShardWorker.class.getName(),
+                                                 server.getInetAddress().getHostAddress(),
+                                                 Integer.toString(server.getLocalPort()))
+                        .redirectOutput(Redirect.INHERIT)
+                        .redirectError(Redirect.INHERIT)
+                        .start());
+
+            return new ShardCoordinator(connect(server, workers), processes);
+        } catch (IOException | RuntimeException e) {
+            processes.forEach(Process::destroyForcibly);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for <code>workers</code> workers, launched by the caller, to connect to <code>server</code>.
+     *
+     * @param server
+     * 			The socket the workers connect to.
+     * @param workers
+     * 			The number of workers to wait for. Must be strictly positive.
+     *
+     * @return a coordinator connected to the workers
+     *
+     * @throws IOException if the workers do not connect in time
+     * @throws IllegalArgumentException if <code>workers</code> is not strictly positive
+     */
+    public static ShardCoordinator accept(ServerSocket server, int workers) throws IOException {
+        if (workers < 1)
+            throw new IllegalArgumentException("The number of workers must be strictly positive, got " + workers);
+
+        return new ShardCoordinator(connect(server, workers), new ArrayList<>());
+    }
+
+    private static List<Shard> connect(ServerSocket server, int workers) throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        server.setSoTimeout(ShardProtocol.CONNECTION_TIMEOUT);
+
+        try {
+            while (shards.size() < workers)
+                shards.add(new Shard(server.accept()));
+        } catch (IOException e) {
+            for (Shard shard : shards)
+                shard.socket.close();
+            throw e;
+        }
+        return shards;
+    }
+
+    /**
+     * @return the number of workers
+     */
+    public int workers() {
+        return shards.size();
+    }
+
+    /**
+     * Splits <code>cells</code> into horizontal bands and sends them to the workers.
+     * <br><br>
+     * When the world has fewer rows than there are workers, the extra workers are stopped.
+     *
+     * @return the number of cells alive
+     */
+    long distribute(long[] cells, int width, int height, LifeLikeRule rule) throws IOException {
+        if (words >= 0)
+            throw new IllegalStateException("A world has already been distributed to the workers");
+
+        words = BitGrid.wordsPerRow(width);
+
+        int used = Math.min(shards.size(), height);
+
+        for (Shard idle : shards.subList(used, shards.size())) {
+            idle.out.writeByte(ShardProtocol.CLOSE);
+            idle.out.flush();
+            idle.socket.close();
+        }
+        shards.subList(used, shards.size()).clear();
+
+        for (int i = 0; i < used; ++i) {
+            Shard shard = shards.get(i);
+            shard.firstRow = (int) ((long) height * i / used);
+            shard.rows = (int) ((long) height * (i + 1) / used) - shard.firstRow;
+
+            boolean isLast = i == used - 1;
+            Shard below = isLast ? null : shards.get(i + 1);
+
+            shard.out.writeByte(ShardProtocol.ASSIGN);
+            shard.out.writeInt(width);
+            shard.out.writeInt(shard.rows);
+            shard.out.writeInt(rule.birthMask());
+            shard.out.writeInt(rule.survivalMask());
+            shard.out.writeBoolean(i > 0);
+            shard.out.writeUTF(isLast ? "" : below.socket.getInetAddress().getHostAddress());
+            shard.out.writeInt(isLast ? -1 : below.haloPort);
+            ShardProtocol.writeWords(shard.out, cells, shard.firstRow * words, shard.rows * words);
+            shard.out.flush();
+        }
+        return step(0);
+    }
+
+    /**
+     * Asks the workers to compute <code>generations</code> generations.
+     *
+     * @return the number of cells alive once the generations have been computed
+     */
+    long step(long generations) throws IOException {
+        for (Shard shard : shards) {
+            shard.out.writeByte(ShardProtocol.STEP);
+            shard.out.writeLong(generations);
+            shard.out.flush();
+        }
+
+        long population = 0;
+
+        for (Shard shard : shards)
+            population += shard.in.readLong();
+
+        return population;
+    }
+
+    /**
+     * Gathers the cells of all the shards.
+     *
+     * @param cells
+     * 			The grid in which the cells are written.
+     */
+    void gather(long[] cells) throws IOException {
+        for (Shard shard : shards) {
+            shard.out.writeByte(ShardProtocol.CELLS);
+            shard.out.flush();
+        }
+
+        for (Shard shard : shards)
+            ShardProtocol.readWords(shard.in, cells, shard.firstRow * words, shard.rows * words);
+    }
+
+    /**
+     * Stops the workers and closes the connections.
+     */
+    @Override
+    public void close() {
+        IOException failure = null;
+
+        for (Shard shard : shards) {
+            try {
+                shard.out.writeByte(ShardProtocol.CLOSE);
+                shard.out.flush();
+            } catch (IOException e) {
+                // the worker has already stopped
+            }
+            try {
+                shard.socket.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(ShardProtocol.CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS))
+                    process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (failure != null)
+            throw new UncheckedIOException("Cannot close the connections to the workers", failure);
+    }
+
+    /**
+     * The connection to a worker, and the band of the world it owns.
+     */
+    private static final class Shard {
+
+        final Socket socket;
+
+        final DataInputStream in;
+
+        final DataOutputStream out;
+
+        /**
+         * The port on which the worker accepts the connection of the shard above it.
+         */
+        final int haloPort;
+
+        /**
+         * The first row of the band.
+         */
+        int firstRow;
+
+        /**
+         * The number of rows of the band.
+         */
+        int rows;
+
+        Shard(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = ShardProtocol.input(socket);
+            this.out = ShardProtocol.output(socket);
+
+            socket.setSoTimeout(ShardProtocol.CONNECTION_TIMEOUT);
+            this.haloPort = in.readInt();
+            socket.setSoTimeout(0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * The messages exchanged between a {@link ShardCoordinator} and its {@link ShardWorker}s.
+ * <br><br>
+ * Once connected, a worker sends the port on which it accepts the connection of
+ * the shard above it. The coordinator answers either with {@link #CLOSE}, when the
+ * worker is not needed, or with {@link #ASSIGN} followed by the description of the shard:
+ * <ul>
+ * <li>the width of the world and the number of rows of the shard,</li>
+ * <li>the birth and survival masks of the rule,</li>
+ * <li>whether a shard lies above it, and the host and the port of the shard below it
+ * (-1 if there is none),</li>
+ * <li>its cells.</li>
+ * </ul>
+ * The worker then connects to its neighbours and executes the commands of the
+ * coordinator until it receives {@link #CLOSE}.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class ShardProtocol {
+
+    /**
+     * Describes the shard owned by the worker.
+     */
+    static final byte ASSIGN = 1;
+
+    /**
+     * Computes the number of generations that follows, then answers with the population of the shard.
+     */
+    static final byte STEP = 2;
+
+    /**
+     * Answers with the cells of the shard.
+     */
+    static final byte CELLS = 3;
+
+    /**
+     * Ends the work of the shard.
+     */
+    static final byte CLOSE = 4;
+
+    /**
+     * How long, in milliseconds, peers are waited for before giving up.
+     */
+    static final int CONNECTION_TIMEOUT = 60_000;
+
+    /**
+     * The maximum number of words sent at once.
+     */
+    private static final int CHUNK = 8192;
+
+    private ShardProtocol() {
+        // utility class
+    }
+
+    /**
+     * @return a buffered stream reading from <code>socket</code>
+     */
+    static DataInputStream input(Socket socket) throws IOException {
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * @return a buffered stream writing to <code>socket</code>
+     */
+    static DataOutputStream output(Socket socket) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Writes the words <code>[offset, offset + length)</code> of <code>words</code>.
+     */
+    static void writeWords(DataOutputStream out, long[] words, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 * Math.min(length, CHUNK));
+
+        for (int from = offset, end = offset + length; from < end; from += CHUNK) {
+            int count = Math.min(CHUNK, end - from);
+            buffer.clear();
+            buffer.asLongBuffer().put(words, from, count);
+            out.write(buffer.array(), 0, 8 * count);
+        }
+    }
+
+    /**
+     * Reads <code>length</code> words and stores them from the index <code>offset</code> of <code>words</code>.
+     */
+    static void readWords(DataInputStream in, long[] words, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 * Math.min(length, CHUNK));
+
+        for (int from = offset, end = offset + length; from < end; from += CHUNK) {
+            int count = Math.min(CHUNK, end - from);
+            in.readFully(buffer.array(), 0, 8 * count);
+            buffer.clear();
+            buffer.asLongBuffer().get(words, from, count);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * A process that owns a horizontal band of the world, called a shard, and computes
+ * its evolution on behalf of a {@link ShardCoordinator}.
+ * <br><br>
+ * Shards exchange their boundary rows with their neighbours at each generation
+ * through a {@link HaloTransport}, then compute their next generation independently.
+ * The coordinator only receives the population of the shards, and their cells
+ * when it asks for them.
+ * <br><br>
+ * Workers are usually launched by {@link ShardCoordinator#launch(int)}. They can also
+ * be started on other nodes with:
+ * <pre>
+ * java -cp game-of-life.jar fr.kazejiyu.gameoflife.game.engines.ShardWorker &lt;coordinator host&gt; &lt;coordinator port&gt;
+ * </pre>
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see ShardProtocol
+ */
+public final class ShardWorker {
+
+    /**
+     * The number of words used to store a row.
+     */
+    private final int words;
+
+    /**
+     * The number of rows owned by the shard.
+     */
+    private final int rows;
+
+    /**
+     * The mask of the last word of each row.
+     */
+    private final long lastMask;
+
+    /**
+     * The birth mask of the rule.
+     */
+    private final int birth;
+
+    /**
+     * The survival mask of the rule.
+     */
+    private final int survival;
+
+    /**
+     * The cells of the shard, surrounded by the halos.
+     */
+    private long[] grid;
+
+    /**
+     * The buffer in which the next generation is computed.
+     */
+    private long[] next;
+
+    /**
+     * Exchanges the boundary rows with the neighbours.
+     */
+    private HaloTransport transport;
+
+    private ShardWorker(int width, int rows, int birth, int survival) {
+        this.words = BitGrid.wordsPerRow(width);
+        this.rows = rows;
+        this.lastMask = BitGrid.lastWordMask(width);
+        this.birth = birth;
+        this.survival = survival;
+        this.grid = new long[words * (rows + 2)];
+        this.next = new long[words * (rows + 2)];
+    }
+
+    /**
+     * Connects to a coordinator and computes the evolution of the shard it assigns.
+     *
+     * @param args
+     * 			The host and the port of the coordinator.
+     *
+     * @throws IOException if the connection with the coordinator or with the other workers fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ShardWorker <coordinator host> <coordinator port>");
+            System.exit(1);
+        }
+
+        try (Socket coordinator = new Socket(args[0], Integer.parseInt(args[1]))) {
+            serve(coordinator);
+        }
+    }
+
+    /**
+     * Computes the evolution of the shard assigned by <code>coordinator</code>,
+     * until the coordinator asks to stop.
+     *
+     * @param coordinator
+     * 			The connection to the coordinator.
+     *
+     * @throws IOException if the connection with the coordinator or with the other workers fails
+     */
+    public static void serve(Socket coordinator) throws IOException {
+        DataInputStream in = ShardProtocol.input(coordinator);
+        DataOutputStream out = ShardProtocol.output(coordinator);
+
+        try (ServerSocket haloServer = new ServerSocket(0)) {
+            out.writeInt(haloServer.getLocalPort());
+            out.flush();
+
+            if (in.readByte() != ShardProtocol.ASSIGN)
+                return;
+
+            ShardWorker worker = new ShardWorker(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            boolean hasAbove = in.readBoolean();
+            String belowHost = in.readUTF();
+            int belowPort = in.readInt();
+            ShardProtocol.readWords(in, worker.grid, worker.words, worker.rows * worker.words);
+
+            Socket below = null;
+            Socket above = null;
+
+            try {
+                // connecting first prevents the shards from waiting for each other
+                if (belowPort >= 0) {
+                    below = new Socket();
+                    below.connect(new InetSocketAddress(belowHost, belowPort), ShardProtocol.CONNECTION_TIMEOUT);
+                }
+                if (hasAbove) {
+                    haloServer.setSoTimeout(ShardProtocol.CONNECTION_TIMEOUT);
+                    above = haloServer.accept();
+                }
+                worker.transport = new SocketHaloTransport(above, below);
+            } catch (IOException e) {
+                for (Socket socket : new Socket[] {above, below})
+                    if (socket != null)
+                        socket.close();
+                throw e;
+            }
+
+            try {
+                worker.execute(in, out);
+            } finally {
+                worker.transport.close();
+            }
+        }
+    }
+
+    /**
+     * Executes the commands of the coordinator until it asks to stop.
+     */
+    private void execute(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte command;
+
+            try {
+                command = in.readByte();
+            } catch (EOFException e) {
+                // the coordinator is gone
+                return;
+            }
+
+            switch (command) {
+            case ShardProtocol.STEP:
+                out.writeLong(advance(in.readLong()));
+                break;
+
+            case ShardProtocol.CELLS:
+                ShardProtocol.writeWords(out, grid, words, rows * words);
+                break;
+
+            case ShardProtocol.CLOSE:
+                return;
+
+            default:
+                throw new IOException("Unknown command: " + command);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Computes the generation of the shard that comes <code>generations</code> generations after the current one.
+     *
+     * @return the number of cells alive within the shard
+     */
+    private long advance(long generations) throws IOException {
+        if (generations == 0)
+            return population();
+
+        long population = 0;
+
+        for (long i = 0; i < generations; ++i) {
+            transport.exchange(grid, words, rows);
+            population = BitGrid.stepRows(grid, next, words, rows + 2, 1, rows + 1, lastMask, birth, survival);
+
+            long[] swap = grid;
+            grid = next;
+            next = swap;
+        }
+        return population;
+    }
+
+    /**
+     * @return the number of cells alive within the shard
+     */
+    private long population() {
+        long population = 0;
+
+        for (int i = words; i < (rows + 1) * words; ++i)
+            population += Long.bitCount(grid[i]);
+
+        return population;
+    }
+}
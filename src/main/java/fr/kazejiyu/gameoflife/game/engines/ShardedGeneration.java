@@ -0,0 +1,323 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A mutable implementation of {@link Generation} which cells are split into horizontal
+ * bands owned by worker processes, possibly running on other nodes.
+ * <br><br>
+ * At each generation, each {@link ShardWorker} exchanges its boundary rows with its
+ * neighbours then computes the next state of its band; the {@link ShardCoordinator}
+ * only aggregates the population of the shards. Hence {@link #population()} is cheap,
+ * while reading cells requires to gather the whole world: {@link #snapshot()} does it
+ * once per generation and is used to answer {@link #isAliveAt(int, int)}.
+ * {@link #advance(long)} lets the workers compute several generations without
+ * synchronizing with the coordinator.
+ * <br><br>
+ * {@link #nextGeneration()} updates the instance in place. The generation must be
+ * closed once useless, which stops the workers.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see ShardCoordinator
+ */
+public final class ShardedGeneration extends AbstractGeneration implements AutoCloseable {
+
+    /**
+     * Drives the workers that own the cells.
+     */
+    private final ShardCoordinator coordinator;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * The number of cells alive.
+     */
+    private long population;
+
+    /**
+     * The cells of the current generation, or <code>null</code> if they have not been gathered yet.
+     */
+    private BitPackedGeneration view;
+
+    /**
+     * Creates a new generation which cells are split between <code>shards</code>
+     * worker processes launched on the local machine.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param shards
+     * 			The number of worker processes to launch. Must be strictly positive.
+     *
+     * @throws UncheckedIOException if the workers cannot be launched
+     * @throws IllegalArgumentException if <code>shards</code> is not strictly positive
+     *
+     * @see ShardCoordinator#launch(int)
+     */
+    public ShardedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, int shards) {
+        this(aliveCells, width, height, rule, launch(shards));
+    }
+
+    /**
+     * Creates a new generation which cells are split between the workers of <code>coordinator</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored. The coordinator is closed
+     * along with the generation.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param coordinator
+     * 			Drives the workers that own the cells. Must not have been used by another generation.
+     *
+     * @throws UncheckedIOException if the cells cannot be sent to the workers
+     */
+    public ShardedGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, ShardCoordinator coordinator) {
+        this.coordinator = Objects.requireNonNull(coordinator);
+        this.width = width;
+        this.height = height;
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+
+        int words = BitGrid.wordsPerRow(width);
+        long[] cells = new long[words * height];
+
+        for (Coordinates cell : aliveCells)
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height)
+                BitGrid.set(cells, words, cell.x(), cell.y());
+
+        try {
+            this.population = coordinator.distribute(cells, width, height, masks);
+        } catch (IOException e) {
+            coordinator.close();
+            throw new UncheckedIOException("Cannot send the cells to the workers", e);
+        }
+    }
+
+    private static ShardCoordinator launch(int shards) {
+        try {
+            return ShardCoordinator.launch(shards);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot launch the workers", e);
+        }
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells alive.
+     * <br><br>
+     * Since the world may hold more than {@link Integer#MAX_VALUE} cells alive,
+     * {@link #population()} should be preferred.
+     *
+     * @return the number of cells alive
+     *
+     * @throws ArithmeticException if more than {@link Integer#MAX_VALUE} cells are alive
+     */
+    @Override
+    public int nbOfCellsAlive() {
+        return Math.toIntExact(population);
+    }
+
+    /**
+     * Returns the number of cells alive, which may exceed {@link Integer#MAX_VALUE} in huge worlds.
+     * @return the number of cells alive
+     */
+    @Override
+    public long population() {
+        return population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        return snapshot().isAliveAt(x, y);
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        snapshot().forEachAliveCell(action);
+    }
+
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        snapshot().forEachAliveCellInRowOrder(action);
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        return snapshot().fingerprint();
+    }
+
+    /**
+     * Asks the workers to compute the next generation.
+     *
+     * @return the current instance, updated to the next generation
+     *
+     * @throws UncheckedIOException if a worker fails
+     */
+    @Override
+    public ShardedGeneration nextGeneration() {
+        return advance(1);
+    }
+
+    /**
+     * Asks the workers to compute the generation that comes <code>generations</code>
+     * generations after this one. The workers only report to the coordinator once
+     * the last generation has been computed.
+     *
+     * @return the current instance, updated to the reached generation
+     *
+     * @throws UncheckedIOException if a worker fails
+     */
+    @Override
+    public ShardedGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        try {
+            population = coordinator.step(generations);
+            view = null;
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compute the next generations", e);
+        }
+    }
+
+    /**
+     * Gathers the cells of the workers into an immutable copy of the current state of the world.
+     * <br><br>
+     * The copy evolves exactly as this generation does, in the current process.
+     *
+     * @return an immutable copy of the current state of the world
+     *
+     * @throws UncheckedIOException if the cells cannot be gathered
+     */
+    @Override
+    public BitPackedGeneration snapshot() {
+        if (view != null)
+            return view;
+
+        try {
+            long[] cells = new long[BitGrid.wordsPerRow(width) * height];
+            coordinator.gather(cells);
+            view = new BitPackedGeneration(cells, width, height, rule, masks, null, population);
+            return view;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot gather the cells of the workers", e);
+        }
+    }
+
+    /**
+     * @return <code>true</code>, since the world is stored by worker processes
+     */
+    @Override
+    public boolean holdsExternalResources() {
+        return true;
+    }
+
+    /**
+     * Stops the workers.
+     * <br><br>
+     * The generation must not be used anymore once closed.
+     */
+    @Override
+    public void close() {
+        coordinator.close();
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof ShardedGeneration))
+            return false;
+
+        ShardedGeneration other = (ShardedGeneration) obj;
+        return snapshot().equals(other.snapshot());
+    }
+}
@@ -0,0 +1,155 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link HaloTransport} that exchanges the boundary rows over TCP connections.
+ * <br><br>
+ * The rows are sent by a dedicated thread while the calling one receives the
+ * halos, so that two neighbours never wait for each other to read.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class SocketHaloTransport implements HaloTransport {
+
+    /**
+     * The connection to the shard above, or <code>null</code> if the shard is the first one.
+     */
+    private final Socket above;
+
+    /**
+     * The connection to the shard below, or <code>null</code> if the shard is the last one.
+     */
+    private final Socket below;
+
+    private final DataInputStream fromAbove;
+
+    private final DataOutputStream toAbove;
+
+    private final DataInputStream fromBelow;
+
+    private final DataOutputStream toBelow;
+
+    /**
+     * Sends the boundary rows to the neighbours.
+     */
+    private final ExecutorService sender;
+
+    /**
+     * Creates a new transport that exchanges the boundary rows of a shard
+     * through the given connections.
+     *
+     * @param above
+     * 			The connection to the shard above, or <code>null</code> if the shard is the first one.
+     * @param below
+     * 			The connection to the shard below, or <code>null</code> if the shard is the last one.
+     *
+     * @throws IOException if the streams of the connections cannot be opened
+     */
+    public SocketHaloTransport(Socket above, Socket below) throws IOException {
+        this.above = above;
+        this.below = below;
+        this.fromAbove = above == null ? null : ShardProtocol.input(above);
+        this.toAbove = above == null ? null : ShardProtocol.output(above);
+        this.fromBelow = below == null ? null : ShardProtocol.input(below);
+        this.toBelow = below == null ? null : ShardProtocol.output(below);
+        this.sender = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "halo-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (Socket socket : new Socket[] {above, below})
+            if (socket != null)
+                socket.setTcpNoDelay(true);
+    }
+
+    @Override
+    public void exchange(long[] grid, int words, int rows) throws IOException {
+        Future<Void> sent = sender.submit(() -> {
+            if (toAbove != null) {
+                ShardProtocol.writeWords(toAbove, grid, words, words);
+                toAbove.flush();
+            }
+            if (toBelow != null) {
+                ShardProtocol.writeWords(toBelow, grid, rows * words, words);
+                toBelow.flush();
+            }
+            return null;
+        });
+
+        if (fromAbove == null)
+            Arrays.fill(grid, 0, words, 0);
+        else
+            ShardProtocol.readWords(fromAbove, grid, 0, words);
+
+        if (fromBelow == null)
+            Arrays.fill(grid, (rows + 1) * words, (rows + 2) * words, 0);
+        else
+            ShardProtocol.readWords(fromBelow, grid, (rows + 1) * words, words);
+
+        try {
+            sent.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the boundary rows");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+
+            throw new IOException("Cannot send the boundary rows", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sender.shutdownNow();
+
+        IOException failure = null;
+
+        for (Socket socket : new Socket[] {above, below}) {
+            try {
+                if (socket != null)
+                    socket.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+}
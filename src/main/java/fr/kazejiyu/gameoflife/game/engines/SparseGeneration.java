@@ -0,0 +1,313 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.collections.LongHashSet;
+import fr.kazejiyu.gameoflife.util.collections.LongIntHashMap;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * An immutable implementation of {@link Generation} that stores the coordinates
+ * of its alive cells, packed into <code>long</code>s.
+ * <br><br>
+ * This generation follows the same model than {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration}
+ * but never boxes a cell: alive cells are stored in a {@link LongHashSet} and neighbours
+ * are counted within a {@link LongIntHashMap}. The latter only lives during a call to
+ * {@link #nextGeneration()} or {@link #advance(long)}, which reuses it from one generation
+ * to the next: generations share no mutable state and can be evolved concurrently.
+ * <br><br>
+ * Given the same rule, this generation evolves exactly as an
+ * {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would. The rule must
+ * only depend on the state of the cell and on its number of alive neighbours.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class SparseGeneration extends AbstractGeneration {
+
+    /**
+     * The packed coordinates of the cells that are alive.
+     */
+    private final LongHashSet aliveCells;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * The fingerprint of the generation. It is derived from the fingerprint of the previous
+     * generation while stepping when the latter is known, and computed on first use otherwise.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public SparseGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public SparseGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public SparseGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this(packAll(aliveCells), width, height, Objects.requireNonNull(rule), LifeLikeRule.of(rule), null);
+    }
+
+    private SparseGeneration(LongHashSet aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, LifeLikeRule masks, Fingerprint fingerprint) {
+        this.aliveCells = aliveCells;
+        this.width = width;
+        this.height = height;
+        this.rule = rule;
+        this.masks = masks;
+        this.fingerprint = fingerprint;
+    }
+
+    private static LongHashSet packAll(Collection<Coordinates> cells) {
+        LongHashSet packed = new LongHashSet(cells.size());
+
+        for (Coordinates cell : cells)
+            packed.add(PackedCoordinates.pack(cell));
+
+        return packed;
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return aliveCells.size();
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        return aliveCells.contains(PackedCoordinates.pack(x, y));
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        aliveCells.forEach(cell -> action.accept(PackedCoordinates.x(cell), PackedCoordinates.y(cell)));
+    }
+
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null)
+            fingerprint = Fingerprint.of(this);
+
+        return fingerprint;
+    }
+
+    @Override
+    public SparseGeneration nextGeneration() {
+        LongHashSet next = new LongHashSet(aliveCells.size());
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        step(aliveCells, next, neighboursMap(), nextFingerprint);
+
+        return new SparseGeneration(next, width, height, rule, masks, BitGrid.fingerprintOf(nextFingerprint));
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after this one.
+     * <br><br>
+     * Intermediate generations are not created: the cells are computed alternately
+     * into two sets that are reused from one generation to the next, as is the map
+     * in which neighbours are counted.
+     *
+     * @return the generation that comes <code>generations</code> generations after this one
+     */
+    @Override
+    public SparseGeneration advance(long generations) {
+        if (generations < 0)
+            throw new IllegalArgumentException("cannot go back in time: " + generations + " generations");
+
+        if (generations == 0)
+            return this;
+
+        LongHashSet current = new LongHashSet(aliveCells.size());
+        LongHashSet next = new LongHashSet(aliveCells.size());
+        LongIntHashMap neighbours = neighboursMap();
+        long[] nextFingerprint = BitGrid.bitsOf(fingerprint);
+        step(aliveCells, current, neighbours, nextFingerprint);
+
+        for (long i = 1; i < generations; ++i) {
+            next.clear();
+            neighbours.clear();
+            step(current, next, neighbours, nextFingerprint);
+
+            LongHashSet swap = current;
+            current = next;
+            next = swap;
+        }
+        return new SparseGeneration(current, width, height, rule, masks, BitGrid.fingerprintOf(nextFingerprint));
+    }
+
+    /**
+     * @return an empty map in which the neighbours of the cells of this generation can be counted
+     */
+    private LongIntHashMap neighboursMap() {
+        // most alive cells share their neighbours with other ones
+        return new LongIntHashMap(4 * aliveCells.size());
+    }
+
+    /**
+     * Adds to <code>next</code> the cells that are alive at the generation that follows <code>alive</code>,
+     * and toggles within <code>fingerprint</code> the keys of the cells that are born or die,
+     * unless it is <code>null</code>.
+     * <br><br>
+     * <code>neighbours</code> must be empty: it is filled with the number of alive
+     * neighbours of each cell.
+     */
+    private void step(LongHashSet alive, LongHashSet next, LongIntHashMap neighbours, long[] fingerprint) {
+        alive.forEach(cell -> {
+            int x = PackedCoordinates.x(cell);
+            int y = PackedCoordinates.y(cell);
+
+            // the cell itself is visited below, so that the ones which die are known
+            if (fingerprint != null)
+                neighbours.addTo(cell, 0);
+
+            for (int dy = -1; dy <= 1; ++dy) {
+                int ny = y + dy;
+                if (ny < 0 || ny >= height)
+                    continue;
+
+                for (int dx = -1; dx <= 1; ++dx) {
+                    int nx = x + dx;
+                    if ((dx != 0 || dy != 0) && 0 <= nx && nx < width)
+                        neighbours.addTo(PackedCoordinates.pack(nx, ny), 1);
+                }
+            }
+        });
+
+        neighbours.forEach((cell, count) -> {
+            boolean wasAlive = alive.contains(cell);
+            int mask = wasAlive ? masks.survivalMask() : masks.birthMask();
+            boolean isAlive = count > 0 && (mask >>> count & 1) != 0;
+
+            if (isAlive)
+                next.add(cell);
+
+            if (fingerprint != null && isAlive != wasAlive) {
+                int x = PackedCoordinates.x(cell);
+                int y = PackedCoordinates.y(cell);
+                fingerprint[0] ^= Fingerprint.highKey(x, y);
+                fingerprint[1] ^= Fingerprint.lowKey(x, y);
+            }
+        });
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + height;
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof SparseGeneration))
+            return false;
+
+        SparseGeneration other = (SparseGeneration) obj;
+        return width == other.width && height == other.height
+            && rule.equals(other.rule)
+            && aliveCells.size() == other.aliveCells.size()
+            && fingerprint().equals(other.fingerprint())
+            && aliveCells.equals(other.aliveCells);
+    }
+}
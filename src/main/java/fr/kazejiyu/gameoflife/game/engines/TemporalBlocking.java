@@ -0,0 +1,239 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes several generations of a {@link BitGrid} at once, tile after tile.
+ * <br><br>
+ * Stepping the whole grid once per generation streams the whole world through
+ * memory at each generation. Instead, the grid is split into tiles small enough
+ * to fit in the cache of the processor. Each tile is copied along with a halo of
+ * <code>depth</code> rows above and below it and one word on its left and on its
+ * right, then stepped <code>depth</code> times in place before its interior is written
+ * back. Since the cells of the halo are wrong after a few steps (their own neighbours
+ * are missing), but a wrong state only travels one cell per generation, the interior
+ * of the tile is still exact after <code>depth</code> generations as long as
+ * <code>depth</code> does not exceed the size of the halo.
+ * <br><br>
+ * Each generation computes one row less than the previous one on each side of the
+ * halo (a trapezoid), so that the extra work remains small. The world is read
+ * and written once every <code>depth</code> generations instead of once per generation.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class TemporalBlocking {
+
+    /**
+     * The number of generations computed per pass over the world.
+     * Cannot exceed 64, the size of the horizontal halo.
+     */
+    static final int DEPTH = 16;
+
+    /**
+     * The maximum number of words of a tile row, halo excluded.
+     */
+    private static final int TILE_WORDS = 64;
+
+    /**
+     * The number of words of a tile, halo included, so that its two buffers fit in the L2 cache.
+     */
+    private static final int TILE_BUDGET = 1 << 15;
+
+    private TemporalBlocking() {
+        // utility class
+    }
+
+    /**
+     * Computes the generation that comes <code>generations</code> generations after <code>cells</code>.
+     *
+     * @param cells
+     * 			The current generation. Left unchanged.
+     * @param first
+     * 			A grid of the same size. Overwritten.
+     * @param second
+     * 			Another grid of the same size. Overwritten.
+     * @param pool
+     * 			The pool used to compute the tiles concurrently, or <code>null</code>.
+     *
+     * @return the grid, either <code>first</code> or <code>second</code>, that holds the reached generation
+     */
+    static long[] advance(long[] cells, long[] first, long[] second, int words, int height, long lastMask, int birth, int survival, long generations, ForkJoinPool pool) {
+        long[] src = cells;
+        long[] dst = first;
+
+        for (long done = 0; done < generations; ) {
+            int depth = (int) Math.min(DEPTH, generations - done);
+            Pass pass = new Pass(src, dst, words, height, lastMask, birth, survival, depth);
+
+            if (pool == null || pass.tiles == 1)
+                pass.computeTiles(0, pass.tiles);
+            else
+                pool.invoke(new TileStep(pass, 0, pass.tiles));
+
+            src = dst;
+            dst = dst == first ? second : first;
+            done += depth;
+        }
+        return src;
+    }
+
+    /**
+     * Computes <code>depth</code> generations of a whole grid.
+     */
+    private static final class Pass {
+
+        final long[] src;
+
+        final long[] dst;
+
+        final int words;
+
+        final int height;
+
+        final long lastMask;
+
+        final int birth;
+
+        final int survival;
+
+        final int depth;
+
+        /**
+         * The number of words of a tile row, halo excluded.
+         */
+        final int tileWords;
+
+        /**
+         * The number of rows of a tile, halo excluded.
+         */
+        final int tileRows;
+
+        /**
+         * The number of tiles on a row of the grid.
+         */
+        final int columns;
+
+        /**
+         * The number of tiles.
+         */
+        final int tiles;
+
+        Pass(long[] src, long[] dst, int words, int height, long lastMask, int birth, int survival, int depth) {
+            this.src = src;
+            this.dst = dst;
+            this.words = words;
+            this.height = height;
+            this.lastMask = lastMask;
+            this.birth = birth;
+            this.survival = survival;
+            this.depth = depth;
+            this.tileWords = Math.max(1, Math.min(words, TILE_WORDS));
+            this.tileRows = Math.max(depth, TILE_BUDGET / (tileWords + 2) - 2 * depth);
+            this.columns = (words + tileWords - 1) / tileWords;
+            this.tiles = columns * ((height + tileRows - 1) / tileRows);
+        }
+
+        /**
+         * Computes the tiles <code>[from, to)</code>.
+         */
+        void computeTiles(int from, int to) {
+            int capacity = (tileRows + 2 * depth) * (tileWords + 2);
+            long[] current = new long[capacity];
+            long[] next = new long[capacity];
+
+            for (int tile = from; tile < to; ++tile)
+                computeTile(tile, current, next);
+        }
+
+        private void computeTile(int tile, long[] current, long[] next) {
+            int firstRow = tile / columns * tileRows;
+            int lastRow = Math.min(height, firstRow + tileRows);
+            int firstWord = tile % columns * tileWords;
+            int lastWord = Math.min(words, firstWord + tileWords);
+
+            // the halo, clipped to the world: beyond the world, cells are always dead
+            int top = Math.max(0, firstRow - depth);
+            int bottom = Math.min(height, lastRow + depth);
+            int left = Math.max(0, firstWord - 1);
+            int right = Math.min(words, lastWord + 1);
+
+            int localWords = right - left;
+            int localRows = bottom - top;
+            long localMask = right == words ? lastMask : -1L;
+
+            for (int y = top; y < bottom; ++y)
+                System.arraycopy(src, y * words + left, current, (y - top) * localWords, localWords);
+
+            for (int generation = 1; generation <= depth; ++generation) {
+                // rows of the halo are wrong once their own neighbours are: skip them
+                int fromRow = top > 0 ? generation : 0;
+                int toRow = bottom < height ? localRows - generation : localRows;
+
+                BitGrid.stepRows(current, next, localWords, localRows, fromRow, toRow, localMask, birth, survival);
+
+                long[] swap = current;
+                current = next;
+                next = swap;
+            }
+
+            for (int y = firstRow; y < lastRow; ++y)
+                System.arraycopy(current, (y - top) * localWords + firstWord - left, dst, y * words + firstWord, lastWord - firstWord);
+        }
+    }
+
+    /**
+     * Computes a range of tiles, splitting it in halves as long as it is large enough.
+     */
+    private static final class TileStep extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Pass pass;
+
+        private final int from;
+
+        private final int to;
+
+        TileStep(Pass pass, int from, int to) {
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                pass.computeTiles(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileStep(pass, from, middle), new TileStep(pass, middle, to));
+        }
+    }
+}
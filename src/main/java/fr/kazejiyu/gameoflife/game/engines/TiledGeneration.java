@@ -0,0 +1,581 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Fingerprint;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.collections.LongHashSet;
+import fr.kazejiyu.gameoflife.util.collections.LongObjectHashMap;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+import fr.kazejiyu.gameoflife.util.math.PackedCoordinates;
+
+/**
+ * An immutable implementation of {@link Generation} that splits the world
+ * into tiles of 64x64 cells and only computes the tiles that may change.
+ * <br><br>
+ * Each tile stores one bit per cell, as a {@link BitPackedGeneration} does.
+ * A tile can only change if itself or one of its neighbours changed during
+ * the previous generation: other tiles are shared, as is, with the next generation.
+ * Tiles are allocated when a cell is born within them and freed as soon as they
+ * get empty. Hence, the time required to compute the next generation depends on
+ * the size of the active area of the world, not on its population nor on its size.
+ * <br><br>
+ * The world is either:
+ * <ul>
+ * 	<li><b>bounded</b>: the cells located outside of <code>[0,width)x[0,height)</code> are always dead,
+ * 		such a generation evolves exactly as an {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration} would,</li>
+ * 	<li><b>unbounded</b>: the world grows as needed, <code>width</code> and <code>height</code> only
+ * 		define the area that is observed.</li>
+ * </ul>
+ * The rule must only depend on the state of the cell and on its number of alive neighbours.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see BitGrid
+ */
+public final class TiledGeneration extends AbstractGeneration {
+
+    /**
+     * The binary logarithm of {@link #TILE_SIZE}.
+     */
+    private static final int TILE_SHIFT = 6;
+
+    /**
+     * The number of cells stored on each side of a tile.
+     */
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    /**
+     * A square of 64x64 cells. Never modified once created, so that it can be
+     * shared by consecutive generations.
+     */
+    private static final class Tile {
+
+        /**
+         * The rows of the tile, one bit per cell.
+         */
+        final long[] rows;
+
+        /**
+         * The number of cells alive within the tile.
+         */
+        final int population;
+
+        /**
+         * The fingerprint of the cells of the tile, computed on first use.
+         */
+        private Fingerprint fingerprint;
+
+        Tile(long[] rows, int population) {
+            this.rows = rows;
+            this.population = population;
+        }
+
+        /**
+         * @return the fingerprint of the cells of the tile which packed coordinates are <code>key</code>
+         */
+        Fingerprint fingerprint(long key) {
+            if (fingerprint == null) {
+                int left = PackedCoordinates.x(key) << TILE_SHIFT;
+                int top = PackedCoordinates.y(key) << TILE_SHIFT;
+                long high = 0;
+                long low = 0;
+
+                for (int r = 0; r < TILE_SIZE; ++r) {
+                    for (long word = rows[r]; word != 0; word &= word - 1) {
+                        int x = left + Long.numberOfTrailingZeros(word);
+                        high ^= Fingerprint.highKey(x, top + r);
+                        low ^= Fingerprint.lowKey(x, top + r);
+                    }
+                }
+                fingerprint = Fingerprint.of(high, low);
+            }
+            return fingerprint;
+        }
+    }
+
+    /**
+     * The non-empty tiles of the world, indexed by their packed coordinates.
+     */
+    private final LongObjectHashMap<Tile> tiles;
+
+    /**
+     * The packed coordinates of the tiles that changed since the previous generation,
+     * including the ones that have been freed.
+     */
+    private final LongHashSet changed;
+
+    /**
+     * The number of cells alive in the whole world.
+     */
+    private final long totalPopulation;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * Whether the cells located outside of the world are always dead.
+     */
+    private final boolean bounded;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * The number of cells alive within the observed area, lazily computed.
+     */
+    private long population = -1;
+
+    /**
+     * The fingerprint of the cells alive within the observed area, lazily computed.
+     */
+    private Fingerprint fingerprint;
+
+    /**
+     * Creates a new bounded generation from given pattern.
+     * <br>
+     * The width and the height of the world are initialized to pattern's ones.
+     *
+     * @param pattern
+     * 			The pattern to initialize the world with.
+     */
+    public TiledGeneration(Pattern pattern) {
+        this(pattern.cells, pattern.width, pattern.height);
+    }
+
+    /**
+     * Creates a new bounded generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * The rule followed is {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     */
+    public TiledGeneration(Collection<Coordinates> aliveCells, int width, int height) {
+        this(aliveCells, width, height, Rule.GAME_OF_LIFE, true);
+    }
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * When the world is bounded, coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world, or of the observed area if the world is unbounded.
+     * @param height
+     * 			The height of the world, or of the observed area if the world is unbounded.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     * @param bounded
+     * 			Whether the cells located outside of the world are always dead.
+     */
+    public TiledGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule, boolean bounded) {
+        this.width = width;
+        this.height = height;
+        this.bounded = bounded;
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+
+        LongObjectHashMap<long[]> grids = new LongObjectHashMap<>();
+        for (Coordinates cell : aliveCells) {
+            if (bounded && !isWithinWorld(cell.x(), cell.y()))
+                continue;
+
+            long key = PackedCoordinates.pack(cell.x() >> TILE_SHIFT, cell.y() >> TILE_SHIFT);
+            long[] rows = grids.get(key);
+            if (rows == null)
+                grids.put(key, rows = new long[TILE_SIZE]);
+
+            rows[cell.y() & (TILE_SIZE - 1)] |= 1L << (cell.x() & (TILE_SIZE - 1));
+        }
+
+        this.tiles = new LongObjectHashMap<>(grids.size());
+        this.changed = new LongHashSet(grids.size());
+        long[] total = {0};
+
+        grids.forEach((key, rows) -> {
+            Tile tile = new Tile(rows, (int) BitGrid.population(rows));
+            tiles.put(key, tile);
+            changed.add(key);
+            total[0] += tile.population;
+        });
+        this.totalPopulation = total[0];
+    }
+
+    private TiledGeneration(TiledGeneration previous, LongObjectHashMap<Tile> tiles, LongHashSet changed, long totalPopulation) {
+        this.tiles = tiles;
+        this.changed = changed;
+        this.totalPopulation = totalPopulation;
+        this.width = previous.width;
+        this.height = previous.height;
+        this.bounded = previous.bounded;
+        this.rule = previous.rule;
+        this.masks = previous.masks;
+    }
+
+    private boolean isWithinWorld(int x, int y) {
+        return 0 <= x && x < width && 0 <= y && y < height;
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells alive within the observed area.
+     * @return the number of cells alive within the observed area
+     * @throws ArithmeticException if more than {@link Integer#MAX_VALUE} cells are alive within the observed area
+     * @see #population()
+     */
+    @Override
+    public int nbOfCellsAlive() {
+        return Math.toIntExact(population());
+    }
+
+    /**
+     * Returns the number of cells alive within the observed area.
+     * @return the number of cells alive within the observed area
+     * @see #totalPopulation()
+     */
+    @Override
+    public long population() {
+        if (population < 0)
+            population = bounded ? totalPopulation : countWithinWorld();
+
+        return population;
+    }
+
+    private long countWithinWorld() {
+        long[] count = {0};
+
+        tiles.forEach((key, tile) -> {
+            int left = PackedCoordinates.x(key) << TILE_SHIFT;
+            int top = PackedCoordinates.y(key) << TILE_SHIFT;
+            long columns = columnsWithinWorld(left);
+
+            for (int r = 0; r < TILE_SIZE; ++r)
+                if (0 <= top + r && top + r < height)
+                    count[0] += Long.bitCount(tile.rows[r] & columns);
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns the number of cells alive in the whole world, including the ones
+     * located outside of the observed area.
+     * @return the number of cells alive in the whole world
+     */
+    public long totalPopulation() {
+        return totalPopulation;
+    }
+
+    /**
+     * @return the number of tiles currently allocated
+     */
+    public int nbOfTiles() {
+        return tiles.size();
+    }
+
+    /**
+     * @return the number of tiles that changed since the previous generation
+     */
+    public int nbOfActiveTiles() {
+        return changed.size();
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (!isWithinWorld(x, y))
+            return false;
+
+        Tile tile = tiles.get(PackedCoordinates.pack(x >> TILE_SHIFT, y >> TILE_SHIFT));
+        return tile != null && (tile.rows[y & (TILE_SIZE - 1)] >>> (x & (TILE_SIZE - 1)) & 1) != 0;
+    }
+
+    @Override
+    public void forEachAliveCell(CellConsumer action) {
+        tiles.forEach((key, tile) -> {
+            int left = PackedCoordinates.x(key) << TILE_SHIFT;
+            int top = PackedCoordinates.y(key) << TILE_SHIFT;
+            long columns = columnsWithinWorld(left);
+
+            for (int r = 0; r < TILE_SIZE; ++r) {
+                if (top + r < 0 || top + r >= height)
+                    continue;
+
+                for (long word = tile.rows[r] & columns; word != 0; word &= word - 1)
+                    action.accept(left + Long.numberOfTrailingZeros(word), top + r);
+            }
+        });
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive within the observed area, row by row.
+     * <br><br>
+     * The tiles that overlap the observed area are sorted by row then by column, so that
+     * each row of cells is read across the tiles of its band: only the tiles are sorted,
+     * not the cells.
+     */
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        long[] keys = new long[tiles.size()];
+        int[] nbOfKeys = {0};
+
+        tiles.forEach((key, tile) -> {
+            int top = PackedCoordinates.y(key) << TILE_SHIFT;
+
+            if (columnsWithinWorld(PackedCoordinates.x(key) << TILE_SHIFT) != 0 && top + TILE_SIZE > 0 && top < height)
+                keys[nbOfKeys[0]++] = rowMajor(key);
+        });
+        Arrays.sort(keys, 0, nbOfKeys[0]);
+
+        Tile[] band = new Tile[nbOfKeys[0]];
+        int[] lefts = new int[nbOfKeys[0]];
+
+        for (int first = 0, last; first < nbOfKeys[0]; first = last) {
+            int tileY = (int) (keys[first] >> 32);
+
+            for (last = first; last < nbOfKeys[0] && (int) (keys[last] >> 32) == tileY; ++last) {
+                int tileX = (int) keys[last] ^ Integer.MIN_VALUE;
+                band[last - first] = tiles.get(PackedCoordinates.pack(tileX, tileY));
+                lefts[last - first] = tileX << TILE_SHIFT;
+            }
+            int top = tileY << TILE_SHIFT;
+
+            for (int r = Math.max(0, -top); r < TILE_SIZE && top + r < height; ++r) {
+                for (int i = 0; i < last - first; ++i) {
+                    for (long word = band[i].rows[r] & columnsWithinWorld(lefts[i]); word != 0; word &= word - 1)
+                        action.accept(lefts[i] + Long.numberOfTrailingZeros(word), top + r);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the coordinates packed in <code>key</code>, packed again so that sorting them sorts them by row then by column
+     */
+    private static long rowMajor(long key) {
+        return (long) PackedCoordinates.y(key) << 32 | (PackedCoordinates.x(key) ^ Integer.MIN_VALUE) & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Returns the fingerprint of the cells alive within the observed area.
+     * <br><br>
+     * When the world is bounded, each tile caches its own fingerprint: since the tiles
+     * that do not change are shared with the previous generation, only the ones that
+     * changed have to be fingerprinted again.
+     *
+     * @return the fingerprint of the cells alive within the observed area
+     */
+    @Override
+    public Fingerprint fingerprint() {
+        if (fingerprint == null) {
+            if (bounded) {
+                Fingerprint[] union = {Fingerprint.EMPTY};
+                tiles.forEach((key, tile) -> union[0] = union[0].xor(tile.fingerprint(key)));
+                fingerprint = union[0];
+            }
+            else
+                fingerprint = Fingerprint.of(this);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return the mask of the columns of the tile starting at abscissa <code>left</code> that lie within the world
+     */
+    private long columnsWithinWorld(int left) {
+        if (left < 0 || left >= width)
+            return 0;
+
+        return width - left >= TILE_SIZE ? -1L : (1L << (width - left)) - 1;
+    }
+
+    @Override
+    public TiledGeneration nextGeneration() {
+        LongHashSet candidates = new LongHashSet(changed.size() * 9);
+
+        changed.forEach(key -> {
+            int tx = PackedCoordinates.x(key);
+            int ty = PackedCoordinates.y(key);
+
+            for (int dy = -1; dy <= 1; ++dy)
+                for (int dx = -1; dx <= 1; ++dx)
+                    if (!bounded || isWithinWorld((tx + dx) << TILE_SHIFT, (ty + dy) << TILE_SHIFT))
+                        candidates.add(PackedCoordinates.pack(tx + dx, ty + dy));
+        });
+
+        Step step = new Step();
+        candidates.forEach(step::compute);
+
+        return new TiledGeneration(this, step.tiles, step.changed, step.totalPopulation);
+    }
+
+    /**
+     * Computes the tiles of the next generation.
+     */
+    private final class Step {
+
+        /**
+         * The tiles of the next generation. Starts as a copy of the current ones
+         * so that only the tiles which change have to be updated.
+         */
+        final LongObjectHashMap<Tile> tiles = new LongObjectHashMap<>(TiledGeneration.this.tiles);
+
+        final LongHashSet changed = new LongHashSet();
+
+        long totalPopulation = TiledGeneration.this.totalPopulation;
+
+        /**
+         * Computes the next state of the tile which packed coordinates are <code>key</code>.
+         */
+        void compute(long key) {
+            int tx = PackedCoordinates.x(key);
+            int ty = PackedCoordinates.y(key);
+
+            Tile nw = tileAt(tx - 1, ty - 1), n = tileAt(tx, ty - 1), ne = tileAt(tx + 1, ty - 1);
+            Tile w  = tileAt(tx - 1, ty),     c = tileAt(tx, ty),     e  = tileAt(tx + 1, ty);
+            Tile sw = tileAt(tx - 1, ty + 1), s = tileAt(tx, ty + 1), se = tileAt(tx + 1, ty + 1);
+
+            long columns = bounded ? columnsWithinWorld(tx << TILE_SHIFT) : -1L;
+            int lastRow = bounded ? Math.min(TILE_SIZE, height - (ty << TILE_SHIFT)) : TILE_SIZE;
+
+            long[] rows = new long[TILE_SIZE];
+            int tilePopulation = 0;
+
+            for (int r = 0; r < lastRow; ++r) {
+                boolean top = r == 0;
+                boolean bottom = r == TILE_SIZE - 1;
+
+                long rowNW = top ? row(nw, TILE_SIZE - 1) : row(w, r - 1);
+                long rowN  = top ? row(n, TILE_SIZE - 1)  : row(c, r - 1);
+                long rowNE = top ? row(ne, TILE_SIZE - 1) : row(e, r - 1);
+                long rowSW = bottom ? row(sw, 0) : row(w, r + 1);
+                long rowS  = bottom ? row(s, 0)  : row(c, r + 1);
+                long rowSE = bottom ? row(se, 0) : row(e, r + 1);
+
+                long next = BitGrid.step(rowNW, rowN, rowNE, row(w, r), row(c, r), row(e, r), rowSW, rowS, rowSE, masks.birthMask(), masks.survivalMask());
+                rows[r] = next & columns;
+                tilePopulation += Long.bitCount(rows[r]);
+            }
+
+            int previousPopulation = c == null ? 0 : c.population;
+
+            if (tilePopulation == 0) {
+                if (c != null) {
+                    tiles.remove(key);
+                    changed.add(key);
+                }
+            }
+            else if (c == null || !Arrays.equals(c.rows, rows)) {
+                tiles.put(key, new Tile(rows, tilePopulation));
+                changed.add(key);
+            }
+            totalPopulation += tilePopulation - previousPopulation;
+        }
+
+        private Tile tileAt(int tx, int ty) {
+            return TiledGeneration.this.tiles.get(PackedCoordinates.pack(tx, ty));
+        }
+    }
+
+    /**
+     * @return the row <code>r</code> of <code>tile</code>, or 0 if the tile is empty
+     */
+    private static long row(Tile tile, int r) {
+        return tile == null ? 0 : tile.rows[r];
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (bounded ? 1231 : 1237);
+        result = prime * result + height;
+        result = prime * result + fingerprint().hashCode();
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof TiledGeneration))
+            return false;
+
+        TiledGeneration other = (TiledGeneration) obj;
+        if (width != other.width || height != other.height || bounded != other.bounded
+                || totalPopulation != other.totalPopulation || tiles.size() != other.tiles.size()
+                || !rule.equals(other.rule) || !fingerprint().equals(other.fingerprint()))
+            return false;
+
+        boolean[] same = {true};
+        tiles.forEach((key, tile) -> {
+            Tile otherTile = other.tiles.get(key);
+            same[0] &= otherTile != null && Arrays.equals(tile.rows, otherTile.rows);
+        });
+        return same[0];
+    }
+}
@@ -0,0 +1,110 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Looks for the engine based on the Vector API.
+ * <br><br>
+ * <code>VectorGeneration</code> lives in the <code>vector</code> source set, which
+ * is only compiled by a JDK 16+, and requires the <code>jdk.incubator.vector</code>
+ * module at runtime. It is hence loaded reflectively, and replaced by
+ * {@link BitPackedGeneration} whenever it cannot be used.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class VectorSupport {
+
+    /**
+     * The name of the class that implements the engine.
+     */
+    private static final String VECTOR_GENERATION = "fr.kazejiyu.gameoflife.game.engines.VectorGeneration";
+
+    /**
+     * The constructor of the engine, or <code>null</code> if it cannot be used.
+     */
+    private static final Constructor<? extends Generation> CONSTRUCTOR = lookup();
+
+    private VectorSupport() {
+        // utility class
+    }
+
+    /**
+     * @return whether the engine based on the Vector API can be used
+     */
+    static boolean isAvailable() {
+        return CONSTRUCTOR != null;
+    }
+
+    /**
+     * @return a generation based on the Vector API if available, a {@link BitPackedGeneration} otherwise
+     */
+    static Generation create(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        if (CONSTRUCTOR == null)
+            return new BitPackedGeneration(aliveCells, width, height, rule);
+
+        try {
+            return CONSTRUCTOR.newInstance(aliveCells, width, height, rule);
+
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new IllegalStateException("Cannot create a vectorized generation", e.getCause());
+
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a vectorized generation", e);
+        }
+    }
+
+    /**
+     * @return the constructor of the engine, or <code>null</code> if it cannot be used
+     */
+    private static Constructor<? extends Generation> lookup() {
+        try {
+            Constructor<? extends Generation> constructor = Class.forName(VECTOR_GENERATION)
+                                                                 .asSubclass(Generation.class)
+                                                                 .getConstructor(Collection.class, int.class, int.class, BiPredicate.class);
+
+            // fails if the jdk.incubator.vector module has not been added at runtime
+            constructor.newInstance(Collections.emptySet(), 1, 1, Rule.GAME_OF_LIFE).nextGeneration();
+
+            return constructor;
+
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Alternative implementations of {@link fr.kazejiyu.gameoflife.game.Generation},
+ * each one tailored for a particular kind of world.
+ *
+ * @author Emmanuel Chebbi
+ */
+package fr.kazejiyu.gameoflife.game.engines;
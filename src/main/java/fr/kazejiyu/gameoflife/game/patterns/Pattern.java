@@ -123,8 +123,31 @@ public final class Pattern {
     }
     
     public static Pattern fromFile(String path, Charset encoding) throws IOException {
+    	return Pattern.fromFile(path, encoding, '.');
+    }
+    
+    /**
+     * Reads the pattern stored in a plaintext file, in which each line is a row
+     * and each <code>cell</code> character an alive cell.
+     * <br><br>
+     * The whole file is loaded into memory: large files should rather be read with
+     * {@link fr.kazejiyu.gameoflife.io.textual.PlaintextReader}, which parses them in parallel
+     * straight into a generation.
+     * 
+     * @param path
+     * 			The path toward the file to read.
+     * @param encoding
+     * 			The charset of the file.
+     * @param cell
+     * 			The character that stands for alive cells.
+     * 
+     * @return the pattern stored in the file
+     * 
+     * @throws IOException if the file cannot be read
+     */
+    public static Pattern fromFile(String path, Charset encoding, char cell) throws IOException {
     	byte[] encoded = Files.readAllBytes(Paths.get(path));
-    	return Pattern.fromString(new String(encoded, encoding), '.');
+    	return Pattern.fromString(new String(encoded, encoding), cell);
     }
     
     /**
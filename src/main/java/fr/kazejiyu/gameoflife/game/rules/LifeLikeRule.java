@@ -0,0 +1,310 @@
+package fr.kazejiyu.gameoflife.game.rules;
+
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * A rule that only depends on the state of a cell and on its number of alive
+ * neighbours, compiled into two bit masks.
+ * <br><br>
+ * The n-th bit of the birth mask is set when a dead cell having n alive neighbours
+ * becomes alive, and the n-th bit of the survival mask is set when an alive cell
+ * having n alive neighbours stays alive. Engines may hence compute the next state
+ * of a cell without calling the rule at all.
+ * <br><br>
+ * Such a rule can be created from:
+ * <ul>
+ * 	<li>a standard rulestring, such as <code>B3/S23</code> (see {@link #parse(String)}),</li>
+ * 	<li>a {@link Rule} constant (see {@link Rule#compiled()}),</li>
+ * 	<li>any other rule that only depends on the state of a cell and on its number of alive
+ * 		neighbours, which is then tabulated (see {@link #tabulate(BiPredicate)}).</li>
+ * </ul>
+ * Like {@link fr.kazejiyu.gameoflife.game.ImmutableGeneration}, cells that have no alive
+ * neighbour are always dead at next generation: <code>B0</code> and <code>S0</code> are
+ * hence not supported.
+ * 
+ * @author Emmanuel Chebbi
+ */
+public final class LifeLikeRule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
+
+    /**
+     * The maximum number of neighbours a cell can have.
+     */
+    private static final int MAX_NEIGHBOURS = 8;
+
+    /**
+     * Conditions for a dead cell to become alive.
+     */
+    private final int birth;
+
+    /**
+     * Conditions for an alive cell to stay alive.
+     */
+    private final int survival;
+
+    private LifeLikeRule(int birth, int survival) {
+        this.birth = birth;
+        this.survival = survival;
+    }
+
+    /**
+     * Parses a rulestring.
+     * <br><br>
+     * Both the B/S notation (e.g. <code>B36/S23</code> or <code>S23/B36</code>) and
+     * the classic S/B notation (e.g. <code>23/36</code>) are supported, as well as the
+     * compact B/S notation used by Golly (e.g. <code>b36s23</code>). Letters are
+     * case insensitive.
+     * 
+     * @param rulestring
+     * 			The rulestring to parse.
+     * 
+     * @return the rule described by <code>rulestring</code>
+     * 
+     * @throws IllegalArgumentException if <code>rulestring</code> is malformed or
+     * 		   contains <code>B0</code> or <code>S0</code>
+     */
+    public static LifeLikeRule parse(String rulestring) {
+        String normalized = rulestring.trim().toUpperCase(Locale.ROOT);
+
+        if (normalized.indexOf('/') < 0)
+            normalized = normalized.replaceFirst("^([BS]\\d*)([BS]\\d*)$", "$1/$2");
+
+        String[] parts = normalized.split("/", -1);
+
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Invalid rulestring '" + rulestring + "': expected two parts separated by '/'");
+
+        if (!isPrefixed(parts[0]) && !isPrefixed(parts[1]))
+            return new LifeLikeRule(mask(rulestring, parts[1]), mask(rulestring, parts[0]));
+
+        int birth = -1;
+        int survival = -1;
+
+        for (String part : parts) {
+            if (part.startsWith("B") && birth < 0)
+                birth = mask(rulestring, part.substring(1));
+
+            else if (part.startsWith("S") && survival < 0)
+                survival = mask(rulestring, part.substring(1));
+
+            else
+                throw new IllegalArgumentException("Invalid rulestring '" + rulestring + "': expected one B part and one S part");
+        }
+        return new LifeLikeRule(birth, survival);
+    }
+
+    private static boolean isPrefixed(String part) {
+        return part.startsWith("B") || part.startsWith("S");
+    }
+
+    /**
+     * @return the mask in which the bits listed by <code>digits</code> are set
+     */
+    private static int mask(String rulestring, String digits) {
+        int mask = 0;
+
+        for (char digit : digits.toCharArray()) {
+            if (digit == '0')
+                throw new IllegalArgumentException("Invalid rulestring '" + rulestring + "': cells without alive neighbours are always dead");
+
+            if (digit < '1' || '0' + MAX_NEIGHBOURS < digit)
+                throw new IllegalArgumentException("Invalid rulestring '" + rulestring + "': unexpected character '" + digit + "'");
+
+            mask |= 1 << (digit - '0');
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the compiled form of <code>rule</code>.
+     * <br><br>
+     * Life-like rules and {@link Rule} constants are compiled for free. Other rules are
+     * not converted implicitly, since engines would silently ignore whatever they depend
+     * on besides the number of alive neighbours: they must be tabulated explicitly.
+     * 
+     * @param rule
+     * 			The rule to compile.
+     * 
+     * @return the compiled form of <code>rule</code>
+     * 
+     * @throws IllegalArgumentException if <code>rule</code> is neither a life-like rule nor a {@link Rule} constant
+     * 
+     * @see #tabulate(BiPredicate)
+     */
+    public static LifeLikeRule of(BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        if (rule instanceof LifeLikeRule)
+            return (LifeLikeRule) rule;
+
+        if (rule instanceof Rule)
+            return ((Rule) rule).compiled();
+
+        throw new IllegalArgumentException("The rule must be a life-like rule, got " + rule + ": custom rules must be converted with LifeLikeRule.tabulate");
+    }
+
+    /**
+     * Tabulates <code>rule</code> by calling it once for each possible state of a cell.
+     * <br><br>
+     * Given rule must only depend on the state of the cell and on its number of
+     * alive neighbours: it is called with worlds made of a single cell, located at
+     * two different places. Rules that give different answers depending on the place
+     * of the cell are rejected.
+     * 
+     * @param rule
+     * 			The rule to tabulate.
+     * 
+     * @return the life-like rule equivalent to <code>rule</code>
+     * 
+     * @throws IllegalArgumentException if <code>rule</code> depends on the place of the cell
+     */
+    public static LifeLikeRule tabulate(BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        LifeLikeRule tabulated = tabulate(rule, Coordinates.of(1, 1), 3, 3);
+
+        if (!tabulated.equals(tabulate(rule, Coordinates.of(6, 4), 11, 9)))
+            throw new IllegalArgumentException("The rule must only depend on the state of the cell and on its number of alive neighbours, got " + rule);
+
+        return tabulated;
+    }
+
+    /**
+     * Tabulates <code>rule</code> by calling it on the cell located at <code>probe</code>
+     * within worlds of given size in which only this cell may be alive.
+     */
+    private static LifeLikeRule tabulate(BiPredicate<Generation, Entry<Coordinates, Long>> rule, Coordinates probe, int width, int height) {
+        Generation dead = new ImmutableGeneration(Collections.<Coordinates>emptySet(), width, height, rule);
+        Generation alive = new ImmutableGeneration(Collections.singleton(probe), width, height, rule);
+        int birth = 0;
+        int survival = 0;
+
+        for (long neighbours = 1; neighbours <= MAX_NEIGHBOURS; ++neighbours) {
+            Entry<Coordinates, Long> cell = new SimpleImmutableEntry<>(probe, neighbours);
+
+            if (rule.test(dead, cell))
+                birth |= 1 << neighbours;
+            if (rule.test(alive, cell))
+                survival |= 1 << neighbours;
+        }
+        return new LifeLikeRule(birth, survival);
+    }
+
+    /**
+     * Returns the conditions for a dead cell to become alive.
+     * @return a mask which n-th bit is set when a dead cell having n alive neighbours becomes alive
+     */
+    public int birthMask() {
+        return birth;
+    }
+
+    /**
+     * Returns the conditions for an alive cell to stay alive.
+     * @return a mask which n-th bit is set when an alive cell having n alive neighbours stays alive
+     */
+    public int survivalMask() {
+        return survival;
+    }
+
+    /**
+     * Returns the state of a cell at next generation.
+     * 
+     * @param alive
+     * 			Whether the cell is currently alive.
+     * @param neighbours
+     * 			The number of alive neighbours of the cell.
+     * 
+     * @return whether the cell will be alive at next generation
+     */
+    public boolean isAliveNext(boolean alive, int neighbours) {
+        if (neighbours < 0 || neighbours > MAX_NEIGHBOURS)
+            return false;
+
+        return ((alive ? survival : birth) >>> neighbours & 1) != 0;
+    }
+
+    /**
+     * Returns whether the cell will be alive at next generation.
+     * <br><br>
+     * The state of the cell is only looked up within <code>world</code>
+     * when it matters, i.e. when its number of neighbours leads to a birth
+     * but not to a survival, or conversely.
+     */
+    @Override
+    public boolean test(Generation world, Entry<Coordinates, Long> cell) {
+        long neighbours = cell.getValue();
+
+        if (neighbours < 0 || neighbours > MAX_NEIGHBOURS)
+            return false;
+
+        boolean born = (birth >>> neighbours & 1) != 0;
+        boolean survives = (survival >>> neighbours & 1) != 0;
+
+        if (born == survives)
+            return born;
+
+        return world.isAliveAt(cell.getKey()) ? survives : born;
+    }
+
+    /**
+     * @return the rulestring of the rule, in B/S notation
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("B");
+        appendDigits(sb, birth);
+        sb.append("/S");
+        appendDigits(sb, survival);
+        return sb.toString();
+    }
+
+    private static void appendDigits(StringBuilder sb, int mask) {
+        for (int neighbours = 1; neighbours <= MAX_NEIGHBOURS; ++neighbours)
+            if ((mask >>> neighbours & 1) != 0)
+                sb.append(neighbours);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * birth + survival;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof LifeLikeRule))
+            return false;
+
+        LifeLikeRule other = (LifeLikeRule) obj;
+        return birth == other.birth && survival == other.survival;
+    }
+}
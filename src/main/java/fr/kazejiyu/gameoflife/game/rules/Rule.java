@@ -33,6 +33,11 @@ import fr.kazejiyu.gameoflife.util.math.Coordinates;
 /**
  * The rules that a {@link Generation} can follow in order to determine whether
  * a cell will be alive at the next generation.
+ * <br><br>
+ * Each rule is defined by its rulestring (e.g. <code>B3/S23</code> for the
+ * {@link #GAME_OF_LIFE}) and delegates to its {@link #compiled() compiled form}.
+ * 
+ * @see LifeLikeRule
  * 
  * @author <a href="mailto:emmanuel.chebbi@outlook.fr">Emmanuel Chebbi</a>
  */
@@ -47,15 +52,7 @@ public enum Rule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
      *      <dd>If a cell has 2 neighbouring cells that are alive, its state remains the same.</dd>
      * </dl>
      */
-    GAME_OF_LIFE() {
-        @Override
-        public boolean test(Generation world, Entry<Coordinates, Long> e) {
-            int nbrNeighbours = e.getValue().intValue();
-            Coordinates coordinates = e.getKey();
-
-            return nbrNeighbours == 3 || (nbrNeighbours == 2 && world.isAliveAt(coordinates));
-        }
-    },
+    GAME_OF_LIFE("B3/S23"),
 
     /**
      * A rule very similar to the {@link #GAME_OF_LIFE}.
@@ -66,18 +63,7 @@ public enum Rule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
      *      <dd>If a cell has 2 neighbouring cells that are alive, its state remains the same.</dd>
      * </dl>
      */
-    HIGH_LIFE() {
-        @Override
-        public boolean test(Generation world, Entry<Coordinates, Long> e) {
-            int nbrNeighbours = e.getValue().intValue();
-            Coordinates coordinates = e.getKey();
-
-            if (world.isAliveAt(coordinates))
-                return nbrNeighbours == 2 || nbrNeighbours == 3;
-
-            return nbrNeighbours == 3 || nbrNeighbours == 6;
-        }
-    },
+    HIGH_LIFE("B36/S23"),
 
     /**
      * A rule that defines symmetric dead and alive states.
@@ -88,19 +74,7 @@ public enum Rule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
      *      <dd>If a cell has 4 neighbouring cells that are alive, its state remains the same.</dd>
      * </dl>
      */
-    DAY_AND_NIGHT() {
-        @Override
-        public boolean test(Generation world, Entry<Coordinates, Long> e) {
-            int nbrNeighbours = e.getValue().intValue();
-            Coordinates coordinates = e.getKey();
-
-            if (world.isAliveAt(coordinates))
-                return nbrNeighbours == 3 || nbrNeighbours == 4 || nbrNeighbours == 6 || nbrNeighbours == 7
-                        || nbrNeighbours == 8;
-
-            return nbrNeighbours == 3 || nbrNeighbours == 6 || nbrNeighbours == 7 || nbrNeighbours == 8;
-        }
-    },
+    DAY_AND_NIGHT("B3678/S34678"),
 
     /**
      * A rule that favour the birth of new cells within big figures.
@@ -109,14 +83,7 @@ public enum Rule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
      *      <dd>A cell borns if it has 3 or 4 neighbouring cells that are alive.</dd>
      * </dl>
      */
-    LIFE_3_4() {
-        @Override
-        public boolean test(Generation world, Entry<Coordinates, Long> e) {
-            int nbrNeighbours = e.getValue().intValue();
-
-            return nbrNeighbours == 3 || nbrNeighbours == 4;
-        }
-    },
+    LIFE_3_4("B34/S34"),
 
     /**
      * Another rule.
@@ -125,16 +92,29 @@ public enum Rule implements BiPredicate<Generation, Entry<Coordinates, Long>> {
      *      <dd>A cell borns if it was dead and has 2 neighbouring cells that are alive.</dd>
      * </dl>
      */
-    SEEDS() {
-        @Override
-        public boolean test(Generation world, Entry<Coordinates, Long> e) {
-            int nbrNeighbours = e.getValue().intValue();
-            Coordinates coordinates = e.getKey();
+    SEEDS("B2/S");
+
+    /**
+     * The compiled form of the rule.
+     */
+    private final LifeLikeRule compiled;
 
-            if (world.isAliveAt(coordinates))
-                return false;
+    private Rule(String rulestring) {
+        this.compiled = LifeLikeRule.parse(rulestring);
+    }
 
-            return nbrNeighbours == 2;
-        }
-    };
+    /**
+     * Returns the compiled form of the rule, which engines can evaluate
+     * without calling {@link #test(Generation, Entry)}.
+     * 
+     * @return the compiled form of the rule
+     */
+    public LifeLikeRule compiled() {
+        return compiled;
+    }
+
+    @Override
+    public boolean test(Generation world, Entry<Coordinates, Long> e) {
+        return compiled.test(world, e);
+    }
 }
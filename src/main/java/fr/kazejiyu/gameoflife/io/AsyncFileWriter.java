@@ -0,0 +1,331 @@
+package fr.kazejiyu.gameoflife.io;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link Writer} that encodes its text in UTF-8 and writes it to a file from a dedicated thread.
+ * <br><br>
+ * The text is encoded into one of two buffers; once it is full, the buffer is handed over to
+ * the writer thread, which writes it (compressing it with gzip if requested) while the other
+ * one is filled. Writing to the disk hence overlaps with the computation of the text, and the
+ * memory used is bounded by the size of the buffers whatever the amount of text written.
+ * The calling thread only waits when the writer thread has not finished to write the previous buffer.
+ * <br><br>
+ * An error raised by the writer thread is thrown by the next call to this writer.
+ * The file is complete once {@link #close()} has returned. This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class AsyncFileWriter extends Writer {
+
+    /**
+     * The size of the buffers used by default, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The smallest buffer size allowed, large enough to hold any encoded character.
+     */
+    public static final int MIN_BUFFER_SIZE = 16;
+
+    /**
+     * Handed over to the writer thread to tell it that no more buffer will come.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /**
+     * The buffers filled by the calling thread, waiting to be written.
+     */
+    private final BlockingQueue<ByteBuffer> written = new ArrayBlockingQueue<>(2);
+
+    /**
+     * The buffers written by the writer thread, waiting to be filled again.
+     */
+    private final BlockingQueue<ByteBuffer> recycled = new ArrayBlockingQueue<>(2);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                                                                  .onMalformedInput(CodingErrorAction.REPLACE)
+                                                                  .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * The file written.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The stream that compresses the text before writing it to {@link #channel},
+     * or <code>null</code> if the text is not compressed.
+     */
+    private final OutputStream compressor;
+
+    private final Thread writer;
+
+    /**
+     * The buffer currently filled by the calling thread.
+     */
+    private ByteBuffer current;
+
+    /**
+     * The high surrogate that ended the last chunk of text, waiting for its low surrogate.
+     */
+    private char pendingSurrogate;
+
+    /**
+     * The first error raised by the writer thread.
+     */
+    private volatile IOException failure;
+
+    private boolean closed = false;
+
+    /**
+     * Creates a new writer that writes uncompressed text to <code>target</code>.
+     *
+     * @param target
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public AsyncFileWriter(Path target) throws IOException {
+        this(target, false, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new writer that writes text to <code>target</code>.
+     *
+     * @param target
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     * @param compressed
+     * 			Whether the text has to be compressed with gzip.
+     * @param bufferSize
+     * 			The size of each of the two buffers, in bytes.
+     *
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if <code>bufferSize</code> is lower than {@link #MIN_BUFFER_SIZE}
+     */
+    public AsyncFileWriter(Path target, boolean compressed, int bufferSize) throws IOException {
+        if (bufferSize < MIN_BUFFER_SIZE)
+            throw new IllegalArgumentException("The buffer size must be at least " + MIN_BUFFER_SIZE + " bytes, got " + bufferSize);
+
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            this.compressor = compressed ? new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize) : null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.current = ByteBuffer.allocate(bufferSize);
+        this.recycled.add(ByteBuffer.allocate(bufferSize));
+
+        this.writer = new Thread(this::writeBuffers, "async-writer-" + target.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+
+        if (len == 0)
+            return;
+
+        if (pendingSurrogate != 0) {
+            CharBuffer pair = CharBuffer.wrap(new char[] {pendingSurrogate, cbuf[off]});
+            pendingSurrogate = 0;
+            encode(pair, false);
+            ++off;
+            --len;
+        }
+        encode(CharBuffer.wrap(cbuf, off, len), false);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+
+        if (pendingSurrogate != 0 || len == 0) {
+            write(str.toCharArray(), off, len);
+            return;
+        }
+        encode(CharBuffer.wrap(str, off, off + len), false);
+    }
+
+    /**
+     * Encodes <code>text</code> into the current buffer, handing the buffers over to
+     * the writer thread as they get full.
+     */
+    private void encode(CharBuffer text, boolean endOfInput) throws IOException {
+        while (encoder.encode(text, current, endOfInput).isOverflow())
+            handOver();
+
+        // a high surrogate is only encoded once its low surrogate is known
+        if (text.hasRemaining())
+            pendingSurrogate = text.get();
+    }
+
+    /**
+     * Hands the current buffer over to the writer thread and waits for the other one.
+     */
+    private void handOver() throws IOException {
+        throwIfFailed();
+        current.flip();
+
+        try {
+            written.put(current);
+            current = recycled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer thread");
+        }
+    }
+
+    /**
+     * Hands the text written so far over to the writer thread.
+     * <br><br>
+     * Does not wait for the text to be actually written: it is only guaranteed
+     * to be once the writer has been closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        if (current.position() > 0)
+            handOver();
+    }
+
+    /**
+     * Writes the remaining text, then waits for the writer thread to complete the file.
+     *
+     * @throws IOException if an error occurred while writing the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        try {
+            CharBuffer remaining = CharBuffer.wrap(pendingSurrogate == 0 ? new char[0] : new char[] {pendingSurrogate});
+            pendingSurrogate = 0;
+            encode(remaining, true);
+
+            CoderResult result;
+            while ((result = encoder.flush(current)).isOverflow())
+                handOver();
+
+            if (result.isError())
+                result.throwException();
+
+            if (current.position() > 0)
+                handOver();
+        } finally {
+            closed = true;
+            awaitWriter();
+        }
+        throwIfFailed();
+    }
+
+    private void awaitWriter() throws InterruptedIOException {
+        try {
+            written.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer thread");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("The writer is closed");
+
+        throwIfFailed();
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null)
+            throw new IOException("Cannot write the file", failure);
+    }
+
+    /**
+     * The loop of the writer thread: writes the buffers handed over until {@link #END} is received.
+     * Once an error occurred, the buffers are only recycled so that the calling thread never blocks.
+     */
+    private void writeBuffers() {
+        try {
+            ByteBuffer buffer;
+
+            while ((buffer = written.take()) != END) {
+                if (failure == null) {
+                    try {
+                        writeBuffer(buffer);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                recycled.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                if (compressor != null)
+                    compressor.close();
+                else
+                    channel.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+    }
+
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        if (compressor != null)
+            compressor.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        else {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package fr.kazejiyu.gameoflife.io;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import rx.Observer;
+
+/**
+ * Decouples an observer from the computation of the generations.
+ * <br><br>
+ * The generations received are put in a bounded queue and given to the wrapped
+ * observer by a dedicated thread. Hence a slow observer (e.g. one that prints
+ * the generations) does not slow the computation down, and the computation does
+ * not slow down the other observers. When the queue is full, the {@link Policy}
+ * defines whether the computation waits for the observer or whether generations are dropped.
+ * <br><br>
+ * Since the generations are processed later on, they are stored as {@link Generation#snapshot()}s.
+ * Snapshots that hold resources (see {@link Generation#holdsExternalResources()}) are closed
+ * once observed or dropped: observers must not keep them.
+ * {@link #queueDepth()} and {@link #lag()} tell how far behind the computation the observer is.
+ * <br><br>
+ * {@link fr.kazejiyu.gameoflife.game.Evolution} waits for its pipelined observers to
+ * process all their generations before returning.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class PipelinedObserver implements WorldObserver {
+
+    /**
+     * What to do with a new generation when the queue is full.
+     */
+    public enum Policy {
+
+        /**
+         * Waits for the observer to make room: every generation is observed,
+         * but the computation goes at the pace of the observer.
+         */
+        BLOCK,
+
+        /**
+         * Drops the new generation: the observer sees the generations that were
+         * computed while it was keeping up.
+         */
+        DROP,
+
+        /**
+         * Drops the oldest generation waiting in the queue: the observer always
+         * ends up seeing the most recent generations.
+         */
+        LATEST
+    }
+
+    /**
+     * The observer the generations are given to.
+     */
+    private final Observer<Generation> observer;
+
+    /**
+     * What to do with a new generation when the queue is full.
+     */
+    private final Policy policy;
+
+    /**
+     * The events waiting to be given to the observer.
+     */
+    private final BlockingQueue<Event> queue;
+
+    /**
+     * Counted down once the observer has been notified of the end of the current evolution.
+     */
+    private volatile CountDownLatch terminated = new CountDownLatch(0);
+
+    /**
+     * The number of generations received.
+     */
+    private final AtomicLong received = new AtomicLong();
+
+    /**
+     * The number of generations given to the observer.
+     */
+    private final AtomicLong delivered = new AtomicLong();
+
+    /**
+     * The number of generations dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The sequence number of the last generation given to the observer.
+     */
+    private volatile long lastDelivered = 0;
+
+    /**
+     * The thread that notifies the observer of the current evolution, started by its first event.
+     */
+    private Thread consumer;
+
+    /**
+     * Creates a new pipelined observer which queue holds up to <code>capacity</code> generations.
+     *
+     * @param observer
+     * 			The observer the generations are given to.
+     * @param policy
+     * 			What to do with a new generation when the queue is full.
+     * @param capacity
+     * 			The maximum number of generations waiting to be observed. Must be strictly positive.
+     *
+     * @throws IllegalArgumentException if <code>capacity</code> is not strictly positive
+     */
+    public PipelinedObserver(Observer<Generation> observer, Policy policy, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The capacity must be strictly positive, got " + capacity);
+
+        this.observer = Objects.requireNonNull(observer);
+        this.policy = Objects.requireNonNull(policy);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void onNext(Generation generation) {
+        long sequence = received.incrementAndGet();
+
+        // the queue is only emptied by the consumer: if it has room, the offer will succeed
+        if (policy == Policy.DROP && queue.remainingCapacity() == 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        Generation snapshot = generation.snapshot();
+        Event event = new Event(sequence, snapshot, null, false, snapshot != generation);
+
+        switch (policy) {
+        case BLOCK:
+        case DROP:
+            put(event);
+            break;
+
+        case LATEST:
+            startConsumer();
+
+            while (!queue.offer(event)) {
+                Event oldest = queue.peek();
+
+                // the end of the previous evolution must not be dropped
+                if (oldest != null && oldest.terminal) {
+                    put(event);
+                    break;
+                }
+                if (queue.remove(oldest)) {
+                    dropped.incrementAndGet();
+                    oldest.release();
+                }
+            }
+            break;
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        put(new Event(0, null, null, true, false));
+        endEvolution();
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        put(new Event(0, null, e, true, false));
+        endEvolution();
+    }
+
+    private void put(Event event) {
+        startConsumer();
+
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + observer + " to make room", e);
+        }
+    }
+
+    private synchronized void startConsumer() {
+        if (consumer != null)
+            return;
+
+        // the consumer of the previous evolution may still be processing its last generations
+        CountDownLatch previous = terminated;
+        CountDownLatch current = new CountDownLatch(1);
+
+        consumer = new Thread(() -> consume(previous, current), "pipelined-" + observer.getClass().getSimpleName());
+        consumer.setDaemon(true);
+        terminated = current;
+        consumer.start();
+    }
+
+    /**
+     * Lets the next event start a new consumer.
+     */
+    private synchronized void endEvolution() {
+        consumer = null;
+    }
+
+    /**
+     * Gives the events of the queue to the observer until the evolution ends.
+     * <br><br>
+     * If the observer fails, it is notified of the failure and the following
+     * events are discarded, so that the computation never waits for it.
+     */
+    private void consume(CountDownLatch previous, CountDownLatch current) {
+        boolean failed = false;
+
+        try {
+            previous.await();
+
+            while (true) {
+                Event event = queue.take();
+
+                try {
+                    if (!failed)
+                        deliver(event);
+                } catch (RuntimeException e) {
+                    failed = true;
+                    observer.onError(e);
+                } finally {
+                    event.release();
+                }
+                if (event.terminal)
+                    return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            current.countDown();
+        }
+    }
+
+    private void deliver(Event event) {
+        if (!event.terminal) {
+            observer.onNext(event.generation);
+            lastDelivered = event.sequence;
+            delivered.incrementAndGet();
+        } else if (event.error != null) {
+            observer.onError(event.error);
+        } else {
+            observer.onCompleted();
+        }
+    }
+
+    /**
+     * Blocks until the observer has been notified of the end of the current evolution.
+     *
+     * @param timeout
+     * 			The maximum time to wait.
+     * @param unit
+     * 			The unit of <code>timeout</code>.
+     *
+     * @return <code>true</code> if the observer has been notified, <code>false</code> if the time elapsed
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Blocks until the observer has been notified of the end of the current evolution.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * @return the number of generations waiting to be observed
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of generations computed since the last one the observer
+     * has been given. An observer that keeps up has a lag of 0 or 1.
+     *
+     * @return how many generations the observer is behind the computation
+     */
+    public long lag() {
+        return received.get() - lastDelivered;
+    }
+
+    /**
+     * @return the number of generations received
+     */
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * @return the number of generations given to the observer
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of generations dropped because the queue was full
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PipelinedObserver [observer=" + observer + ", policy=" + policy + ", depth=" + queueDepth()
+             + ", lag=" + lag() + ", dropped=" + dropped() + "]";
+    }
+
+    /**
+     * A generation, or the end of the evolution.
+     */
+    private static final class Event {
+
+        /**
+         * The rank of the generation among the ones received.
+         */
+        final long sequence;
+
+        final Generation generation;
+
+        /**
+         * The error that ended the evolution, if any.
+         */
+        final Throwable error;
+
+        /**
+         * Whether the event ends the evolution.
+         */
+        final boolean terminal;
+
+        /**
+         * Whether {@link #generation} is a snapshot created by this observer, which must hence release it.
+         */
+        final boolean owned;
+
+        Event(long sequence, Generation generation, Throwable error, boolean terminal, boolean owned) {
+            this.sequence = sequence;
+            this.generation = generation;
+            this.error = error;
+            this.terminal = terminal;
+            this.owned = owned;
+        }
+
+        /**
+         * Closes the snapshot if it holds resources, once it has been observed or dropped.
+         */
+        void release() {
+            if (!owned || !generation.holdsExternalResources())
+                return;
+
+            try {
+                ((AutoCloseable) generation).close();
+            } catch (Exception e) {
+                // the snapshot is not used anymore: failing to release it must not stop the observer
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package fr.kazejiyu.gameoflife.io.binary;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.engines.BitGrid;
+import fr.kazejiyu.gameoflife.game.engines.Engine;
+import fr.kazejiyu.gameoflife.game.engines.GenerationFactory;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Reads back the generations recorded by an {@link EvolutionLogWriter}, in any order.
+ * <br><br>
+ * Only the index of the log is read when it is opened. Reading a generation maps the part
+ * of the file that starts at the closest keyframe, then applies the deltas recorded since;
+ * its cost hence depends on the keyframe interval, not on the number of generations.
+ * <br><br>
+ * Generations are numbered from 0, the first one observed by the writer.
+ * Instances of this class are thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see LogFormat
+ */
+public final class EvolutionLog implements Closeable {
+
+    private final FileChannel channel;
+
+    private final int width;
+
+    private final int height;
+
+    private final int keyframeInterval;
+
+    /**
+     * The number of generations recorded.
+     */
+    private final long size;
+
+    /**
+     * The offset of the index, which follows the last record.
+     */
+    private final long indexOffset;
+
+    /**
+     * The offsets of the keyframes.
+     */
+    private final long[] keyframes;
+
+    private EvolutionLog(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        long length = channel.size();
+        if (length < LogFormat.HEADER_SIZE + LogFormat.TRAILER_SIZE)
+            throw new IOException("Not an evolution log: the file is too short");
+
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, LogFormat.HEADER_SIZE);
+        if (header.getInt() != LogFormat.MAGIC)
+            throw new IOException("Not an evolution log: wrong magic number");
+
+        byte version = header.get();
+        if (version != LogFormat.VERSION)
+            throw new IOException("Unsupported evolution log version: " + version);
+
+        this.width = header.getInt();
+        this.height = header.getInt();
+        this.keyframeInterval = header.getInt();
+
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, length - LogFormat.TRAILER_SIZE, LogFormat.TRAILER_SIZE);
+        this.size = trailer.getLong();
+        this.indexOffset = trailer.getLong();
+        int nbOfKeyframes = trailer.getInt();
+
+        if (trailer.getInt() != LogFormat.MAGIC || indexOffset + 8L * nbOfKeyframes != length - LogFormat.TRAILER_SIZE)
+            throw new IOException("Not an evolution log: the index is missing or corrupted");
+
+        ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 8L * nbOfKeyframes);
+        this.keyframes = new long[nbOfKeyframes];
+        for (int i = 0; i < nbOfKeyframes; ++i)
+            keyframes[i] = index.getLong();
+    }
+
+    /**
+     * Opens the log stored in <code>file</code>.
+     *
+     * @param file
+     * 			The file written by an {@link EvolutionLogWriter}.
+     *
+     * @return the log stored in <code>file</code>
+     *
+     * @throws IOException if the file cannot be read or is not a complete evolution log
+     */
+    public static EvolutionLog open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            return new EvolutionLog(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the width of the world
+     */
+    public int cols() {
+        return width;
+    }
+
+    /**
+     * @return the height of the world
+     */
+    public int rows() {
+        return height;
+    }
+
+    /**
+     * @return the number of generations between two keyframes
+     */
+    public int keyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * @return the number of generations recorded
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive in the given generation, row after row.
+     *
+     * @param generation
+     * 			The number of the generation, from 0 to <code>size() - 1</code>.
+     * @param action
+     * 			The action to perform on the coordinates of each alive cell.
+     *
+     * @throws IOException if the log cannot be read
+     * @throws IndexOutOfBoundsException if the generation has not been recorded
+     */
+    public void forEachAliveCell(long generation, CellConsumer action) throws IOException {
+        int words = BitGrid.wordsPerRow(width);
+        BitGrid.forEachAlive(cellsOf(generation), words, action);
+    }
+
+    /**
+     * Rebuilds the given generation.
+     *
+     * @param generation
+     * 			The number of the generation, from 0 to <code>size() - 1</code>.
+     * @param engine
+     * 			The engine used to create the generation.
+     * @param rule
+     * 			The rule followed by the generation, which is not recorded in the log.
+     *
+     * @return the given generation, that can be evolved further
+     *
+     * @throws IOException if the log cannot be read
+     * @throws IndexOutOfBoundsException if the generation has not been recorded
+     */
+    public Generation generation(long generation, GenerationFactory engine, BiPredicate<Generation, Entry<Coordinates, Long>> rule) throws IOException {
+        Collection<Coordinates> cells = new ArrayList<>();
+        forEachAliveCell(generation, (x, y) -> cells.add(Coordinates.of(x, y)));
+
+        return engine.create(cells, width, height, rule);
+    }
+
+    /**
+     * Rebuilds the given generation with {@link Engine#BIT_PACKED}, following {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param generation
+     * 			The number of the generation, from 0 to <code>size() - 1</code>.
+     *
+     * @return the given generation
+     *
+     * @throws IOException if the log cannot be read
+     * @throws IndexOutOfBoundsException if the generation has not been recorded
+     */
+    public Generation generation(long generation) throws IOException {
+        return generation(generation, Engine.BIT_PACKED, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * @return the cells of the given generation, one bit per cell
+     */
+    private long[] cellsOf(long generation) throws IOException {
+        if (generation < 0 || generation >= size)
+            throw new IndexOutOfBoundsException("No generation " + generation + " in a log of " + size + " generations");
+
+        int keyframe = (int) (generation / keyframeInterval);
+        long start = keyframes[keyframe];
+        long end = keyframe + 1 < keyframes.length ? keyframes[keyframe + 1] : indexOffset;
+
+        if (end - start > Integer.MAX_VALUE)
+            throw new IOException("Cannot map the " + (end - start) + " bytes between two keyframes");
+
+        ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        long[] cells = new long[BitGrid.wordsPerRow(width) * height];
+
+        if (records.get() != LogFormat.KEYFRAME)
+            throw new IOException("Corrupted evolution log: no keyframe at offset " + start);
+
+        readCells(records, cells, true);
+
+        for (long i = keyframe * (long) keyframeInterval; i < generation; ++i) {
+            if (records.get() != LogFormat.DELTA)
+                throw new IOException("Corrupted evolution log: no delta for generation " + (i + 1));
+
+            readCells(records, cells, true);
+            readCells(records, cells, false);
+        }
+        return cells;
+    }
+
+    /**
+     * Reads a list of cells and makes them alive, or dead, within <code>cells</code>.
+     */
+    private void readCells(ByteBuffer records, long[] cells, boolean alive) {
+        int words = BitGrid.wordsPerRow(width);
+        long count = LogFormat.getVarLong(records);
+        long index = -1;
+
+        for (long i = 0; i < count; ++i) {
+            index += LogFormat.getVarLong(records) + 1;
+
+            int y = (int) (index / width);
+            int x = (int) (index - (long) y * width);
+            int word = y * words + (x >>> 6);
+
+            if (alive)
+                cells[word] |= 1L << x;
+            else
+                cells[word] &= ~(1L << x);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,325 @@
+package fr.kazejiyu.gameoflife.io.binary;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.io.WorldObserver;
+
+/**
+ * Records the observed generations into a compact binary log that can be read back
+ * with random access by {@link EvolutionLog}.
+ * <br><br>
+ * Each generation is recorded as the cells born and dead since the previous one, except one
+ * generation out of <code>keyframeInterval</code> which lists all its alive cells; the offsets
+ * of these keyframes are written in an index once the evolution completes (or fails), so that
+ * any generation can be rebuilt from the closest keyframe and a few deltas.
+ * <br><br>
+ * The file is created when the first generation is observed and is complete once
+ * {@link #onCompleted()} has returned. The size of the world is the one of the first generation.
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see LogFormat
+ */
+public final class EvolutionLogWriter implements WorldObserver {
+
+    /**
+     * The number of generations between two keyframes used by default.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private final Path file;
+
+    private final int keyframeInterval;
+
+    /**
+     * The file being written, or <code>null</code> if no generation has been observed yet.
+     */
+    private FileChannel channel;
+
+    /**
+     * The bytes waiting to be written to {@link #channel}.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * The number of bytes already written to {@link #channel}.
+     */
+    private long flushed;
+
+    private int width;
+
+    private int height;
+
+    /**
+     * The number of generations recorded so far.
+     */
+    private long generations;
+
+    /**
+     * The offsets of the keyframes recorded so far.
+     */
+    private long[] keyframes = new long[16];
+
+    private int nbOfKeyframes;
+
+    /**
+     * The linear indexes of the cells alive in the last generation recorded, sorted.
+     */
+    private long[] previous = new long[16];
+
+    private int previousSize;
+
+    /**
+     * The linear indexes of the cells alive in the generation being recorded.
+     */
+    private long[] current = new long[16];
+
+    private int currentSize;
+
+    /**
+     * The cells born and dead since the previous generation. Reused from one generation to another.
+     */
+    private long[] born = new long[16];
+    private long[] dead = new long[16];
+
+    /**
+     * Creates a new writer that records a keyframe every {@value #DEFAULT_KEYFRAME_INTERVAL} generations.
+     *
+     * @param file
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     */
+    public EvolutionLogWriter(Path file) {
+        this(file, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param file
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     * @param keyframeInterval
+     * 			The number of generations between two keyframes. The lower it is, the faster
+     * 			a generation can be read back, but the larger the file is.
+     *
+     * @throws IllegalArgumentException if <code>keyframeInterval</code> is not strictly positive
+     */
+    public EvolutionLogWriter(Path file, int keyframeInterval) {
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("The keyframe interval must be strictly positive, got " + keyframeInterval);
+
+        this.file = Objects.requireNonNull(file);
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    @Override
+    public void onNext(Generation generation) {
+        try {
+            if (channel == null)
+                open(generation.cols(), generation.rows());
+
+            record(generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the index, then closes the file.
+     */
+    @Override
+    public void onCompleted() {
+        try {
+            if (channel == null)
+                open(0, 0);
+
+            finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the index of the generations recorded so far, then closes the file,
+     * so that they can be read back.
+     */
+    @Override
+    public void onError(Throwable e) {
+        if (channel != null)
+            onCompleted();
+    }
+
+    private void open(int width, int height) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        flushed = 0;
+        generations = 0;
+        nbOfKeyframes = 0;
+        previousSize = 0;
+        this.width = width;
+        this.height = height;
+
+        buffer.clear();
+        buffer.putInt(LogFormat.MAGIC)
+              .put(LogFormat.VERSION)
+              .putInt(width)
+              .putInt(height)
+              .putInt(keyframeInterval);
+    }
+
+    private void record(Generation generation) throws IOException {
+        currentSize = 0;
+        generation.forEachAliveCell((x, y) -> {
+            if (x < 0 || x >= width || y < 0 || y >= height)
+                return;
+
+            if (currentSize == current.length)
+                current = Arrays.copyOf(current, currentSize * 2);
+
+            current[currentSize++] = (long) y * width + x;
+        });
+        Arrays.sort(current, 0, currentSize);
+
+        if (generations % keyframeInterval == 0)
+            writeKeyframe();
+        else
+            writeDelta();
+
+        long[] swap = previous;
+        previous = current;
+        current = swap;
+        previousSize = currentSize;
+        ++generations;
+    }
+
+    private void writeKeyframe() throws IOException {
+        if (nbOfKeyframes == keyframes.length)
+            keyframes = Arrays.copyOf(keyframes, nbOfKeyframes * 2);
+
+        keyframes[nbOfKeyframes++] = position();
+
+        ensureRemaining(1);
+        buffer.put(LogFormat.KEYFRAME);
+        writeCells(current, currentSize);
+    }
+
+    private void writeDelta() throws IOException {
+        int nbOfBorn = 0;
+        int nbOfDead = 0;
+        int i = 0;
+        int j = 0;
+
+        // both generations are sorted: merge them to find the cells that differ
+        while (i < previousSize || j < currentSize) {
+            if (j == currentSize || (i < previousSize && previous[i] < current[j])) {
+                if (nbOfDead == dead.length)
+                    dead = Arrays.copyOf(dead, nbOfDead * 2);
+
+                dead[nbOfDead++] = previous[i++];
+            }
+            else if (i == previousSize || current[j] < previous[i]) {
+                if (nbOfBorn == born.length)
+                    born = Arrays.copyOf(born, nbOfBorn * 2);
+
+                born[nbOfBorn++] = current[j++];
+            }
+            else {
+                ++i;
+                ++j;
+            }
+        }
+
+        ensureRemaining(1);
+        buffer.put(LogFormat.DELTA);
+        writeCells(born, nbOfBorn);
+        writeCells(dead, nbOfDead);
+    }
+
+    /**
+     * Writes the size of <code>cells</code>, then the gaps between its sorted elements.
+     */
+    private void writeCells(long[] cells, int size) throws IOException {
+        ensureRemaining(LogFormat.MAX_VARLONG_SIZE);
+        LogFormat.putVarLong(buffer, size);
+
+        long next = 0;
+        for (int i = 0; i < size; ++i) {
+            ensureRemaining(LogFormat.MAX_VARLONG_SIZE);
+            LogFormat.putVarLong(buffer, cells[i] - next);
+            next = cells[i] + 1;
+        }
+    }
+
+    private void finish() throws IOException {
+        long indexOffset = position();
+
+        for (int i = 0; i < nbOfKeyframes; ++i) {
+            ensureRemaining(8);
+            buffer.putLong(keyframes[i]);
+        }
+        ensureRemaining(LogFormat.TRAILER_SIZE);
+        buffer.putLong(generations)
+              .putLong(indexOffset)
+              .putInt(nbOfKeyframes)
+              .putInt(LogFormat.MAGIC);
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the offset within the file of the next byte written
+     */
+    private long position() {
+        return flushed + buffer.position();
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            flushed += channel.write(buffer);
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package fr.kazejiyu.gameoflife.io.binary;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and encoding routines shared by {@link EvolutionLogWriter} and {@link EvolutionLog}.
+ * <br><br>
+ * A log is laid out as follows (all numbers are big-endian):
+ * <ul>
+ * 	<li>a header: {@link #MAGIC}, {@link #VERSION}, then the width, the height and the
+ * 		keyframe interval of the world as <code>int</code>s,</li>
+ * 	<li>one record per generation: either a {@link #KEYFRAME}, that lists all the alive cells,
+ * 		or a {@link #DELTA}, that lists the cells born and the cells dead since the previous generation,</li>
+ * 	<li>an index: the offset of each keyframe within the file, as <code>long</code>s,</li>
+ * 	<li>a trailer: the number of generations and the offset of the index as <code>long</code>s,
+ * 		the number of keyframes as an <code>int</code>, then {@link #MAGIC} again.</li>
+ * </ul>
+ * A list of cells is made of its size followed by the cells in row-major order. Each cell is
+ * identified by its linear index <code>y * width + x</code> and encoded as the gap since the
+ * previous one, so that close cells take a single byte. Sizes and gaps are stored as
+ * variable-length integers (7 bits per byte, the high bit telling whether another byte follows).
+ *
+ * @author Emmanuel Chebbi
+ */
+final class LogFormat {
+
+    /**
+     * Starts and ends each log ("GOLB").
+     */
+    static final int MAGIC = 0x474F_4C42;
+
+    /**
+     * The version of the format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    static final int HEADER_SIZE = 4 + 1 + 3 * 4;
+
+    /**
+     * The size of the trailer, in bytes.
+     */
+    static final int TRAILER_SIZE = 2 * 8 + 2 * 4;
+
+    /**
+     * The type of a record listing all the alive cells.
+     */
+    static final byte KEYFRAME = 1;
+
+    /**
+     * The type of a record listing the cells born and dead since the previous generation.
+     */
+    static final byte DELTA = 2;
+
+    /**
+     * The maximum number of bytes of a variable-length <code>long</code>.
+     */
+    static final int MAX_VARLONG_SIZE = 10;
+
+    private LogFormat() {
+        // utility class
+    }
+
+    /**
+     * Writes <code>value</code>, which must be positive, as a variable-length integer.
+     */
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * @return the variable-length integer read from <code>buffer</code>
+     */
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+    }
+}
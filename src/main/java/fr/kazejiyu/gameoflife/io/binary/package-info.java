@@ -0,0 +1,6 @@
+/**
+ * Compact binary archives of an evolution, that can be read back with random access.
+ * 
+ * @author Emmanuel Chebbi
+ */
+package fr.kazejiyu.gameoflife.io.binary;
\ No newline at end of file
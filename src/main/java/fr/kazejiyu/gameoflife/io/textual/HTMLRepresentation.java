@@ -24,88 +24,121 @@ package fr.kazejiyu.gameoflife.io.textual;
  * SOFTWARE.
  */
 
+import java.io.IOException;
+
 import fr.kazejiyu.gameoflife.game.Generation;
 
 /**
  * An HTML representation of one or several {@link Generation}.
+ * <br><br>
+ * Each generation is drawn as a table which rows are made of runs of alive
+ * and of dead cells, so that the size of the document depends on the number
+ * of runs rather than on the number of cells.
  * 
  * @author Emmanuel Chebbi
  */
-public final class HTMLRepresentation extends TextualRepresentation {
-	
-    private int currentGen = 0;
-
-    private final StringBuilder html;
+public final class HTMLRepresentation extends StreamedRepresentation {
 
     private static final String HTML_HEADER = htmlHeader();
 
-    public HTMLRepresentation() {
-        this.html = new StringBuilder(HTML_HEADER);
-    }
-
     @Override
-    public String textToWrite() {
-        return html.toString();
+    protected void writeHeader(Appendable out) throws IOException {
+        out.append(HTML_HEADER);
     }
 
     @Override
-    public void onCompleted() {
-        html.append("</center>\n</body>\n</html>");
-    }
+    protected void writeGeneration(Appendable out, int index, Generation generation) throws IOException {
+        out.append("<h2>Génération " + index + "</h2>\n");
+        out.append("<table style='width:" + 20 * generation.cols() + "px'>\n");
+        out.append("    <colgroup><col span='" + generation.cols() + "'></colgroup>\n");
 
-    @Override
-    public void onError(Throwable e) {
-        System.err.println("AN ERROR OCCURED: " + e.getMessage());
+        Table table = new Table(out, generation.rows(), generation.cols());
+        RowRuns.forEach(generation, table::alive);
+        table.end();
+
+        out.append("</table>\n");
     }
 
     @Override
-    public void onNext(Generation generation) {
-        html.append("<h2>Génération " + (++currentGen) + "</h2>\n");
-        html.append(asHTML(generation));
+    protected void writeFooter(Appendable out) throws IOException {
+        out.append("</center>\n</body>\n</html>");
     }
 
     /**
-     * @return the HTML representation of {@code game}
+     * Writes the rows of a table from the runs of alive cells, filling the gaps with dead cells.
      */
-    private String asHTML(Generation game) {
-        String content = game.toString();
-        StringBuilder sb = new StringBuilder("<table border='1' style='color:white;border-collapse:collapse'>\n");
+    private static final class Table {
+
+        private final Appendable out;
 
-        int returnSkiped = 0;
+        private final int rows;
 
-        for (int row = 0; row < game.rows(); row++) {
-            sb.append("    <tr>\n        ");
-            for (int col = 0; col < game.cols(); col++) {
-                char curr;
+        private final int cols;
 
-                do {
-                    int linearIndex = row * game.cols() + col + returnSkiped;
+        /**
+         * The row being written, or -1 if none has been started yet.
+         */
+        private int row = -1;
 
-                    if (linearIndex >= content.length())
-                        throw new IllegalArgumentException(
-                                "the result's format of game.toString() method is not as expected");
+        /**
+         * The first col of the current row that has not been written yet.
+         */
+        private int col = 0;
 
-                    curr = content.charAt(linearIndex);
+        Table(Appendable out, int rows, int cols) {
+            this.out = out;
+            this.rows = rows;
+            this.cols = cols;
+        }
 
-                    if (curr == '\n')
-                        returnSkiped++;
+        /**
+         * Writes the <code>length</code> alive cells starting at <code>(x,y)</code>,
+         * preceded by the dead cells located since the previous run.
+         */
+        void alive(int y, int x, int length) throws IOException {
+            moveTo(y);
+            cells("dead", x - col);
+            cells("alive", length);
+            col = x + length;
+        }
 
-                } while (curr == '\n');
+        /**
+         * Writes the dead cells that follow the last run.
+         */
+        void end() throws IOException {
+            moveTo(rows);
+        }
 
-                String cell = (curr == 'o') ? "<TD width='20' style='background:red';>&nbsp;</TD>"
-                        : "<TD width='20' style='background:white';>&nbsp;</TD>";
-                sb.append(cell);
+        /**
+         * Completes the current row and the empty ones until <code>y</code> is reached.
+         */
+        private void moveTo(int y) throws IOException {
+            while (row < y) {
+                if (row >= 0) {
+                    cells("dead", cols - col);
+                    out.append("</tr>\n");
+                }
+                if (++row < rows)
+                    out.append("    <tr>");
+
+                col = 0;
             }
-            sb.append("\n    </tr>\n");
         }
-        sb.append("</table>\n");
 
-        return sb.toString();
+        private void cells(String state, int span) throws IOException {
+            if (span > 1)
+                out.append("<td class='" + state + "' colspan='" + span + "'></td>");
+            else if (span == 1)
+                out.append("<td class='" + state + "'></td>");
+        }
     }
 
     private static String htmlHeader() {
-        return "<html>\n" + "<head>\n" + "<meta http-equiv='Content-Type' content='text/html'; charset='utf-8'>\n"
-                + "<title>Jeu de la vie</title>\n" + "</head><body style='background:yellow;'>\n" + "<center>\n"
+        return "<html>\n" + "<head>\n" + "<meta http-equiv='Content-Type' content='text/html; charset=utf-8'>\n"
+                + "<title>Jeu de la vie</title>\n"
+                + "<style>table{border:1px solid black;border-collapse:collapse;table-layout:fixed;margin:auto}"
+                + "tr{height:20px}td{padding:0}td.dead{background:white}td.alive{background:red}</style>\n"
+                + "</head><body style='background:yellow;'>\n" + "<center>\n"
                 + "<h1 align='center'>Le jeu de la vie</h1>";
     }
 
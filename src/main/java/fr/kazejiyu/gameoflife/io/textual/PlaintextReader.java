@@ -0,0 +1,326 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.engines.GenerationBuilder;
+import fr.kazejiyu.gameoflife.game.engines.GenerationFactory;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Reads a generation from a plaintext grid, in which each line is a row of the world and
+ * each character a cell.
+ * <br><br>
+ * The file is memory-mapped and split into chunks made of whole lines, which are parsed by
+ * the threads of the common {@link ForkJoinPool}: a first pass measures the lines of each
+ * chunk, so that the row of each line and the size of the world are known, then a second
+ * pass gives the alive cells straight to the {@link GenerationBuilder} of the engine. When
+ * the builder does not accept concurrent rows, the cells of each chunk are gathered into
+ * a primitive array and given to the builder once all the chunks have been parsed.
+ * <br><br>
+ * Like {@link fr.kazejiyu.gameoflife.game.patterns.Pattern#fromString(String, char)}, lines end
+ * with <code>\n</code> or <code>\r\n</code>, the width of the world is the length of its longest
+ * line and the empty lines that end the file are ignored. The file is expected to be encoded in
+ * UTF-8, or in any ASCII-compatible single-byte charset.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see RleReader
+ */
+public final class PlaintextReader {
+
+    /**
+     * The minimum size of a chunk, so that small files are not split.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The maximum size of a chunk, so that it can be mapped.
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * The number of chunks per thread, so that threads that are done can help the others.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private PlaintextReader() {
+        // static utility
+    }
+
+    /**
+     * Reads the generation stored in <code>file</code>, which follows {@link Rule#GAME_OF_LIFE}.
+     *
+     * @param file
+     * 			The plaintext file to read.
+     * @param alive
+     * 			The character that stands for alive cells. Any other character stands for a dead cell.
+     * @param engine
+     * 			The engine used to create the generation.
+     *
+     * @return the generation stored in <code>file</code>
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if <code>alive</code> is not an ASCII character
+     *
+     * @see #read(Path, char, GenerationFactory, BiPredicate)
+     */
+    public static Generation read(Path file, char alive, GenerationFactory engine) throws IOException {
+        return read(file, alive, engine, Rule.GAME_OF_LIFE);
+    }
+
+    /**
+     * Reads the generation stored in <code>file</code>.
+     *
+     * @param file
+     * 			The plaintext file to read.
+     * @param alive
+     * 			The character that stands for alive cells. Any other character stands for a dead cell.
+     * @param engine
+     * 			The engine used to create the generation.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     *
+     * @return the generation stored in <code>file</code>
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if <code>alive</code> is not an ASCII character
+     */
+    public static Generation read(Path file, char alive, GenerationFactory engine, BiPredicate<Generation, Entry<Coordinates, Long>> rule) throws IOException {
+        if (alive > 0x7F)
+            throw new IllegalArgumentException("The alive character must be an ASCII character, got '" + alive + "'");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Chunk[] chunks = split(channel);
+            Arrays.stream(chunks).parallel().forEach(Chunk::measure);
+
+            long rows = 0;
+            long height = 0;
+            int width = 0;
+
+            for (Chunk chunk : chunks) {
+                chunk.firstRow = (int) rows;
+                rows += chunk.lines;
+
+                if (rows > Integer.MAX_VALUE)
+                    throw new IOException("The file has too many lines: " + rows);
+
+                if (chunk.lastFilledLine >= 0)
+                    height = chunk.firstRow + chunk.lastFilledLine + 1;
+
+                width = Math.max(width, chunk.width);
+            }
+            GenerationBuilder builder = engine.builder(width, (int) height, rule);
+
+            if (builder.acceptsConcurrentRows())
+                Arrays.stream(chunks).parallel().forEach(chunk -> chunk.parse((byte) alive, builder));
+            else {
+                Arrays.stream(chunks).parallel().forEach(chunk -> chunk.parse((byte) alive, chunk));
+
+                for (Chunk chunk : chunks)
+                    chunk.replay(builder);
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Maps <code>channel</code> into chunks that end with a line separator, except the last one.
+     */
+    private static Chunk[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long count = Math.min(size / MIN_CHUNK_SIZE, (long) CHUNKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism());
+        count = Math.max(Math.max(count, 1), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+
+        for (long i = 1; i <= count && start < size; ++i) {
+            long end = i == count ? size : lineEnd(channel, Math.max(start, size / count * i));
+
+            if (end - start > Integer.MAX_VALUE)
+                throw new IOException("The lines of the file are too long to be mapped");
+
+            chunks.add(new Chunk(channel.map(MapMode.READ_ONLY, start, end - start)));
+            start = end;
+        }
+        return chunks.toArray(new Chunk[chunks.size()]);
+    }
+
+    /**
+     * @return the position that follows the first line separator found from <code>position</code>,
+     * 		   or the size of the file if there is none
+     */
+    private static long lineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+        int read;
+
+        while ((read = channel.read(buffer, position)) > 0) {
+            for (int i = 0; i < read; ++i)
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+
+            position += read;
+            buffer.clear();
+        }
+        return channel.size();
+    }
+
+    /**
+     * A part of the file made of whole lines.
+     * <br><br>
+     * A chunk also gathers its alive cells when the builder does not accept concurrent rows.
+     */
+    private static final class Chunk implements CellConsumer {
+
+        private final ByteBuffer bytes;
+
+        /**
+         * The number of lines of the chunk.
+         */
+        private int lines;
+
+        /**
+         * The length of the longest line of the chunk.
+         */
+        private int width;
+
+        /**
+         * The index of the last line of the chunk that is not empty, or -1.
+         */
+        private int lastFilledLine = -1;
+
+        /**
+         * The row of the first line of the chunk.
+         */
+        private int firstRow;
+
+        /**
+         * The alive cells of the chunk, their row packed in the high bits.
+         */
+        private long[] cells = new long[0];
+
+        private int size = 0;
+
+        Chunk(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Computes the number of lines of the chunk and the length of the longest one.
+         */
+        void measure() {
+            int line = 0;
+            int col = 0;
+
+            for (int i = 0, length = bytes.limit(); i < length; ++i) {
+                byte b = bytes.get(i);
+
+                if (b == '\n') {
+                    if (col > 0) {
+                        width = Math.max(width, col);
+                        lastFilledLine = line;
+                    }
+                    ++line;
+                    col = 0;
+                }
+                else if (isCharacter(i, b))
+                    ++col;
+            }
+            if (col > 0) {
+                width = Math.max(width, col);
+                lastFilledLine = line++;
+            }
+            lines = line;
+        }
+
+        /**
+         * Gives the alive cells of the chunk to <code>action</code>.
+         */
+        void parse(byte alive, CellConsumer action) {
+            int x = 0;
+            int y = firstRow;
+
+            for (int i = 0, length = bytes.limit(); i < length; ++i) {
+                byte b = bytes.get(i);
+
+                if (b == '\n') {
+                    x = 0;
+                    ++y;
+                }
+                else if (isCharacter(i, b)) {
+                    if (b == alive)
+                        action.accept(x, y);
+
+                    ++x;
+                }
+            }
+        }
+
+        /**
+         * @return whether the byte <code>b</code> located at <code>i</code> starts a character of a line:
+         * 		   it is neither the <code>\r</code> of a line separator nor the continuation of a UTF-8 sequence
+         */
+        private boolean isCharacter(int i, byte b) {
+            if (b == '\r')
+                return i + 1 == bytes.limit() || bytes.get(i + 1) != '\n';
+
+            return (b & 0xC0) != 0x80;
+        }
+
+        @Override
+        public void accept(int x, int y) {
+            if (size == cells.length)
+                cells = Arrays.copyOf(cells, Math.max(16, size * 2));
+
+            cells[size++] = (long) y << 32 | x;
+        }
+
+        /**
+         * Gives the alive cells gathered by {@link #parse(byte, CellConsumer)} to <code>action</code>.
+         */
+        void replay(CellConsumer action) {
+            for (int i = 0; i < size; ++i)
+                action.accept((int) cells[i], (int) (cells[i] >>> 32));
+
+            cells = null;
+        }
+    }
+}
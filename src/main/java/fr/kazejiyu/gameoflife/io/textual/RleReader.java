@@ -0,0 +1,256 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.engines.GenerationBuilder;
+import fr.kazejiyu.gameoflife.game.engines.GenerationFactory;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Reads a generation from a file in the Run Length Encoded format.
+ * <br><br>
+ * Such a file starts with optional comment lines, beginning with <code>#</code>, followed by a
+ * header line of the form <code>x = 3, y = 3, rule = B3/S23</code> which gives the size of the
+ * world and its rule. The cells follow, row after row: <code>b</code> stands for a dead cell,
+ * <code>o</code> for an alive one and <code>$</code> for the end of a row, each of them being
+ * optionally preceded by a number of repetitions. The pattern ends with <code>!</code>.
+ * <br><br>
+ * The file is decoded as it is read, and each alive cell is given straight to the
+ * {@link GenerationBuilder} of the engine: the memory required hence only depends on the
+ * representation of the generation, whatever the size of the file.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see RleWriter
+ */
+public final class RleReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The maximum length of the header line, to detect files that are not RLE.
+     */
+    private static final int MAX_HEADER_LENGTH = 1 << 12;
+
+    private final ReadableByteChannel source;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private RleReader(ReadableByteChannel source) {
+        this.source = source;
+        this.buffer.flip();
+    }
+
+    /**
+     * Reads the generation stored in <code>file</code>.
+     *
+     * @param file
+     * 			The RLE file to read.
+     * @param engine
+     * 			The engine used to create the generation.
+     *
+     * @return the generation stored in <code>file</code>
+     *
+     * @throws IOException if the file cannot be read or is not a valid RLE file
+     *
+     * @see #read(ReadableByteChannel, GenerationFactory)
+     */
+    public static Generation read(Path file, GenerationFactory engine) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, engine);
+        }
+    }
+
+    /**
+     * Reads a generation from <code>source</code>.
+     * <br><br>
+     * The world has the size given by the header, and follows its rule;
+     * {@link Rule#GAME_OF_LIFE} is used when the header does not specify any.
+     *
+     * @param source
+     * 			The channel to read. It is not closed.
+     * @param engine
+     * 			The engine used to create the generation.
+     *
+     * @return the generation read from <code>source</code>
+     *
+     * @throws IOException if the channel cannot be read or does not contain a valid RLE pattern
+     */
+    public static Generation read(ReadableByteChannel source, GenerationFactory engine) throws IOException {
+        return new RleReader(source).read(engine);
+    }
+
+    private Generation read(GenerationFactory engine) throws IOException {
+        String header = readHeader();
+
+        int width = -1;
+        int height = -1;
+        BiPredicate<Generation, Entry<Coordinates, Long>> rule = Rule.GAME_OF_LIFE;
+
+        for (String field : header.split(",")) {
+            String[] entry = field.split("=", 2);
+
+            if (entry.length != 2)
+                throw new IOException("Invalid RLE header '" + header + "': expected key = value pairs");
+
+            String key = entry[0].trim();
+            String value = entry[1].trim();
+
+            if (key.equals("x"))
+                width = parseSize(header, value);
+            else if (key.equals("y"))
+                height = parseSize(header, value);
+            else if (key.equals("rule"))
+                rule = parseRule(header, value);
+        }
+        if (width < 0 || height < 0)
+            throw new IOException("Invalid RLE header '" + header + "': the size of the pattern is missing");
+
+        GenerationBuilder builder = engine.builder(width, height, rule);
+        readCells(builder);
+        return builder.build();
+    }
+
+    /**
+     * Skips the comment lines, then returns the header line.
+     */
+    private String readHeader() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+
+        while ((c = next()) != -1) {
+            if (c != '\n') {
+                if (line.length() == MAX_HEADER_LENGTH)
+                    throw new IOException("Invalid RLE file: the header line is too long");
+
+                line.append((char) c);
+                continue;
+            }
+            String header = line.toString().trim();
+
+            if (!header.isEmpty() && header.charAt(0) != '#')
+                return header;
+
+            line.setLength(0);
+        }
+        throw new IOException("Invalid RLE file: the header line is missing");
+    }
+
+    private static int parseSize(String header, String value) throws IOException {
+        try {
+            int size = Integer.parseInt(value);
+
+            if (size >= 0)
+                return size;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IOException("Invalid RLE header '" + header + "': '" + value + "' is not a valid size");
+    }
+
+    /**
+     * Parses the rulestrings written by other tools, such as <code>B3/S23</code>, <code>b3s23</code> or <code>23/3</code>.
+     * The topology that may follow the rule, such as <code>:T100,100</code>, is ignored.
+     */
+    private static LifeLikeRule parseRule(String header, String value) throws IOException {
+        try {
+            return LifeLikeRule.parse(value.split(":", 2)[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid RLE header '" + header + "': unsupported rule", e);
+        }
+    }
+
+    /**
+     * Decodes the cells of the pattern and gives the alive ones to <code>builder</code>.
+     */
+    private void readCells(GenerationBuilder builder) throws IOException {
+        int x = 0;
+        int y = 0;
+        long count = 0;
+        int c;
+
+        while ((c = next()) != '!') {
+            if (c == -1)
+                throw new IOException("Invalid RLE file: the pattern does not end with '!'");
+
+            if ('0' <= c && c <= '9') {
+                count = count * 10 + (c - '0');
+
+                if (count > Integer.MAX_VALUE)
+                    throw new IOException("Invalid RLE file: the count of row " + y + " is too large");
+
+                continue;
+            }
+            if (Character.isWhitespace(c))
+                continue;
+
+            int repetitions = count == 0 ? 1 : (int) count;
+            count = 0;
+
+            if (c == 'b' || c == '.')
+                x += repetitions;
+
+            else if (c == '$') {
+                x = 0;
+                y += repetitions;
+            }
+            else if (c == 'o' || ('A' <= c && c <= 'X')) {
+                for (int i = 0; i < repetitions; ++i)
+                    builder.accept(x + i, y);
+
+                x += repetitions;
+            }
+            else
+                throw new IOException("Invalid RLE file: unexpected character '" + (char) c + "' in row " + y);
+        }
+    }
+
+    /**
+     * @return the next byte of the source, or -1 once its end is reached
+     */
+    private int next() throws IOException {
+        while (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read = source.read(buffer);
+            buffer.flip();
+
+            if (read == -1)
+                return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+}
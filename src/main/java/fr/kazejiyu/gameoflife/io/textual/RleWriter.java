@@ -0,0 +1,178 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map.Entry;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Writes a generation to a file in the Run Length Encoded format.
+ * <br><br>
+ * The alive cells are read row after row from the generation, and the runs they form are
+ * encoded as they end and written through a fixed size buffer: no representation of the
+ * whole pattern is built. The engines that cannot visit their cells in this order have to
+ * sort them first, as explained by {@link Generation#forEachAliveCellInRowOrder}.
+ * Lines are wrapped at 70 characters, as most tools do.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see RleReader
+ */
+public final class RleWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The maximum number of characters per line of the pattern.
+     */
+    private static final int MAX_LINE_LENGTH = 70;
+
+    private final WritableByteChannel target;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The number of characters written on the current line.
+     */
+    private int lineLength = 0;
+
+    /**
+     * The position of the next cell to write.
+     */
+    private int x = 0;
+
+    private int y = 0;
+
+    private RleWriter(WritableByteChannel target) {
+        this.target = target;
+    }
+
+    /**
+     * Writes <code>generation</code> into <code>file</code>.
+     *
+     * @param generation
+     * 			The generation to write.
+     * @param rule
+     * 			The rule followed by the generation.
+     * @param file
+     * 			The file to write. Created if it does not exist, truncated otherwise.
+     *
+     * @throws IOException if the file cannot be written
+     *
+     * @see #write(Generation, BiPredicate, WritableByteChannel)
+     */
+    public static void write(Generation generation, BiPredicate<Generation, Entry<Coordinates, Long>> rule, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(generation, rule, channel);
+        }
+    }
+
+    /**
+     * Writes <code>generation</code> into <code>target</code>.
+     * <br><br>
+     * The header gives the size of the world and <code>rule</code>, as a rulestring.
+     *
+     * @param generation
+     * 			The generation to write.
+     * @param rule
+     * 			The rule followed by the generation. Must only depend on the number
+     * 			of alive neighbours of the cells.
+     * @param target
+     * 			The channel to write. It is not closed.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public static void write(Generation generation, BiPredicate<Generation, Entry<Coordinates, Long>> rule, WritableByteChannel target) throws IOException {
+        new RleWriter(target).write(generation, LifeLikeRule.of(rule));
+    }
+
+    private void write(Generation generation, LifeLikeRule rule) throws IOException {
+        put("x = " + generation.cols() + ", y = " + generation.rows() + ", rule = " + rule + "\n");
+
+        RowRuns.forEach(generation, (row, col, length) -> {
+            if (row > y) {
+                putRun(row - y, '$');
+                x = 0;
+                y = row;
+            }
+            if (col > x)
+                putRun(col - x, 'b');
+
+            putRun(length, 'o');
+            x = col + length;
+        });
+        putRun(1, '!');
+        put("\n");
+        flush();
+    }
+
+    /**
+     * Writes a run of <code>length</code> tags, or a single tag if <code>length</code> is 1, starting a new line if it does not fit on the current one.
+     */
+    private void putRun(int length, char tag) throws IOException {
+        int digits = length == 1 ? 0 : (int) Math.log10(length) + 1;
+
+        if (lineLength + digits + 1 > MAX_LINE_LENGTH) {
+            put("\n");
+            lineLength = 0;
+        }
+        if (buffer.remaining() < digits + 1)
+            flush();
+
+        for (int i = digits - 1, n = length; i >= 0; --i, n /= 10)
+            buffer.put(buffer.position() + i, (byte) ('0' + n % 10));
+
+        buffer.position(buffer.position() + digits);
+        buffer.put((byte) tag);
+        lineLength += digits + 1;
+    }
+
+    private void put(String text) throws IOException {
+        if (buffer.remaining() < text.length())
+            flush();
+
+        buffer.put(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            target.write(buffer);
+
+        buffer.clear();
+    }
+}
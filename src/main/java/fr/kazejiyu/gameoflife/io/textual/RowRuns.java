@@ -0,0 +1,122 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Generation;
+
+/**
+ * Gathers the alive cells of a {@link Generation} into runs: horizontal sequences
+ * of consecutive alive cells, visited row after row.
+ * <br><br>
+ * The cells are read through {@link Generation#forEachAliveCellInRowOrder(CellConsumer)}
+ * and each run is handed over as soon as it ends, so that only the current run is held
+ * in memory and the time required is proportional to the population of the generation
+ * rather than to the size of its world.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class RowRuns implements CellConsumer {
+
+    /**
+     * An operation that accepts a run of alive cells.
+     */
+    @FunctionalInterface
+    interface RunConsumer {
+
+        /**
+         * Performs this operation on the <code>length</code> alive cells that start at <code>(col,row)</code>.
+         *
+         * @throws IOException if the run cannot be written
+         */
+        void accept(int row, int col, int length) throws IOException;
+    }
+
+    private final RunConsumer action;
+
+    /**
+     * The first cell of the current run.
+     */
+    private int row;
+
+    private int col;
+
+    /**
+     * The number of cells of the current run, 0 when no cell has been visited yet.
+     */
+    private int length = 0;
+
+    private RowRuns(RunConsumer action) {
+        this.action = action;
+    }
+
+    /**
+     * Performs <code>action</code> for each run of alive cells of <code>generation</code>,
+     * from the top left cell to the bottom right one.
+     *
+     * @throws IOException if <code>action</code> fails
+     */
+    static void forEach(Generation generation, RunConsumer action) throws IOException {
+        RowRuns runs = new RowRuns(action);
+
+        try {
+            generation.forEachAliveCellInRowOrder(runs);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        runs.end();
+    }
+
+    @Override
+    public void accept(int x, int y) {
+        if (length != 0 && y == row && x == col + length) {
+            ++length;
+            return;
+        }
+        try {
+            end();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        row = y;
+        col = x;
+        length = 1;
+    }
+
+    /**
+     * Hands the current run over to the action, if any.
+     *
+     * @throws IOException if the action fails
+     */
+    private void end() throws IOException {
+        if (length != 0)
+            action.accept(row, col, length);
+    }
+}
@@ -0,0 +1,154 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+
+/**
+ * A {@link TextualRepresentation} that writes each generation as soon as it is observed.
+ * <br><br>
+ * By default, the text is kept in memory until it is written, as with any other representation.
+ * Once {@link #streamTo(Appendable)} has been called, the text is appended to the given output
+ * instead, so that the memory used does not grow with the number of generations.
+ * 
+ * @author Emmanuel Chebbi
+ */
+public abstract class StreamedRepresentation extends TextualRepresentation {
+
+    /**
+     * The text written so far, or <code>null</code> once the text is streamed.
+     */
+    private StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Where the text is written.
+     */
+    private Appendable out = buffer;
+
+    /**
+     * Whether the header has already been written.
+     */
+    private boolean started = false;
+
+    private int currentGen = 0;
+
+    /**
+     * Writes the text that precedes the first generation.
+     * 
+     * @param out
+     * 			Where the text has to be written.
+     * 
+     * @throws IOException if the text cannot be written
+     */
+    protected abstract void writeHeader(Appendable out) throws IOException;
+
+    /**
+     * Writes the representation of a generation.
+     * 
+     * @param out
+     * 			Where the text has to be written.
+     * @param index
+     * 			The number of the generation, starting from 1.
+     * @param generation
+     * 			The generation to write.
+     * 
+     * @throws IOException if the text cannot be written
+     */
+    protected abstract void writeGeneration(Appendable out, int index, Generation generation) throws IOException;
+
+    /**
+     * Writes the text that follows the last generation.
+     * 
+     * @param out
+     * 			Where the text has to be written.
+     * 
+     * @throws IOException if the text cannot be written
+     */
+    protected abstract void writeFooter(Appendable out) throws IOException;
+
+    /**
+     * Appends the text of the next generations to <code>out</code> instead of keeping it in memory.
+     * <br><br>
+     * The representation starts over: the header is written before the next generation.
+     * <b>Important</b>: it is user's responsibility to close <code>out</code>.
+     * 
+     * @param out
+     * 			Where the text has to be written.
+     */
+    public void streamTo(Appendable out) {
+        this.out = Objects.requireNonNull(out);
+        this.buffer = null;
+        this.started = false;
+        this.currentGen = 0;
+    }
+
+    /**
+     * @return the text written so far
+     * @throws IllegalStateException if the text has been streamed
+     */
+    @Override
+    protected String textToWrite() {
+        if (buffer == null)
+            throw new IllegalStateException("The representation is streamed: its text is not kept in memory");
+
+        return buffer.toString();
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            writeHeader(out);
+            started = true;
+        }
+    }
+
+    @Override
+    public void onNext(Generation generation) {
+        try {
+            start();
+            writeGeneration(out, ++currentGen, generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        try {
+            start();
+            writeFooter(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        System.err.println("AN ERROR OCCURED: " + e.getMessage());
+    }
+}
@@ -26,13 +26,26 @@ package fr.kazejiyu.gameoflife.io.textual;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Objects;
 
 import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.io.AsyncFileWriter;
 
 /**
  * A decorator that provides automatic save when the decored
  * <code>TextualRepresentation</code>'s {@link #onCompleted()} method is called.
+ * <br><br>
+ * When the decorated instance is a {@link StreamedRepresentation}, its text is streamed to
+ * the file as the generations are observed, through an {@link AsyncFileWriter}: the file is
+ * written by a dedicated thread while the next generations are computed, and the memory used
+ * does not depend on the number of generations. Other representations are written once completed.
+ * In both cases, the file is complete once {@link #onCompleted()} has returned.
+ * <br><br>
+ * The failures of the file are not swallowed: {@link #onCompleted()} throws an
+ * {@link UncheckedIOException} when the file cannot be written or closed, and a failure
+ * to close the file while the evolution fails is added as suppressed to its error.
  * 
  * @author <a href="mailto:emmanuel.chebbi@outlook.fr">Emmanuel Chebbi</a>
  */
@@ -48,6 +61,22 @@ public final class WrittenOnCompleted extends TextualRepresentation {
      */
     private final TextualRepresentation toBeSaved;
 
+    /**
+     * Whether the file is compressed with gzip.
+     */
+    private final boolean compressed;
+
+    /**
+     * The size of the buffers of the writer, in bytes.
+     */
+    private final int bufferSize;
+
+    /**
+     * The writer to which the representation is streamed, or <code>null</code>
+     * if the representation is not being streamed.
+     */
+    private Writer writer;
+
     /**
      * @param path
      * 			The path toward the file in which the representation has to be written.
@@ -65,8 +94,29 @@ public final class WrittenOnCompleted extends TextualRepresentation {
      * 			The representation that will be saved once completed.
      */
     public WrittenOnCompleted(File destFile, TextualRepresentation toBeSaved) {
+        this(destFile, toBeSaved, false, AsyncFileWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param destFile
+     * 			The file in which the representation has to be written.
+     * @param toBeSaved
+     * 			The representation that will be saved once completed.
+     * @param compressed
+     * 			Whether the file has to be compressed with gzip.
+     * @param bufferSize
+     * 			The size of each of the two buffers used to write the file, in bytes.
+     * 
+     * @throws IllegalArgumentException if <code>bufferSize</code> is lower than {@link AsyncFileWriter#MIN_BUFFER_SIZE}
+     */
+    public WrittenOnCompleted(File destFile, TextualRepresentation toBeSaved, boolean compressed, int bufferSize) {
+        if (bufferSize < AsyncFileWriter.MIN_BUFFER_SIZE)
+            throw new IllegalArgumentException("The buffer size must be at least " + AsyncFileWriter.MIN_BUFFER_SIZE + " bytes, got " + bufferSize);
+
         this.destFile = Objects.requireNonNull(destFile);
         this.toBeSaved = Objects.requireNonNull(toBeSaved);
+        this.compressed = compressed;
+        this.bufferSize = bufferSize;
     }
 
     @Override
@@ -74,28 +124,102 @@ public final class WrittenOnCompleted extends TextualRepresentation {
         return toBeSaved.textToWrite();
     }
 
+    /**
+     * Writes the representation into <code>target</code>, compressed if this instance
+     * has been created so.
+     */
+    @Override
+    public void write(File target) throws IOException {
+        try (Writer out = new AsyncFileWriter(target.toPath(), compressed, bufferSize)) {
+            out.write(textToWrite());
+        }
+    }
+
+    /**
+     * Starts to stream the decorated instance to the file, if it supports it.
+     */
+    private void startStreaming() throws IOException {
+        if (writer == null && toBeSaved instanceof StreamedRepresentation) {
+            writer = new AsyncFileWriter(destFile.toPath(), compressed, bufferSize);
+            ((StreamedRepresentation) toBeSaved).streamTo(writer);
+        }
+    }
+
     /**
      * Calls the decorated instance's {@code onCompleted} method,
-     * then tries to save it.
+     * then saves it.
+     *
+     * @throws UncheckedIOException if the file cannot be written or closed
      */
     @Override
     public void onCompleted() {
-        toBeSaved.onCompleted();
+        IOException failure = null;
 
         try {
-            write(destFile);
+            startStreaming();
+            toBeSaved.onCompleted();
+
+            if (writer == null)
+                write(destFile);
         } catch (IOException e) {
-            e.printStackTrace();
+            failure = e;
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
         }
+        failure = closeWriter(failure);
+
+        if (failure != null)
+            throw new UncheckedIOException("Unable to write " + destFile, failure);
     }
 
+    /**
+     * Closes the file then calls the decorated instance's {@code onError} method.
+     * <br><br>
+     * If the file cannot be closed, the failure is added as suppressed to <code>e</code>.
+     */
     @Override
     public void onError(Throwable e) {
+        IOException failure = closeWriter(null);
+
+        if (failure != null)
+            e.addSuppressed(failure);
+
         toBeSaved.onError(e);
     }
 
     @Override
     public void onNext(Generation t) {
+        try {
+            startStreaming();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         toBeSaved.onNext(t);
     }
+
+    /**
+     * Closes the writer the representation is streamed to, if any.
+     *
+     * @param failure
+     * 			The failure that already occurred, or <code>null</code> if none did.
+     *
+     * @return <code>failure</code>, to which the failure to close the writer is added as suppressed,
+     * 		   or the failure to close the writer if <code>failure</code> is <code>null</code>
+     */
+    private IOException closeWriter(IOException failure) {
+        if (writer == null)
+            return failure;
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (failure == null)
+                return e;
+
+            failure.addSuppressed(e);
+        } finally {
+            writer = null;
+        }
+        return failure;
+    }
 }
@@ -24,81 +24,51 @@ package fr.kazejiyu.gameoflife.io.textual;
  * SOFTWARE.
  */
 
+import java.io.IOException;
+
 import fr.kazejiyu.gameoflife.game.Generation;
 
 /**
  * An XML representation of one or several {@link Generation}s.
+ * <br><br>
+ * Each generation only lists its runs of alive cells, i.e. the sequences of
+ * consecutive alive cells of each row:
+ * <pre>
+ * &lt;evolution&gt;
+ *     &lt;world generation="1" rows="6" cols="6" population="5"&gt;
+ *         &lt;cells&gt;
+ *             &lt;run row="2" col="1" length="3"/&gt;
+ *             ...
+ *         &lt;/cells&gt;
+ *     &lt;/world&gt;
+ * &lt;/evolution&gt;
+ * </pre>
  * 
  * @author Emmanuel Chebbi
  */
-public final class XMLRepresentation extends TextualRepresentation {
-	
-    private int currentGen = 0;
-
-    private final StringBuilder xml;
-
-    public XMLRepresentation() {
-        this.xml = new StringBuilder("<evolution>\n");
-    }
+public final class XMLRepresentation extends StreamedRepresentation {
 
     @Override
-    public String textToWrite() {
-        return xml.toString();
+    protected void writeHeader(Appendable out) throws IOException {
+        out.append("<evolution>\n");
     }
 
     @Override
-    public void onCompleted() {
-        xml.append("</evolution>");
-    }
+    protected void writeGeneration(Appendable out, int index, Generation generation) throws IOException {
+        out.append("    <world generation=\"" + index + "\" rows=\"" + generation.rows() + "\" cols=\"" + generation.cols()
+                 + "\" population=\"" + generation.population() + "\">\n");
+        out.append("        <cells>\n");
 
-    @Override
-    public void onError(Throwable e) {
-        System.err.println("AN ERROR OCCURED: " + e.getMessage());
-    }
+        RowRuns.forEach(generation, (row, col, length) ->
+            out.append("            <run row=\"" + row + "\" col=\"" + col + "\" length=\"" + length + "\"/>\n")
+        );
 
-    @Override
-    public void onNext(Generation generation) {
-        xml.append("    <world generation=\"" + (++currentGen) + "\">\n");
-        xml.append(asXML(generation));
-        xml.append("    </world\n");
+        out.append("        </cells>\n");
+        out.append("    </world>\n");
     }
 
-    /**
-     * @return the XML representation of {@code game}
-     */
-    private String asXML(Generation game) {
-        String content = game.toString();
-        StringBuilder sb = new StringBuilder("        <cells>\n");
-
-        int returnSkiped = 0;
-
-        for (int row = 0; row < game.rows(); row++) {
-            sb.append("            ");
-            for (int col = 0; col < game.cols(); col++) {
-                char curr;
-
-                do {
-                    int linearIndex = row * game.cols() + col + returnSkiped;
-
-                    if (linearIndex >= content.length())
-                        throw new IllegalArgumentException(
-                                "the result's format of game.toString() method is not as expected");
-
-                    curr = content.charAt(linearIndex);
-
-                    if (curr == '\n')
-                        returnSkiped++;
-
-                } while (curr == '\n');
-
-                String cell = (curr == 'o') ? "<cell alive=\"true\" row=\"" + row + "\" col=\"" + col + "\"/>"
-                        : "<cell alive=\"false\" row=\"" + row + "\" col=\"" + col + "\"/>";
-                sb.append(cell);
-            }
-            sb.append("\n");
-        }
-        sb.append("        </cells>\n");
-
-        return sb.toString();
+    @Override
+    protected void writeFooter(Appendable out) throws IOException {
+        out.append("</evolution>");
     }
 }
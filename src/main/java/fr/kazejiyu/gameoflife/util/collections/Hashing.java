@@ -0,0 +1,79 @@
+package fr.kazejiyu.gameoflife.util.collections;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Sizing and hashing policy shared by the open addressing collections.
+ *
+ * @author Emmanuel Chebbi
+ */
+final class Hashing {
+
+    /**
+     * The maximum ratio of occupied slots.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private Hashing() {
+        // utility class
+    }
+
+    /**
+     * @return the power of two capacity required to hold <code>expectedSize</code> elements
+     */
+    static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    /**
+     * Returns the capacity to give to a table once the <code>size</code> elements it held
+     * have been removed. Tables that have become much larger than required are shrunk,
+     * so that clearing them costs their recent size rather than their peak capacity.
+     *
+     * @return the capacity of the table once cleared
+     */
+    static int capacityAfterClear(int capacity, int size) {
+        int required = capacityFor(size);
+        return capacity > 4 * required ? required : capacity;
+    }
+
+    /**
+     * @return the number of elements above which a table of given capacity has to grow
+     */
+    static int maxFill(int capacity) {
+        return (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * @return the slot in which <code>key</code> should be stored
+     */
+    static int index(long key, int mask) {
+        long h = key * 0x9E37_79B9_7F4A_7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
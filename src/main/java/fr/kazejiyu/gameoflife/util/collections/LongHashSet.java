@@ -0,0 +1,206 @@
+package fr.kazejiyu.gameoflife.util.collections;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of <code>long</code>s based on open addressing with linear probing.
+ * <br><br>
+ * Unlike a <code>HashSet&lt;Long&gt;</code>, adding an element never allocates
+ * an object, unless the set has to grow.
+ * <br><br>
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class LongHashSet {
+
+    /**
+     * Marks the free slots of {@link #keys}.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+
+    /**
+     * Whether {@link #FREE} itself belongs to the set.
+     */
+    private boolean containsFree = false;
+
+    private int size = 0;
+
+    /**
+     * Creates an empty set.
+     */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty set able to hold <code>expectedSize</code> elements without growing.
+     *
+     * @param expectedSize
+     * 			The number of elements expected to be added to the set.
+     */
+    public LongHashSet(int expectedSize) {
+        keys = new long[Hashing.capacityFor(expectedSize)];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return the number of elements in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the set contains no element
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return whether <code>key</code> belongs to the set
+     */
+    public boolean contains(long key) {
+        if (key == FREE)
+            return containsFree;
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return true;
+            if (keys[i] == FREE)
+                return false;
+        }
+    }
+
+    /**
+     * Adds <code>key</code> to the set.
+     *
+     * @return whether the set did not already contain <code>key</code>
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            if (containsFree)
+                return false;
+
+            containsFree = true;
+            ++size;
+            return true;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return false;
+
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                if (++size > Hashing.maxFill(keys.length))
+                    grow();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all the elements of the set, keeping its capacity unless
+     * it has become much larger than the number of elements removed.
+     */
+    public void clear() {
+        int capacity = Hashing.capacityAfterClear(keys.length, size);
+
+        if (capacity < keys.length)
+            keys = new long[capacity];
+
+        Arrays.fill(keys, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * Calls <code>action</code> on each element of the set.
+     */
+    public void forEach(LongConsumer action) {
+        if (containsFree)
+            action.accept(FREE);
+
+        for (long key : keys)
+            if (key != FREE)
+                action.accept(key);
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        Arrays.fill(keys, FREE);
+
+        int mask = keys.length - 1;
+        for (long key : old) {
+            if (key == FREE)
+                continue;
+
+            int i = Hashing.index(key, mask);
+            while (keys[i] != FREE)
+                i = (i + 1) & mask;
+            keys[i] = key;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = containsFree ? Long.hashCode(FREE) : 0;
+
+        for (long key : keys)
+            if (key != FREE)
+                hash += Long.hashCode(key);
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof LongHashSet))
+            return false;
+
+        LongHashSet other = (LongHashSet) obj;
+        if (size != other.size || containsFree != other.containsFree)
+            return false;
+
+        for (long key : keys)
+            if (key != FREE && !other.contains(key))
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,204 @@
+package fr.kazejiyu.gameoflife.util.collections;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A map from <code>long</code> keys to <code>int</code> values based on open
+ * addressing with linear probing.
+ * <br><br>
+ * Unlike a <code>HashMap&lt;Long, Integer&gt;</code>, updating a value never allocates
+ * an object, unless the map has to grow. Since {@link #clear()} keeps the capacity
+ * of the map as long as it is used, it is meant to be reused.
+ * <br><br>
+ * This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class LongIntHashMap {
+
+    /**
+     * An operation that accepts a key and its value.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * Performs the operation on the given entry.
+         *
+         * @param key
+         * 			The key of the entry.
+         * @param value
+         * 			The value associated to the key.
+         */
+        void accept(long key, int value);
+    }
+
+    /**
+     * Marks the free slots of {@link #keys}.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+
+    private int[] values;
+
+    /**
+     * Whether {@link #FREE} itself is a key of the map.
+     */
+    private boolean containsFree = false;
+
+    /**
+     * The value associated to {@link #FREE}.
+     */
+    private int freeValue = 0;
+
+    private int size = 0;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map able to hold <code>expectedSize</code> entries without growing.
+     *
+     * @param expectedSize
+     * 			The number of entries expected to be put in the map.
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Hashing.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the value associated to <code>key</code>, or 0 if there is none
+     */
+    public int get(long key) {
+        if (key == FREE)
+            return containsFree ? freeValue : 0;
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return values[i];
+            if (keys[i] == FREE)
+                return 0;
+        }
+    }
+
+    /**
+     * Adds <code>delta</code> to the value associated to <code>key</code>.
+     * Keys that are not in the map are considered to be associated to 0.
+     *
+     * @return the new value associated to <code>key</code>
+     */
+    public int addTo(long key, int delta) {
+        if (key == FREE) {
+            if (!containsFree) {
+                containsFree = true;
+                ++size;
+            }
+            return freeValue += delta;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return values[i] += delta;
+
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                values[i] = delta;
+                if (++size > Hashing.maxFill(keys.length))
+                    grow();
+                return delta;
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries of the map, keeping its capacity unless
+     * it has become much larger than the number of entries removed.
+     */
+    public void clear() {
+        int capacity = Hashing.capacityAfterClear(keys.length, size);
+
+        if (capacity < keys.length) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+        Arrays.fill(keys, FREE);
+        containsFree = false;
+        freeValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Calls <code>action</code> on each entry of the map.
+     */
+    public void forEach(EntryConsumer action) {
+        if (containsFree)
+            action.accept(FREE, freeValue);
+
+        for (int i = 0; i < keys.length; ++i)
+            if (keys[i] != FREE)
+                action.accept(keys[i], values[i]);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] == FREE)
+                continue;
+
+            int i = Hashing.index(oldKeys[j], mask);
+            while (keys[i] != FREE)
+                i = (i + 1) & mask;
+
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
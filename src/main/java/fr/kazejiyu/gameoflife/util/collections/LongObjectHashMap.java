@@ -0,0 +1,288 @@
+package fr.kazejiyu.gameoflife.util.collections;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A map from <code>long</code> keys to objects based on open addressing with
+ * linear probing.
+ * <br><br>
+ * Unlike a <code>HashMap&lt;Long, V&gt;</code>, keys are never boxed. Copying
+ * a map only copies its two underlying arrays, which makes it cheap to derive
+ * a slightly modified map from an existing one.
+ * <br><br>
+ * <code>null</code> values are not supported. This class is not thread-safe.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @param <V> The type of the values.
+ */
+public final class LongObjectHashMap<V> {
+
+    /**
+     * An operation that accepts a key and its value.
+     *
+     * @param <V> The type of the values.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        /**
+         * Performs the operation on the given entry.
+         *
+         * @param key
+         * 			The key of the entry.
+         * @param value
+         * 			The value associated to the key.
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * Marks the free slots of {@link #keys}.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    /**
+     * The value associated to {@link #FREE}, or <code>null</code> if it is not a key of the map.
+     */
+    private V freeValue = null;
+
+    private int size = 0;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map able to hold <code>expectedSize</code> entries without growing.
+     *
+     * @param expectedSize
+     * 			The number of entries expected to be put in the map.
+     */
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Hashing.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Creates a map containing the same entries than <code>other</code>.
+     * <br><br>
+     * The values themselves are not copied.
+     *
+     * @param other
+     * 			The map to copy.
+     */
+    public LongObjectHashMap(LongObjectHashMap<V> other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        freeValue = other.freeValue;
+        size = other.size;
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the map contains no entry
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the value associated to <code>key</code>, or <code>null</code> if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE)
+            return freeValue;
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V) values[i];
+            if (keys[i] == FREE)
+                return null;
+        }
+    }
+
+    /**
+     * Associates <code>value</code> to <code>key</code>.
+     *
+     * @return the value previously associated to <code>key</code>, or <code>null</code> if there was none
+     *
+     * @throws NullPointerException if <code>value</code> is <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null)
+            throw new NullPointerException("null values are not supported");
+
+        if (key == FREE) {
+            V old = freeValue;
+            if (old == null)
+                ++size;
+            freeValue = value;
+            return old;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > Hashing.maxFill(keys.length))
+                    grow();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Removes the entry associated to <code>key</code>.
+     *
+     * @return the value previously associated to <code>key</code>, or <code>null</code> if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE) {
+            V old = freeValue;
+            if (old != null)
+                --size;
+            freeValue = null;
+            return old;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = Hashing.index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == FREE)
+                return null;
+
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                shiftKeys(i);
+                --size;
+                return old;
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries of the map, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        freeValue = null;
+        size = 0;
+    }
+
+    /**
+     * Calls <code>action</code> on each entry of the map.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (freeValue != null)
+            action.accept(FREE, freeValue);
+
+        for (int i = 0; i < keys.length; ++i)
+            if (keys[i] != FREE)
+                action.accept(keys[i], (V) values[i]);
+    }
+
+    /**
+     * Frees the slot <code>pos</code> and moves back the entries that follow it,
+     * so that no lookup ever stops on a hole.
+     */
+    private void shiftKeys(int pos) {
+        int mask = keys.length - 1;
+
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+
+            while (true) {
+                if (keys[pos] == FREE) {
+                    keys[last] = FREE;
+                    values[last] = null;
+                    return;
+                }
+
+                int slot = Hashing.index(keys[pos], mask);
+                // the entry at pos may be moved to last only if its ideal slot does not lie in (last, pos]
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos)
+                    break;
+
+                pos = (pos + 1) & mask;
+            }
+
+            keys[last] = keys[pos];
+            values[last] = values[pos];
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] == FREE)
+                continue;
+
+            int i = Hashing.index(oldKeys[j], mask);
+            while (keys[i] != FREE)
+                i = (i + 1) & mask;
+
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
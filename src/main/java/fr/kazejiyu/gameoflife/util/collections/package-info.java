@@ -0,0 +1,6 @@
+/**
+ * Collections specialized for primitive types.
+ * 
+ * @author Emmanuel Chebbi
+ */
+package fr.kazejiyu.gameoflife.util.collections;
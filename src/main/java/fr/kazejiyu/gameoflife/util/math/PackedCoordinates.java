@@ -0,0 +1,75 @@
+package fr.kazejiyu.gameoflife.util.math;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Packs cartesian coordinates into a single <code>long</code>, avoiding
+ * the allocation of a {@link Coordinates} object.
+ * <br><br>
+ * The abscissa is stored in the 32 high bits and the ordinate in the 32 low bits.
+ *
+ * @author Emmanuel Chebbi
+ */
+public final class PackedCoordinates {
+
+    private PackedCoordinates() {
+        // utility class
+    }
+
+    /**
+     * @return the coordinates <code>(x,y)</code> packed into a <code>long</code>
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * @return the coordinates <code>coord</code> packed into a <code>long</code>
+     */
+    public static long pack(Coordinates coord) {
+        return pack(coord.x(), coord.y());
+    }
+
+    /**
+     * @return the value on the abscissa axis of <code>packed</code>
+     */
+    public static int x(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * @return the value on the ordinate axis of <code>packed</code>
+     */
+    public static int y(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * @return the coordinates stored in <code>packed</code>
+     */
+    public static Coordinates unpack(long packed) {
+        return Coordinates.of(x(packed), y(packed));
+    }
+}
@@ -0,0 +1,304 @@
+package fr.kazejiyu.gameoflife.game;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that {@link GenerationPublisher} only computes the generations requested,
+ * and releases the last one once the evolution has ended.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class GenerationPublisherTest {
+
+    /**
+     * The number of first generations created by the publisher under test.
+     */
+    private final AtomicInteger created = new AtomicInteger();
+
+    /**
+     * The generations released by the publisher under test.
+     */
+    private final List<Generation> released = new ArrayList<>();
+
+    private GenerationPublisher publisher(long limit) {
+        return new GenerationPublisher(() -> {
+            created.incrementAndGet();
+            return new ImmutableGeneration(Pattern.BLINKER.transformToCenter(10, 10).cells, 10, 10, Rule.GAME_OF_LIFE);
+        }, Evolution.NEVER, limit, 1, released::add);
+    }
+
+    @Test
+    public void publishesTheGenerationsRequestedOnly() {
+        GenerationPublisher publisher = publisher(Long.MAX_VALUE);
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        first.subscription.request(3);
+        second.subscription.request(1);
+
+        assertEquals(1, first.generations.size());
+        assertEquals(1, second.generations.size());
+
+        second.subscription.request(5);
+
+        assertEquals(3, first.generations.size());
+        assertEquals(3, second.generations.size());
+        assertEquals(1, created.get());
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    public void releasesTheLastGenerationOnceTheLastSubscriberHasCancelled() {
+        GenerationPublisher publisher = publisher(Long.MAX_VALUE);
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        first.subscription.request(2);
+        second.subscription.request(2);
+        first.subscription.cancel();
+
+        assertTrue(released.isEmpty());
+
+        second.subscription.cancel();
+
+        assertEquals(1, released.size());
+        assertEquals(second.generations.get(1), released.get(0));
+        assertFalse(first.completed || second.completed);
+
+        Recorder late = new Recorder();
+        publisher.subscribe(late);
+
+        assertTrue(late.completed);
+        assertTrue(late.generations.isEmpty());
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void completesAndReleasesTheLastGenerationOnceTheLimitIsReached() {
+        GenerationPublisher publisher = publisher(2);
+        Recorder recorder = new Recorder();
+
+        publisher.subscribe(recorder);
+        recorder.subscription.request(5);
+
+        assertEquals(2, recorder.generations.size());
+        assertTrue(recorder.completed);
+        assertEquals(1, released.size());
+        assertEquals(recorder.generations.get(1), released.get(0));
+    }
+
+    @Test
+    public void completesWithoutComputingAnyGenerationWhenTheLimitIsZero() {
+        GenerationPublisher publisher = publisher(0);
+        Recorder recorder = new Recorder();
+
+        publisher.subscribe(recorder);
+
+        assertTrue(recorder.completed);
+        assertTrue(recorder.generations.isEmpty());
+        assertEquals(0, created.get());
+    }
+
+    @Test
+    public void signalsInvalidRequestsAsErrors() {
+        GenerationPublisher publisher = publisher(Long.MAX_VALUE);
+        Recorder recorder = new Recorder();
+
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+
+        assertTrue(recorder.failure instanceof IllegalArgumentException);
+        assertTrue(recorder.generations.isEmpty());
+    }
+
+    @Test
+    public void closesTheGenerationOfAnEvolutionOnceCancelled() {
+        List<TrackedGeneration> generations = new ArrayList<>();
+        Publisher<Generation> publisher = new Evolution()
+                .size(10, 10)
+                .populateWith(Pattern.GLIDER)
+                .useEngine((cells, width, height, rule) -> {
+                    TrackedGeneration generation = new TrackedGeneration(new ImmutableGeneration(cells, width, height, rule));
+                    generations.add(generation);
+                    return generation;
+                })
+                .publish();
+
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(3);
+
+        assertEquals(3, recorder.generations.size());
+        assertEquals(1, generations.size());
+        assertFalse(generations.get(0).closed);
+
+        recorder.subscription.cancel();
+
+        assertTrue(generations.get(0).closed);
+    }
+
+    @Test
+    public void closesTheGenerationOfAnEvolutionOnceCompleted() {
+        List<TrackedGeneration> generations = new ArrayList<>();
+        Publisher<Generation> publisher = new Evolution()
+                .size(10, 10)
+                .populateWith(Pattern.BLINKER)
+                .useEngine((cells, width, height, rule) -> {
+                    TrackedGeneration generation = new TrackedGeneration(new ImmutableGeneration(cells, width, height, rule));
+                    generations.add(generation);
+                    return generation;
+                })
+                .publish(2);
+
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(recorder.completed);
+        assertTrue(generations.get(0).closed);
+    }
+
+    /**
+     * A mutable generation that holds resources, and remembers whether it has been closed.
+     */
+    private static final class TrackedGeneration implements Generation, AutoCloseable {
+
+        private Generation state;
+
+        boolean closed = false;
+
+        TrackedGeneration(Generation state) {
+            this.state = state;
+        }
+
+        @Override
+        public int cols() {
+            return state.cols();
+        }
+
+        @Override
+        public int rows() {
+            return state.rows();
+        }
+
+        @Override
+        public int nbOfCellsAlive() {
+            return state.nbOfCellsAlive();
+        }
+
+        @Override
+        public boolean isAliveAt(Coordinates coord) {
+            return state.isAliveAt(coord);
+        }
+
+        @Override
+        public Generation nextGeneration() {
+            assertFalse(closed);
+            state = state.nextGeneration();
+            return this;
+        }
+
+        @Override
+        public Generation snapshot() {
+            return state;
+        }
+
+        @Override
+        public boolean holdsExternalResources() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Records the signals it receives, closing the generations that hold resources.
+     */
+    private static final class Recorder implements Subscriber<Generation> {
+
+        Subscription subscription;
+
+        final List<Generation> generations = new ArrayList<>();
+
+        boolean completed = false;
+
+        Throwable failure;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Generation generation) {
+            generations.add(generation);
+
+            if (generation.holdsExternalResources())
+                close((AutoCloseable) generation);
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private static void close(AutoCloseable generation) {
+            try {
+                generation.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
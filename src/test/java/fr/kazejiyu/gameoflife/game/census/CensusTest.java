@@ -0,0 +1,121 @@
+package fr.kazejiyu.gameoflife.game.census;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that a {@link Census} counts still lifes, oscillators and spaceships whatever
+ * their position, their orientation and their phase.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class CensusTest {
+
+    private static final int SIZE = 120;
+
+    /**
+     * @return a world made of 3 blocks, 2 beehives, 2 blinkers, a toad, 2 gliders and a lightweight spaceship,
+     * 		   in various orientations
+     */
+    private static List<Coordinates> knownObjects() {
+        List<Coordinates> cells = new ArrayList<>();
+
+        place(cells, "oo\noo", 10, 10);
+        place(cells, "oo\noo", 30, 10);
+        place(cells, "oo\noo", 50, 10);
+        place(cells, ".oo.\no..o\n.oo.", 10, 30);
+        place(cells, ".o.\no.o\no.o\n.o.", 30, 30);
+        place(cells, "ooo", 10, 50);
+        place(cells, "o\no\no", 30, 50);
+        place(cells, ".ooo\nooo.", 50, 50);
+        place(cells, ".o.\n..o\nooo", 70, 70);
+        place(cells, ".o.\no..\nooo", 90, 20);
+        place(cells, ".o..o\no....\no...o\noooo.", 20, 90);
+
+        return cells;
+    }
+
+    private static void place(List<Coordinates> cells, String object, int x, int y) {
+        for (Coordinates cell : Pattern.fromString(object, 'o').cells)
+            cells.add(Coordinates.of(cell.x() + x, cell.y() + y));
+    }
+
+    @Test
+    public void countsTheObjectsWhateverTheirPhase() {
+        Generation generation = new ImmutableGeneration(knownObjects(), SIZE, SIZE, Rule.GAME_OF_LIFE);
+
+        for (int i = 0; i < 8; ++i, generation = generation.nextGeneration()) {
+            Census census = generation.census();
+            String message = "at generation " + i + ": " + census;
+
+            assertEquals(message, 3, census.count("block"));
+            assertEquals(message, 2, census.count("beehive"));
+            assertEquals(message, 2, census.count("blinker"));
+            assertEquals(message, 1, census.count("toad"));
+            assertEquals(message, 2, census.count("glider"));
+            assertEquals(message, 1, census.count("lightweight spaceship"));
+            assertEquals(message, 11, census.nbOfObjects());
+            assertEquals(message, 0, census.nbOfUnknownObjects());
+        }
+    }
+
+    @Test
+    public void countsTheObjectsThatAreNotKnown() {
+        List<Coordinates> cells = knownObjects();
+        place(cells, ".oo\noo.\n.o.", 90, 90);
+        place(cells, ".oo\noo.\n.o.", 90, 60);
+
+        Census census = Census.of(new ImmutableGeneration(cells, SIZE, SIZE, Rule.GAME_OF_LIFE));
+
+        assertEquals(13, census.nbOfObjects());
+        assertEquals(2, census.nbOfUnknownObjects());
+        assertEquals(1, census.unknownObjects().size());
+    }
+
+    @Test
+    public void namesTheObjectsOfOtherRulesOnceRegistered() {
+        Generation generation = new ImmutableGeneration(Pattern.HIGH_LIFE_REPLICATOR.transformToOrigin(40, 40).cells, 100, 100, Rule.HIGH_LIFE);
+
+        assertEquals(1, Census.of(generation).nbOfUnknownObjects());
+
+        KnownObjects table = KnownObjects.defaults().with("replicator", Pattern.HIGH_LIFE_REPLICATOR, 1, Rule.HIGH_LIFE);
+        Census census = Census.of(generation, table);
+
+        assertEquals(1, census.count("replicator"));
+        assertEquals(0, census.nbOfUnknownObjects());
+    }
+}
@@ -0,0 +1,140 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that each {@link Engine} computes the same generations as {@link ImmutableGeneration},
+ * which is the reference implementation.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class EngineTest {
+
+    /**
+     * The engines which world is unbounded, hence which patterns may grow beyond the observed area.
+     */
+    private static final EnumSet<Engine> UNBOUNDED = EnumSet.of(Engine.TILED_UNBOUNDED, Engine.HASHLIFE);
+
+    private static final int GENERATIONS = 30;
+
+    /**
+     * Sizes of worlds which widths are below, equal to and above the size of a word or of a tile.
+     */
+    private static final int[][] SIZES = {{1, 1}, {3, 5}, {63, 7}, {64, 64}, {65, 3}, {130, 70}};
+
+    @Test
+    public void boundedEnginesComputeTheSameGenerationsAsTheReference() {
+        Random random = new Random(42);
+
+        for (Engine engine : EnumSet.complementOf(UNBOUNDED)) {
+            for (Rule rule : Rule.values()) {
+                for (int[] size : SIZES) {
+                    Collection<Coordinates> cells = soup(random, size[0], size[1], 0.35);
+                    assertSameEvolution(engine, rule, cells, size[0], size[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unboundedEnginesComputeTheSameGenerationsAsTheReferenceAwayFromTheBorders() {
+        Random random = new Random(7);
+        List<Coordinates> cells = new ArrayList<>();
+
+        // a soup surrounded by empty space, in which a glider flies away from the borders
+        for (Coordinates cell : soup(random, 20, 20, 0.4))
+            cells.add(Coordinates.of(cell.x() + 80, cell.y() + 80));
+
+        cells.addAll(Pattern.GLIDER.transformToOrigin(20, 20).cells);
+        cells.addAll(Pattern.BLINKER.transformToOrigin(150, 30).cells);
+
+        for (Engine engine : UNBOUNDED)
+            assertSameEvolution(engine, Rule.GAME_OF_LIFE, cells, 200, 200);
+    }
+
+    /**
+     * Evolves <code>cells</code> with both <code>engine</code> and {@link Engine#IMMUTABLE},
+     * and checks that each generation is the same.
+     */
+    private static void assertSameEvolution(Engine engine, Rule rule, Collection<Coordinates> cells, int width, int height) {
+        Generation expected = new ImmutableGeneration(cells, width, height, rule);
+        Generation actual = engine.create(cells, width, height, rule);
+
+        try {
+            for (int i = 0; i < GENERATIONS; ++i) {
+                String message = engine + " " + rule + " " + width + "x" + height + " at generation " + i;
+
+                assertEquals(message, expected.toString(), actual.toString());
+                assertEquals(message, expected.nbOfCellsAlive(), actual.nbOfCellsAlive());
+                assertEquals(message, expected.fingerprint(), actual.fingerprint());
+
+                expected = expected.nextGeneration();
+                actual = actual.nextGeneration();
+            }
+        }
+        finally {
+            if (actual instanceof AutoCloseable)
+                close((AutoCloseable) actual);
+        }
+    }
+
+    private static void close(AutoCloseable generation) {
+        try {
+            generation.close();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return random cells of a <code>width</code> x <code>height</code> world, each of them alive with the given probability
+     */
+    static Collection<Coordinates> soup(Random random, int width, int height, double density) {
+        List<Coordinates> cells = new ArrayList<>();
+
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                if (random.nextDouble() < density)
+                    cells.add(Coordinates.of(x, y));
+
+        return cells;
+    }
+}
@@ -0,0 +1,129 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that the generations written by {@link HashLifeGeneration#writeMacrocell} are read
+ * back as is by {@link HashLifeGeneration#fromMacrocell}, cells outside of the observed area
+ * and rule included.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class MacrocellTest {
+
+    @Test
+    public void readsAGliderWrittenByGolly() throws IOException {
+        HashLifeGeneration glider = read("[M2] (golly 2.0)\n#R b3s23\n#G 0\n$$..*$...*$.***$\n4 0 0 0 1\n", 20, 20);
+
+        assertEquals(5, glider.nbOfCellsAlive());
+
+        for (int[] cell : new int[][] {{12, 12}, {13, 13}, {11, 14}, {12, 14}, {13, 14}})
+            assertTrue(glider.isAliveAt(cell[0], cell[1]));
+    }
+
+    @Test
+    public void readsBackWhatHasBeenWritten() throws IOException {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50; ++i) {
+            int width = 1 + random.nextInt(70);
+            int height = 1 + random.nextInt(70);
+            Rule rule = random.nextBoolean() ? Rule.GAME_OF_LIFE : Rule.HIGH_LIFE;
+
+            // some cells are located outside of the observed area, and must be written too
+            List<Coordinates> cells = new ArrayList<>();
+            double density = random.nextDouble() * 0.5;
+
+            for (int y = -5; y < height + 5; ++y)
+                for (int x = -5; x < width + 5; ++x)
+                    if (random.nextDouble() < density)
+                        cells.add(Coordinates.of(x, y));
+
+            HashLifeGeneration generation = new HashLifeGeneration(cells, width, height, rule);
+
+            for (HashLifeGeneration written : new HashLifeGeneration[] {generation, generation.advance(random.nextInt(300))}) {
+                byte[] file = write(written);
+                HashLifeGeneration read = read(file, width, height);
+
+                assertEquals(written.totalPopulation(), read.totalPopulation());
+                assertEquals(written.fingerprint(), read.fingerprint());
+                assertArrayEquals(file, write(read));
+
+                // the rule has been read back, and so have the cells outside of the observed area
+                HashLifeGeneration expected = written.advance(77);
+                HashLifeGeneration actual = read.advance(77);
+
+                assertEquals(expected.totalPopulation(), actual.totalPopulation());
+                assertEquals(expected.fingerprint(), actual.fingerprint());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsInvalidFiles() {
+        for (String invalid : new String[] {"x = 3", "[M2]\n5 0 0 0 1\n", "[M2]\n$$*z\n", "[M2]\n#R B0/S1\n$*$\n", "[M2]\n"}) {
+            try {
+                read(invalid, 5, 5);
+                fail("Expected " + invalid + " to be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static byte[] write(HashLifeGeneration generation) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generation.writeMacrocell(Channels.newChannel(out));
+
+        return out.toByteArray();
+    }
+
+    private static HashLifeGeneration read(byte[] file, int width, int height) throws IOException {
+        return HashLifeGeneration.fromMacrocell(Channels.newChannel(new ByteArrayInputStream(file)), width, height, HashLifeGeneration.DEFAULT_MAX_NODES);
+    }
+
+    private static HashLifeGeneration read(String file, int width, int height) throws IOException {
+        return read(file.getBytes(StandardCharsets.US_ASCII), width, height);
+    }
+}
@@ -0,0 +1,183 @@
+package fr.kazejiyu.gameoflife.io.binary;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.engines.Engine;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that the generations recorded by an {@link EvolutionLogWriter} can be read back
+ * by an {@link EvolutionLog} in any order.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class EvolutionLogTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("evolution", ".log");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void readsTheGenerationsInAnyOrder() throws IOException {
+        Random random = new Random(5);
+
+        for (int keyframeInterval : new int[] {1, 7, 64}) {
+            List<Generation> generations = record(random, keyframeInterval, 150);
+            List<Integer> order = new ArrayList<>();
+
+            for (int i = 0; i < generations.size(); ++i)
+                order.add(i);
+
+            Collections.shuffle(order, random);
+
+            try (EvolutionLog log = EvolutionLog.open(file)) {
+                assertEquals(generations.size(), log.size());
+                assertEquals(keyframeInterval, log.keyframeInterval());
+                assertEquals(generations.get(0).cols(), log.cols());
+                assertEquals(generations.get(0).rows(), log.rows());
+
+                for (int i : order) {
+                    Generation read = log.generation(i, Engine.IMMUTABLE, Rule.GAME_OF_LIFE);
+                    assertEquals("generation " + i + " with keyframes every " + keyframeInterval, generations.get(i), read);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void visitsTheCellsRowAfterRow() throws IOException {
+        List<Generation> generations = record(new Random(3), 10, 30);
+
+        try (EvolutionLog log = EvolutionLog.open(file)) {
+            for (int i = 0; i < generations.size(); ++i) {
+                List<Coordinates> expected = new ArrayList<>();
+                generations.get(i).forEachAliveCellInRowOrder((x, y) -> expected.add(Coordinates.of(x, y)));
+
+                List<Coordinates> actual = new ArrayList<>();
+                log.forEachAliveCell(i, (x, y) -> actual.add(Coordinates.of(x, y)));
+
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsTheGenerationsThatHaveNotBeenRecorded() throws IOException {
+        List<Generation> generations = record(new Random(1), 10, 20);
+
+        try (EvolutionLog log = EvolutionLog.open(file)) {
+            log.generation(generations.size());
+        }
+    }
+
+    @Test
+    public void readsTheGenerationsRecordedBeforeAnError() throws IOException {
+        EvolutionLogWriter writer = new EvolutionLogWriter(file, 4);
+        Generation generation = new ImmutableGeneration(soup(new Random(2), 40, 30), 40, 30, Rule.GAME_OF_LIFE);
+        Generation last = null;
+
+        for (int i = 0; i < 10; ++i, generation = generation.nextGeneration()) {
+            writer.onNext(generation);
+            last = generation;
+        }
+        writer.onError(new IllegalStateException());
+
+        try (EvolutionLog log = EvolutionLog.open(file)) {
+            assertEquals(10, log.size());
+            assertEquals(last, log.generation(9, Engine.IMMUTABLE, Rule.GAME_OF_LIFE));
+        }
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotLogs() throws IOException {
+        Files.write(file, "not an evolution log, but long enough to hold a header and a trailer".getBytes("US-ASCII"));
+
+        try {
+            EvolutionLog.open(file).close();
+            fail("Expected the file to be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Records <code>size</code> generations of a random soup into {@link #file}.
+     *
+     * @return the generations recorded
+     */
+    private List<Generation> record(Random random, int keyframeInterval, int size) {
+        int width = 60 + random.nextInt(100);
+        int height = 40 + random.nextInt(100);
+        EvolutionLogWriter writer = new EvolutionLogWriter(file, keyframeInterval);
+
+        List<Generation> generations = new ArrayList<>();
+        Generation generation = new ImmutableGeneration(soup(random, width, height), width, height, Rule.GAME_OF_LIFE);
+
+        for (int i = 0; i < size; ++i, generation = generation.nextGeneration()) {
+            writer.onNext(generation);
+            generations.add(generation);
+        }
+        writer.onCompleted();
+
+        return generations;
+    }
+
+    private static List<Coordinates> soup(Random random, int width, int height) {
+        List<Coordinates> cells = new ArrayList<>();
+
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                if (random.nextInt(100) < 30)
+                    cells.add(Coordinates.of(x, y));
+
+        return cells;
+    }
+}
@@ -0,0 +1,128 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.engines.Engine;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that {@link PlaintextReader} reads the same cells as a sequential parser would,
+ * whatever the line separators and however the file is split into chunks.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class PlaintextReaderTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("plaintext", ".txt");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void readsASmallGrid() throws IOException {
+        Files.write(file, ".o.\r\n..o\nooo\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        Generation generation = PlaintextReader.read(file, 'o', Engine.IMMUTABLE);
+
+        assertEquals(3, generation.cols());
+        assertEquals(3, generation.rows());
+        assertEquals(".o.\n..o\nooo", generation.toString());
+    }
+
+    @Test
+    public void readsTheSameCellsWhateverTheChunks() throws IOException {
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder();
+        List<Coordinates> cells = new ArrayList<>();
+        int width = 0;
+        int height = 0;
+
+        // about 6 MB, so that the file is split into several chunks at positions that may fall
+        // within a \r\n separator or within a multi-byte character
+        for (int y = 0; y < 4000; ++y) {
+            int length = random.nextInt(10) == 0 ? 0 : random.nextInt(1500);
+
+            for (int x = 0; x < length; ++x) {
+                int cell = random.nextInt(20);
+
+                if (cell == 0) {
+                    text.append('o');
+                    cells.add(Coordinates.of(x, y));
+                }
+                else if (cell == 1)
+                    text.append('é');
+                else
+                    text.append('.');
+            }
+            if (length > 0)
+                height = y + 1;
+
+            width = Math.max(width, length);
+            text.append(random.nextInt(4) == 0 ? "\n" : "\r\n");
+        }
+        text.append("\r\n\r\n");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        Generation expected = new ImmutableGeneration(cells, width, height, Rule.GAME_OF_LIFE);
+
+        // the bit-packed engine accepts concurrent rows, the immutable one does not
+        for (Engine engine : new Engine[] {Engine.BIT_PACKED, Engine.IMMUTABLE}) {
+            Generation read = PlaintextReader.read(file, 'o', engine);
+
+            assertEquals(engine.toString(), width, read.cols());
+            assertEquals(engine.toString(), height, read.rows());
+            assertEquals(engine.toString(), expected.nbOfCellsAlive(), read.nbOfCellsAlive());
+            assertEquals(engine.toString(), expected.fingerprint(), read.fingerprint());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonAsciiAliveCharacters() throws IOException {
+        PlaintextReader.read(file, 'é', Engine.IMMUTABLE);
+    }
+}
@@ -0,0 +1,153 @@
+package fr.kazejiyu.gameoflife.io.textual;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.ImmutableGeneration;
+import fr.kazejiyu.gameoflife.game.engines.Engine;
+import fr.kazejiyu.gameoflife.game.patterns.Pattern;
+import fr.kazejiyu.gameoflife.game.rules.Rule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+
+/**
+ * Checks that the generations written by {@link RleWriter} are read back as is by {@link RleReader},
+ * whatever the engine, and that the runs are streamed row after row.
+ *
+ * @author Emmanuel Chebbi
+ */
+public class RleTest {
+
+    @Test
+    public void writesTheRunsOfAGlider() throws IOException {
+        Pattern pattern = Pattern.fromString(".o.\n..o\nooo", 'o');
+        Generation glider = new ImmutableGeneration(pattern.cells, pattern.width, pattern.height, Rule.GAME_OF_LIFE);
+
+        assertEquals("x = 3, y = 3, rule = B3/S23\nbo$2bo$3o!\n", write(glider, Rule.GAME_OF_LIFE));
+    }
+
+    @Test
+    public void readsBackWhatHasBeenWrittenWithEachEngine() throws IOException {
+        Random random = new Random(3);
+
+        for (Engine engine : Engine.values()) {
+            for (int i = 0; i < 10; ++i) {
+                int width = 1 + random.nextInt(150);
+                int height = 1 + random.nextInt(80);
+                Generation generation = engine.create(soup(random, width, height), width, height, Rule.HIGH_LIFE);
+
+                // unbounded engines may hold cells beyond the observed area, which are not written
+                generation = generation.nextGeneration().nextGeneration();
+
+                String text = write(generation, Rule.HIGH_LIFE);
+                Generation read = RleReader.read(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))), Engine.IMMUTABLE);
+
+                assertEquals(engine + ": " + text, generation.cols(), read.cols());
+                assertEquals(engine + ": " + text, generation.rows(), read.rows());
+                assertEquals(engine + ": " + text, generation.fingerprint(), read.fingerprint());
+
+                for (String line : text.split("\n"))
+                    assertTrue(engine + ": " + line, line.length() <= 70);
+
+                close(generation);
+            }
+        }
+    }
+
+    @Test
+    public void visitsTheRunsRowAfterRowWithEachEngine() throws IOException {
+        Random random = new Random(5);
+
+        for (Engine engine : Engine.values()) {
+            int width = 1 + random.nextInt(200);
+            int height = 1 + random.nextInt(150);
+            Generation generation = engine.create(soup(random, width, height), width, height, Rule.GAME_OF_LIFE);
+
+            for (int i = 0; i < 4; ++i, generation = generation.nextGeneration()) {
+                List<String> expected = new ArrayList<>();
+
+                for (int y = 0; y < height; ++y) {
+                    for (int x = 0; x < width; ++x) {
+                        int first = x;
+
+                        while (x < width && generation.isAliveAt(x, y))
+                            ++x;
+
+                        if (x > first)
+                            expected.add(y + ":" + first + "+" + (x - first));
+                    }
+                }
+                List<String> actual = new ArrayList<>();
+                RowRuns.forEach(generation, (row, col, length) -> actual.add(row + ":" + col + "+" + length));
+
+                assertEquals(engine + " at generation " + i, expected, actual);
+            }
+            close(generation);
+        }
+    }
+
+    private static String write(Generation generation, Rule rule) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RleWriter.write(generation, rule, Channels.newChannel(out));
+
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static List<Coordinates> soup(Random random, int width, int height) {
+        List<Coordinates> cells = new ArrayList<>();
+        double density = random.nextDouble() * 0.5;
+
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                if (random.nextDouble() < density)
+                    cells.add(Coordinates.of(x, y));
+
+        return cells;
+    }
+
+    private static void close(Generation generation) {
+        if (!generation.holdsExternalResources())
+            return;
+
+        try {
+            ((AutoCloseable) generation).close();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package fr.kazejiyu.gameoflife.game.engines;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Emmanuel CHEBBI
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+import fr.kazejiyu.gameoflife.game.CellConsumer;
+import fr.kazejiyu.gameoflife.game.Generation;
+import fr.kazejiyu.gameoflife.game.rules.LifeLikeRule;
+import fr.kazejiyu.gameoflife.util.math.Coordinates;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * An immutable implementation of {@link Generation} that stores one bit per cell
+ * and computes next generations with the Vector API.
+ * <br><br>
+ * This generation follows the same model than {@link BitPackedGeneration}, but
+ * computes several words at once with {@link LongVector}s whose size depends on the
+ * hardware (e.g. 4 words with AVX2, 8 words with AVX-512). So that vectors can be
+ * loaded without bound checks, each row is padded by one empty word on its left and
+ * at least one on its right, and the grid is padded by one empty row on its top and
+ * on its bottom.
+ * <br><br>
+ * This class requires the <code>jdk.incubator.vector</code> module and is only
+ * compiled when a JDK 16+ is available; {@link Engine#VECTOR} falls back to a
+ * {@link BitPackedGeneration} otherwise.
+ *
+ * @author Emmanuel Chebbi
+ *
+ * @see BitGrid
+ */
+public final class VectorGeneration extends AbstractGeneration {
+
+    /**
+     * The preferred vector shape of the platform.
+     */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * The birth mask of the game of life, which benefits from a shortcut.
+     */
+    private static final int LIFE_BIRTH = 1 << 3;
+
+    /**
+     * The survival mask of the game of life, which benefits from a shortcut.
+     */
+    private static final int LIFE_SURVIVAL = 1 << 2 | 1 << 3;
+
+    /**
+     * The cells of the generation, one bit per cell, including padding.
+     */
+    private final long[] cells;
+
+    /**
+     * The width of the world.
+     */
+    private final int width;
+
+    /**
+     * The height of the world.
+     */
+    private final int height;
+
+    /**
+     * The number of words used to store the cells of a row.
+     */
+    private final int words;
+
+    /**
+     * The number of words between two consecutive rows, padding included.
+     */
+    private final int stride;
+
+    /**
+     * For each word of a padded row, the bits that correspond to cells of the world.
+     */
+    private final long[] columns;
+
+    /**
+     * The number of cells alive.
+     */
+    private final int population;
+
+    /**
+     * Determines whether a cell will be alive at next generation.
+     */
+    private final BiPredicate<Generation, Entry<Coordinates, Long>> rule;
+
+    /**
+     * The compiled form of {@link #rule}.
+     */
+    private final LifeLikeRule masks;
+
+    /**
+     * Creates a new generation creating living cells for each coordinate
+     * of <code>aliveCells</code>.
+     * <br><br>
+     * Coordinates located outside of the world are ignored.
+     *
+     * @param aliveCells
+     * 			The coordinates of the cells that live.
+     * @param width
+     * 			The width of the world.
+     * @param height
+     * 			The height of the world.
+     * @param rule
+     * 			The rule that determines whether a cell will be alive at next generation.
+     */
+    public VectorGeneration(Collection<Coordinates> aliveCells, int width, int height, BiPredicate<Generation, Entry<Coordinates, Long>> rule) {
+        this.width = width;
+        this.height = height;
+        this.words = BitGrid.wordsPerRow(width);
+        this.stride = paddedWords(words) + 2;
+        this.columns = columnMasks(words, stride, BitGrid.lastWordMask(width));
+        this.rule = Objects.requireNonNull(rule);
+        this.masks = LifeLikeRule.of(rule);
+        this.cells = new long[stride * (height + 2)];
+
+        int alive = 0;
+        for (Coordinates cell : aliveCells) {
+            if (0 <= cell.x() && cell.x() < width && 0 <= cell.y() && cell.y() < height) {
+                int index = indexOf(cell.x(), cell.y());
+                long bit = 1L << cell.x();
+
+                if ((cells[index] & bit) == 0) {
+                    cells[index] |= bit;
+                    ++alive;
+                }
+            }
+        }
+        this.population = alive;
+    }
+
+    private VectorGeneration(VectorGeneration previous, long[] cells, int population) {
+        this.width = previous.width;
+        this.height = previous.height;
+        this.words = previous.words;
+        this.stride = previous.stride;
+        this.columns = previous.columns;
+        this.rule = previous.rule;
+        this.masks = previous.masks;
+        this.cells = cells;
+        this.population = population;
+    }
+
+    /**
+     * @return the smallest multiple of the vector length that is greater than or equal to <code>words</code>
+     */
+    private static int paddedWords(int words) {
+        int length = SPECIES.length();
+        return (words + length - 1) / length * length;
+    }
+
+    /**
+     * @return the mask of the cells that belong to the world for each word of a padded row
+     */
+    private static long[] columnMasks(int words, int stride, long lastMask) {
+        long[] columns = new long[stride];
+
+        for (int i = 1; i <= words; ++i)
+            columns[i] = i == words ? lastMask : -1L;
+
+        return columns;
+    }
+
+    /**
+     * @return the index of the word that stores the cell located at <code>(x,y)</code>
+     */
+    private int indexOf(int x, int y) {
+        return (y + 1) * stride + 1 + (x >>> 6);
+    }
+
+    @Override
+    public int rows() {
+        return height;
+    }
+
+    @Override
+    public int cols() {
+        return width;
+    }
+
+    @Override
+    public int nbOfCellsAlive() {
+        return population;
+    }
+
+    @Override
+    public boolean isAliveAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+
+        return (cells[indexOf(x, y)] >>> x & 1) != 0;
+    }
+
+    /**
+     * Performs <code>action</code> for each cell alive, scanning the world row by row.
+     */
+    @Override
+    public void forEachAliveCellInRowOrder(CellConsumer action) {
+        forEachAliveCell(action);
+    }
+
+    @Override
+    public VectorGeneration nextGeneration() {
+        long[] next = new long[cells.length];
+        int length = SPECIES.length();
+        int last = 1 + paddedWords(words);
+        int birth = masks.birthMask();
+        int survival = masks.survivalMask();
+        long alive = 0;
+
+        for (int y = 1; y <= height; ++y) {
+            int row = y * stride;
+            int above = row - stride;
+            int below = row + stride;
+
+            for (int i = 1; i < last; i += length) {
+                LongVector state = step(
+                    LongVector.fromArray(SPECIES, cells, above + i - 1),
+                    LongVector.fromArray(SPECIES, cells, above + i),
+                    LongVector.fromArray(SPECIES, cells, above + i + 1),
+                    LongVector.fromArray(SPECIES, cells, row + i - 1),
+                    LongVector.fromArray(SPECIES, cells, row + i),
+                    LongVector.fromArray(SPECIES, cells, row + i + 1),
+                    LongVector.fromArray(SPECIES, cells, below + i - 1),
+                    LongVector.fromArray(SPECIES, cells, below + i),
+                    LongVector.fromArray(SPECIES, cells, below + i + 1),
+                    birth, survival
+                );
+                state.and(LongVector.fromArray(SPECIES, columns, i)).intoArray(next, row + i);
+            }
+
+            for (int i = 1; i <= words; ++i)
+                alive += Long.bitCount(next[row + i]);
+        }
+        return new VectorGeneration(this, next, (int) alive);
+    }
+
+    /**
+     * Computes the next state of the cells stored in <code>c</code>, as {@link BitGrid#step} does.
+     *
+     * @return the next state of the cells stored in <code>c</code>
+     */
+    private static LongVector step(LongVector nw, LongVector n, LongVector ne, LongVector w, LongVector c, LongVector e, LongVector sw, LongVector s, LongVector se, int birth, int survival) {
+        // neighbours located on the west (x-1) and on the east (x+1) of each cell
+        LongVector nWest = west(n, nw), nEast = east(n, ne);
+        LongVector cWest = west(c, w),  cEast = east(c, e);
+        LongVector sWest = west(s, sw), sEast = east(s, se);
+
+        // count the neighbours of each row with full adders
+        LongVector north0 = nWest.lanewise(VectorOperators.XOR, n).lanewise(VectorOperators.XOR, nEast);
+        LongVector north1 = nWest.and(n).or(nEast.and(nWest.lanewise(VectorOperators.XOR, n)));
+        LongVector south0 = sWest.lanewise(VectorOperators.XOR, s).lanewise(VectorOperators.XOR, sEast);
+        LongVector south1 = sWest.and(s).or(sEast.and(sWest.lanewise(VectorOperators.XOR, s)));
+        LongVector middle0 = cWest.lanewise(VectorOperators.XOR, cEast);
+        LongVector middle1 = cWest.and(cEast);
+
+        // sum the rows: bit0 + 2*bit1 + 4*bit2 + 8*bit3
+        LongVector northSouth0 = north0.lanewise(VectorOperators.XOR, south0);
+        LongVector bit0 = northSouth0.lanewise(VectorOperators.XOR, middle0);
+        LongVector carry0 = north0.and(south0).or(middle0.and(northSouth0));
+
+        LongVector northSouth1 = north1.lanewise(VectorOperators.XOR, south1);
+        LongVector twos = northSouth1.lanewise(VectorOperators.XOR, middle1);
+        LongVector fours = north1.and(south1).or(middle1.and(northSouth1));
+
+        LongVector bit1 = twos.lanewise(VectorOperators.XOR, carry0);
+        LongVector carry1 = twos.and(carry0);
+
+        LongVector bit2 = fours.lanewise(VectorOperators.XOR, carry1);
+        LongVector bit3 = fours.and(carry1);
+
+        if (birth == LIFE_BIRTH && survival == LIFE_SURVIVAL)
+            return bit1.and(bit2.or(bit3).not()).and(bit0.or(c));
+
+        LongVector next = LongVector.zero(SPECIES);
+        int relevant = birth | survival;
+
+        for (int neighbours = 1; neighbours <= 8; ++neighbours) {
+            if ((relevant >>> neighbours & 1) == 0)
+                continue;
+
+            LongVector matches = ((neighbours & 1) != 0 ? bit0 : bit0.not())
+                          .and((neighbours & 2) != 0 ? bit1 : bit1.not())
+                          .and((neighbours & 4) != 0 ? bit2 : bit2.not())
+                          .and((neighbours & 8) != 0 ? bit3 : bit3.not());
+
+            boolean born = (birth >>> neighbours & 1) != 0;
+            boolean survives = (survival >>> neighbours & 1) != 0;
+
+            if (born && survives)
+                next = next.or(matches);
+            else if (born)
+                next = next.or(matches.and(c.not()));
+            else
+                next = next.or(matches.and(c));
+        }
+        return next;
+    }
+
+    /**
+     * @return the western neighbours of the cells stored in <code>cells</code>
+     */
+    private static LongVector west(LongVector cells, LongVector western) {
+        return cells.lanewise(VectorOperators.LSHL, 1).or(western.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /**
+     * @return the eastern neighbours of the cells stored in <code>cells</code>
+     */
+    private static LongVector east(LongVector cells, LongVector eastern) {
+        return cells.lanewise(VectorOperators.LSHR, 1).or(eastern.lanewise(VectorOperators.LSHL, 63));
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Arrays.hashCode(cells);
+        result = prime * result + height;
+        result = prime * result + rule.hashCode();
+        result = prime * result + width;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof VectorGeneration))
+            return false;
+
+        VectorGeneration other = (VectorGeneration) obj;
+        return width == other.width && height == other.height
+            && population == other.population
+            && rule.equals(other.rule)
+            && Arrays.equals(cells, other.cells);
+    }
+}